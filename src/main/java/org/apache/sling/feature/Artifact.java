@@ -19,15 +19,15 @@
 package org.apache.sling.feature;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import jakarta.json.JsonString;
 import jakarta.json.JsonValue;
@@ -57,11 +57,19 @@ public class Artifact implements Comparable<Artifact>, Serializable {
 
     private static final String KEY_ID = "id";
 
+    private static final ArtifactId[] NO_ORIGINS = new ArtifactId[0];
+
     /** The artifact id. */
     private final ArtifactId id;
 
-    /** Artifact metadata. */
-    private final Map<String, String> metadata = new TreeMap<>();
+    /** Artifact metadata, shared with copies until modified. */
+    private Map<String, String> metadata = new CopyOnWriteMap<>(new TreeMap<>());
+
+    /** The parsed aliases, might be {@code null} or outdated. */
+    private transient volatile Aliases aliases;
+
+    /** The parsed feature origins, might be {@code null} or outdated. */
+    private transient volatile Origins origins;
 
     /**
      * Construct a new artifact
@@ -142,24 +150,38 @@ public class Artifact implements Comparable<Artifact>, Serializable {
     /**
      * Obtain the alias or aliases for the artifact.
      * @param includeMain Whether to include the main ID in the result.
-     * @return The aliases or an empty set if there are none.
+     * @return The set of aliases or an empty set if there are none.
      */
     public Set<ArtifactId> getAliases(boolean includeMain) {
-        Set<ArtifactId> artifactIds = new HashSet<>();
-        if (includeMain) artifactIds.add(getId());
-
-        String aliases = getMetadata().get(KEY_ALIAS);
-        if (aliases != null) {
-            for (String alias : aliases.split(",")) {
-                alias = alias.trim();
-                if (alias.indexOf(':') == alias.lastIndexOf(':')) {
-                    // No version provided, set to version zero
-                    alias += ":0.0.0";
+        return new LinkedHashSet<>(this.getUnmodifiableAliases(includeMain));
+    }
+
+    /**
+     * Obtain the alias or aliases for the artifact without copying them.
+     * The aliases are parsed once and cached until the alias metadata changes.
+     * @param includeMain Whether to include the main ID in the result.
+     * @return The unmodifiable set of aliases or an empty set if there are none.
+     * @since 2.1.0
+     */
+    public Set<ArtifactId> getUnmodifiableAliases(final boolean includeMain) {
+        final String value = getMetadata().get(KEY_ALIAS);
+        Aliases cached = this.aliases;
+        if (cached == null || !Objects.equals(value, cached.value)) {
+            final Set<ArtifactId> artifactIds = new LinkedHashSet<>();
+            if (value != null) {
+                for (String alias : value.split(",")) {
+                    alias = alias.trim();
+                    if (alias.indexOf(':') == alias.lastIndexOf(':')) {
+                        // No version provided, set to version zero
+                        alias += ":0.0.0";
+                    }
+                    artifactIds.add(ArtifactId.fromMvnId(alias));
                 }
-                artifactIds.add(ArtifactId.fromMvnId(alias));
             }
+            cached = new Aliases(value, this.id, artifactIds);
+            this.aliases = cached;
         }
-        return artifactIds;
+        return includeMain ? cached.withMain : cached.aliases;
     }
 
     /**
@@ -210,19 +232,7 @@ public class Artifact implements Comparable<Artifact>, Serializable {
      * @throws IllegalArgumentException If the stored values are not valid artifact ids
      */
     public ArtifactId[] getFeatureOrigins() {
-        String origins = this.getMetadata().get(KEY_FEATURE_ORIGINS);
-        Set<ArtifactId> originFeatures;
-        if (origins == null || origins.trim().isEmpty()) {
-            originFeatures = Collections.emptySet();
-        } else {
-            originFeatures = new LinkedHashSet<>();
-            for (String origin : origins.split(",")) {
-                if (!origin.trim().isEmpty()) {
-                    originFeatures.add(ArtifactId.parse(origin));
-                }
-            }
-        }
-        return originFeatures.toArray(new ArtifactId[0]);
+        return this.getOrigins().clone();
     }
 
     /**
@@ -235,19 +245,35 @@ public class Artifact implements Comparable<Artifact>, Serializable {
      * @since 1.7.0
      */
     public ArtifactId[] getFeatureOrigins(final ArtifactId self) {
-        String origins = this.getMetadata().get(KEY_FEATURE_ORIGINS);
-        Set<ArtifactId> originFeatures;
-        if (origins == null || origins.trim().isEmpty()) {
-            originFeatures = Collections.singleton(self);
-        } else {
-            originFeatures = new LinkedHashSet<>();
-            for (String origin : origins.split(",")) {
+        final ArtifactId[] result = this.getOrigins();
+        if (result.length == 0) {
+            return new ArtifactId[] {self};
+        }
+        return result.clone();
+    }
+
+    /**
+     * Get the parsed feature origins. The result is cached as long as the
+     * metadata is not changed.
+     * @return The shared array of feature origins, must not be modified
+     */
+    private ArtifactId[] getOrigins() {
+        final String value = this.getMetadata().get(KEY_FEATURE_ORIGINS);
+        if (value == null) {
+            return NO_ORIGINS;
+        }
+        Origins cached = this.origins;
+        if (cached == null || !value.equals(cached.value)) {
+            final Set<ArtifactId> originFeatures = new LinkedHashSet<>();
+            for (final String origin : value.split(",")) {
                 if (!origin.trim().isEmpty()) {
                     originFeatures.add(ArtifactId.parse(origin));
                 }
             }
+            cached = new Origins(value, originFeatures.toArray(NO_ORIGINS));
+            this.origins = cached;
         }
-        return originFeatures.toArray(new ArtifactId[0]);
+        return cached.ids;
     }
 
     /**
@@ -255,20 +281,33 @@ public class Artifact implements Comparable<Artifact>, Serializable {
      * @param featureOrigins the array of artifact ids or null to remove the info from this object
      */
     public void setFeatureOrigins(ArtifactId... featureOrigins) {
-        String origins;
-        if (featureOrigins != null && featureOrigins.length > 0) {
-            origins = Stream.of(featureOrigins)
-                    .filter(Objects::nonNull)
-                    .map(ArtifactId::toMvnId)
-                    .distinct()
-                    .collect(Collectors.joining(","));
-        } else {
-            origins = "";
+        final Set<ArtifactId> ids = new LinkedHashSet<>();
+        if (featureOrigins != null) {
+            for (final ArtifactId id : featureOrigins) {
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
         }
-        if (!origins.trim().isEmpty()) {
-            this.getMetadata().put(KEY_FEATURE_ORIGINS, origins);
-        } else {
+        if (ids.isEmpty()) {
             this.getMetadata().remove(KEY_FEATURE_ORIGINS);
+        } else {
+            final StringBuilder sb = new StringBuilder();
+            final Set<String> values = new HashSet<>();
+            final List<ArtifactId> distinct = new ArrayList<>(ids.size());
+            for (final ArtifactId id : ids) {
+                final String value = id.toMvnId();
+                if (values.add(value)) {
+                    if (sb.length() > 0) {
+                        sb.append(',');
+                    }
+                    sb.append(value);
+                    distinct.add(id);
+                }
+            }
+            final String value = sb.toString();
+            this.getMetadata().put(KEY_FEATURE_ORIGINS, value);
+            this.origins = new Origins(value, distinct.toArray(NO_ORIGINS));
         }
     }
 
@@ -293,6 +332,25 @@ public class Artifact implements Comparable<Artifact>, Serializable {
         return this.id.equals(((Artifact) obj).id);
     }
 
+    /**
+     * Freeze the artifact, the metadata can't be modified anymore.
+     * The mvn id, the aliases and the feature origins are calculated once.
+     */
+    void freeze() {
+        if (!(this.metadata instanceof CopyOnWriteMap)) {
+            // deserialized from an older version
+            this.metadata = new CopyOnWriteMap<>(new TreeMap<>(this.metadata));
+        }
+        ((CopyOnWriteMap<String, String>) this.metadata).freeze();
+        this.id.toMvnId();
+        try {
+            this.getAliases(false);
+            this.getOrigins();
+        } catch (final IllegalArgumentException e) {
+            // invalid metadata is reported when it is requested
+        }
+    }
+
     /**
      * Create a copy of the artifact with a different id
      *
@@ -302,7 +360,16 @@ public class Artifact implements Comparable<Artifact>, Serializable {
     public Artifact copy(final ArtifactId id) {
         final Artifact result = new Artifact(id);
 
-        result.getMetadata().putAll(this.getMetadata());
+        if (this.metadata instanceof CopyOnWriteMap) {
+            result.metadata = ((CopyOnWriteMap<String, String>) this.metadata).copy();
+        } else {
+            // deserialized from an older version
+            result.getMetadata().putAll(this.getMetadata());
+        }
+        result.origins = this.origins;
+        if (this.aliases != null && id.equals(this.id)) {
+            result.aliases = this.aliases;
+        }
 
         return result;
     }
@@ -311,4 +378,40 @@ public class Artifact implements Comparable<Artifact>, Serializable {
     public String toString() {
         return "Artifact [id=" + id.toMvnId() + "]";
     }
+
+    /**
+     * The parsed feature origins together with the metadata value they are parsed from.
+     */
+    private static final class Origins {
+
+        final String value;
+
+        final ArtifactId[] ids;
+
+        Origins(final String value, final ArtifactId[] ids) {
+            this.value = value;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * The parsed aliases together with the metadata value they are parsed from.
+     */
+    private static final class Aliases {
+
+        final String value;
+
+        final Set<ArtifactId> aliases;
+
+        final Set<ArtifactId> withMain;
+
+        Aliases(final String value, final ArtifactId main, final Set<ArtifactId> aliases) {
+            this.value = value;
+            this.aliases = aliases.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(aliases);
+            final Set<ArtifactId> all = new LinkedHashSet<>();
+            all.add(main);
+            all.addAll(aliases);
+            this.withMain = Collections.unmodifiableSet(all);
+        }
+    }
 }
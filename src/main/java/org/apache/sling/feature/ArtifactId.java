@@ -57,6 +57,19 @@ public class ArtifactId implements Comparable<ArtifactId>, Serializable {
     /** The required type. Defaults to jar. */
     private final String type;
 
+    /** The cached hash code, 0 if not calculated yet. */
+    private transient int hash;
+
+    /**
+     * The cached OSGi version, either the {@code Version} or an
+     * {@code InvalidVersion} if the version can't be converted.
+     * {@code null} if not calculated yet.
+     */
+    private transient volatile Object osgiVersion;
+
+    /** The cached mvn id, {@code null} if not calculated yet. */
+    private transient volatile String mvnId;
+
     /**
      * Create a new artifact object
      *
@@ -252,6 +265,10 @@ public class ArtifactId implements Comparable<ArtifactId>, Serializable {
      * #see {@link #fromMvnId(String)}
      */
     public String toMvnId() {
+        final String cached = this.mvnId;
+        if (cached != null) {
+            return cached;
+        }
         final StringBuilder sb = new StringBuilder();
         sb.append(this.groupId);
         sb.append(':');
@@ -266,7 +283,9 @@ public class ArtifactId implements Comparable<ArtifactId>, Serializable {
         }
         sb.append(':');
         sb.append(version);
-        return sb.toString();
+        final String result = sb.toString();
+        this.mvnId = result;
+        return result;
     }
 
     /**
@@ -329,6 +348,22 @@ public class ArtifactId implements Comparable<ArtifactId>, Serializable {
      *                                  the qualifier string is invalid.
      */
     public Version getOSGiVersion() {
+        Object v = this.osgiVersion;
+        if (v == null) {
+            try {
+                v = this.parseOSGiVersion();
+            } catch (final IllegalArgumentException iae) {
+                v = new InvalidVersion(iae.getMessage());
+            }
+            this.osgiVersion = v;
+        }
+        if (v instanceof InvalidVersion) {
+            throw new IllegalArgumentException(((InvalidVersion) v).message);
+        }
+        return (Version) v;
+    }
+
+    private Version parseOSGiVersion() {
         String parts[] = version.split("\\.");
 
         if (parts.length < 4) {
@@ -482,14 +517,28 @@ public class ArtifactId implements Comparable<ArtifactId>, Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(groupId, artifactId, version, classifier, type);
+        int h = this.hash;
+        if (h == 0) {
+            // same as Objects.hash(groupId, artifactId, version, classifier, type)
+            h = 31 + groupId.hashCode();
+            h = 31 * h + artifactId.hashCode();
+            h = 31 * h + version.hashCode();
+            h = 31 * h + (classifier == null ? 0 : classifier.hashCode());
+            h = 31 * h + type.hashCode();
+            this.hash = h;
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) return true;
         if (o == null) return false;
         if (!(o instanceof ArtifactId)) return false;
         ArtifactId artifactId = (ArtifactId) o;
+        if (this.hash != 0 && artifactId.hash != 0 && this.hash != artifactId.hash) {
+            return false;
+        }
         return Objects.equals(version, artifactId.version) && isSame(artifactId);
     }
 
@@ -552,4 +601,16 @@ public class ArtifactId implements Comparable<ArtifactId>, Serializable {
             throw new IllegalArgumentException("Invalid version " + version);
         }
     }
+
+    /**
+     * The result of converting an invalid version.
+     */
+    private static final class InvalidVersion {
+
+        final String message;
+
+        InvalidVersion(final String message) {
+            this.message = message;
+        }
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Interner for artifact ids.
+ * <p>
+ * Equal artifact ids are mapped to a canonical instance. This reduces the
+ * memory footprint if the same artifact ids are parsed many times, for example
+ * when reading and assembling many features. Equality checks of canonical
+ * instances succeed on identity.
+ * <p>
+ * The canonical instances are only weakly referenced and therefore do not
+ * prevent garbage collection. The instances are kept in several independently
+ * locked segments, so different threads can intern artifact ids concurrently.
+ * <p>
+ * This class is thread-safe.
+ * @since 2.1.0
+ */
+public final class ArtifactIdInterner {
+
+    /** The number of segments, must be a power of two. */
+    private static final int SEGMENTS = 32;
+
+    /** Canonical instances, weakly referenced. */
+    private final Map<ArtifactId, WeakReference<ArtifactId>>[] segments;
+
+    /**
+     * Create a new interner
+     */
+    @SuppressWarnings("unchecked")
+    public ArtifactIdInterner() {
+        this.segments = new Map[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            this.segments[i] = new WeakHashMap<>();
+        }
+    }
+
+    /**
+     * Return the canonical instance of an artifact id. Equal artifact ids
+     * return the same instance, as long as the canonical instance is in use.
+     *
+     * @param id The artifact id
+     * @return The canonical instance or {@code null} if {@code id} is {@code null}
+     */
+    public ArtifactId intern(final ArtifactId id) {
+        if (id == null) {
+            return null;
+        }
+        final int hash = id.hashCode();
+        final Map<ArtifactId, WeakReference<ArtifactId>> segment =
+                this.segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+        synchronized (segment) {
+            final WeakReference<ArtifactId> ref = segment.get(id);
+            final ArtifactId existing = ref == null ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+            segment.put(id, new WeakReference<>(id));
+            return id;
+        }
+    }
+}
@@ -18,16 +18,40 @@
  */
 package org.apache.sling.feature;
 
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * Groups a list of {@code Artifact}s.
+ * <p>
+ * Next to the list, the artifacts are indexed by their id and by their id
+ * neglecting the version, therefore lookups are constant time.
+ * <p>
  * This class is not thread-safe.
  */
-public class Artifacts extends ArrayList<Artifact> {
+public class Artifacts extends IndexedList<Artifact> {
 
     private static final long serialVersionUID = 240141452817960076L;
 
+    @Override
+    Index<Artifact> createIndex() {
+        return new ArtifactIndex();
+    }
+
+    @Override
+    void freeze() {
+        for (final Artifact artifact : this) {
+            artifact.freeze();
+        }
+        super.freeze();
+    }
+
+    private ArtifactIndex index() {
+        return (ArtifactIndex) this.getIndex();
+    }
+
     /**
      * Add an artifact. If the exact artifact is already contained in the
      * collection, it is not added again.
@@ -50,12 +74,7 @@ public class Artifacts extends ArrayList<Artifact> {
      * @return {@code true} if the artifact has been removed
      */
     public boolean removeExact(final ArtifactId id) {
-        for (final Artifact artifact : this) {
-            if (artifact.getId().equals(id)) {
-                return this.remove(artifact);
-            }
-        }
-        return false;
+        return this.removeFirst(this.index().exact.get(id));
     }
 
     /**
@@ -66,12 +85,7 @@ public class Artifacts extends ArrayList<Artifact> {
      * @return {@code true} if the artifact has been removed
      */
     public boolean removeSame(final ArtifactId id) {
-        for (final Artifact artifact : this) {
-            if (artifact.getId().isSame(id)) {
-                return this.remove(artifact);
-            }
-        }
-        return false;
+        return this.removeFirst(this.index().same.get(new Key(id)));
     }
 
     /**
@@ -81,12 +95,7 @@ public class Artifacts extends ArrayList<Artifact> {
      * @return The artifact or {@code null} otherwise
      */
     public Artifact getSame(final ArtifactId id) {
-        for (final Artifact artifact : this) {
-            if (artifact.getId().isSame(id)) {
-                return artifact;
-            }
-        }
-        return null;
+        return first(this.index().same.get(new Key(id)));
     }
 
     /**
@@ -96,12 +105,7 @@ public class Artifacts extends ArrayList<Artifact> {
      * @return The artifact or {@code null} otherwise
      */
     public Artifact getExact(final ArtifactId id) {
-        for (final Artifact artifact : this) {
-            if (artifact.getId().equals(id)) {
-                return artifact;
-            }
-        }
-        return null;
+        return first(this.index().exact.get(id));
     }
 
     /**
@@ -110,12 +114,7 @@ public class Artifacts extends ArrayList<Artifact> {
      * @return {@code true} if the artifact exists
      */
     public boolean containsExact(final ArtifactId id) {
-        for (final Artifact entry : this) {
-            if (entry.getId().equals(id)) {
-                return true;
-            }
-        }
-        return false;
+        return this.index().exact.containsKey(id);
     }
 
     /**
@@ -124,11 +123,61 @@ public class Artifacts extends ArrayList<Artifact> {
      * @return {@code true} if the artifact exists
      */
     public boolean containsSame(final ArtifactId id) {
-        for (final Artifact entry : this) {
-            if (entry.getId().isSame(id)) {
-                return true;
-            }
+        return this.index().same.containsKey(new Key(id));
+    }
+
+    private static Artifact first(final List<Artifact> list) {
+        return list == null ? null : list.get(0);
+    }
+
+    private static final class ArtifactIndex extends Index<Artifact> {
+
+        final Map<ArtifactId, List<Artifact>> exact = new HashMap<>();
+
+        final Map<Key, List<Artifact>> same = new HashMap<>();
+
+        @Override
+        void add(final Artifact artifact) {
+            add(this.exact, artifact.getId(), artifact);
+            add(this.same, new Key(artifact.getId()), artifact);
+        }
+
+        @Override
+        boolean remove(final Artifact artifact) {
+            return remove(this.exact, artifact.getId(), artifact)
+                    && remove(this.same, new Key(artifact.getId()), artifact);
+        }
+
+        @Override
+        boolean replace(final Artifact old, final Artifact artifact) {
+            return old.getId().equals(artifact.getId())
+                    && replace(this.exact, old.getId(), old, artifact)
+                    && replace(this.same, new Key(old.getId()), old, artifact);
+        }
+    }
+
+    /**
+     * The coordinates of an artifact id, neglecting the version.
+     */
+    private static final class Key {
+
+        private final ArtifactId id;
+
+        private final int hashCode;
+
+        Key(final ArtifactId id) {
+            this.id = id;
+            this.hashCode = Objects.hash(id.getGroupId(), id.getArtifactId(), id.getType(), id.getClassifier());
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Key && this.id.isSame(((Key) obj).id);
         }
-        return false;
     }
 }
@@ -34,38 +34,71 @@ public class Bundles extends Artifacts {
 
     private static final long serialVersionUID = 5134067638024826299L;
 
+    /**
+     * Orders the start levels, bundles without a start order (having the value 0)
+     * are ordered last.
+     */
+    private static final Comparator<Integer> START_ORDER = (o1, o2) -> {
+        if (o1.compareTo(o2) == 0) {
+            return 0;
+        }
+        if (o1 == 0) {
+            return 1;
+        }
+        if (o2 == 0) {
+            return -1;
+        }
+        return o1 - o2;
+    };
+
+    /** The bundles by start order, calculated once the bundles are frozen. */
+    private transient volatile Map<Integer, List<Artifact>> bundlesByStartOrder;
+
+    @Override
+    void freeze() {
+        super.freeze();
+        try {
+            this.bundlesByStartOrder = this.createBundlesByStartOrder(true);
+        } catch (final IllegalArgumentException | IllegalStateException e) {
+            // invalid start orders are reported when the map is requested
+        }
+    }
+
     /**
      * Get the map of all bundles sorted by start order. The map is sorted
      * and iterating over the keys is done in start order. Bundles without a start
      * order (having the value 0) are returned last.
+     * If the bundles are frozen, the map is calculated once and shared.
      * @return The map of bundles. The map is unmodifiable.
      */
     public Map<Integer, List<Artifact>> getBundlesByStartOrder() {
-        final Map<Integer, List<Artifact>> startOrderMap = new TreeMap<>(new Comparator<Integer>() {
+        if (!this.isFrozen()) {
+            return this.createBundlesByStartOrder(false);
+        }
+        Map<Integer, List<Artifact>> result = this.bundlesByStartOrder;
+        if (result == null) {
+            // deserialized or invalid start orders
+            result = this.createBundlesByStartOrder(true);
+            this.bundlesByStartOrder = result;
+        }
+        return result;
+    }
 
-            @Override
-            public int compare(final Integer o1, final Integer o2) {
-                if (o1.compareTo(o2) == 0) {
-                    return 0;
-                }
-                if (o1 == 0) {
-                    return 1;
-                }
-                if (o2 == 0) {
-                    return -1;
-                }
-                return o1 - o2;
-            }
-        });
+    /**
+     * Create the map of all bundles sorted by start order
+     * @param shared Whether the map is shared and the lists need to be unmodifiable
+     * @return The unmodifiable map
+     */
+    private Map<Integer, List<Artifact>> createBundlesByStartOrder(final boolean shared) {
+        final Map<Integer, List<Artifact>> startOrderMap = new TreeMap<>(START_ORDER);
 
         for (final Artifact bundle : this) {
-            final int startOrder = bundle.getStartOrder();
-            List<Artifact> list = startOrderMap.get(startOrder);
-            if (list == null) {
-                list = new ArrayList<>();
-                startOrderMap.put(startOrder, list);
-            }
-            list.add(bundle);
+            startOrderMap
+                    .computeIfAbsent(bundle.getStartOrder(), key -> new ArrayList<>())
+                    .add(bundle);
+        }
+        if (shared) {
+            startOrderMap.replaceAll((key, list) -> Collections.unmodifiableList(list));
         }
         return Collections.unmodifiableMap(startOrderMap);
     }
@@ -20,14 +20,15 @@ package org.apache.sling.feature;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.felix.cm.json.io.Configurations;
 import org.osgi.util.converter.Converters;
 
 /**
@@ -70,8 +71,11 @@ public class Configuration implements Comparable<Configuration>, Serializable {
     /** The pid or name for factory pids. */
     private final String pid;
 
-    /** The ordered properties. */
-    private final Dictionary<String, Object> properties = Configurations.newConfiguration();
+    /** The ordered properties, shared with copies until modified. */
+    private Dictionary<String, Object> properties = new CopyOnWriteDictionary();
+
+    /** The parsed feature origins keyed by property name, entries might be outdated. */
+    private transient volatile Map<String, Origins> origins;
 
     /**
      * Create a new configuration
@@ -190,16 +194,7 @@ public class Configuration implements Comparable<Configuration>, Serializable {
      * @throws IllegalArgumentException If the stored values are not valid artifact ids
      */
     public List<ArtifactId> getFeatureOrigins() {
-        final List<ArtifactId> list = new ArrayList<>();
-        final Object origins = this.properties.get(PROP_FEATURE_ORIGINS);
-        if (origins != null) {
-            final String[] values =
-                    Converters.standardConverter().convert(origins).to(String[].class);
-            for (final String v : values) {
-                list.add(ArtifactId.parse(v));
-            }
-        }
-        return Collections.unmodifiableList(list);
+        return this.getOrigins(PROP_FEATURE_ORIGINS);
     }
 
     /**
@@ -212,19 +207,8 @@ public class Configuration implements Comparable<Configuration>, Serializable {
      * @throws IllegalArgumentException If the stored values are not valid artifact ids
      */
     public List<ArtifactId> getFeatureOrigins(final ArtifactId self) {
-        final List<ArtifactId> list = new ArrayList<>();
-        final Object origins = this.properties.get(PROP_FEATURE_ORIGINS);
-        if (origins != null) {
-            final String[] values =
-                    Converters.standardConverter().convert(origins).to(String[].class);
-            for (final String v : values) {
-                list.add(ArtifactId.parse(v));
-            }
-        }
-        if (list.isEmpty()) {
-            list.add(self);
-        }
-        return Collections.unmodifiableList(list);
+        final List<ArtifactId> list = this.getOrigins(PROP_FEATURE_ORIGINS);
+        return list.isEmpty() ? Collections.singletonList(self) : list;
     }
 
     /**
@@ -233,14 +217,7 @@ public class Configuration implements Comparable<Configuration>, Serializable {
      * @since 1.6
      */
     public void setFeatureOrigins(final List<ArtifactId> featureOrigins) {
-        if (featureOrigins == null || featureOrigins.isEmpty()) {
-            this.properties.remove(PROP_FEATURE_ORIGINS);
-        } else {
-            final List<String> list =
-                    featureOrigins.stream().map(ArtifactId::toMvnId).collect(Collectors.toList());
-            final String[] values = Converters.standardConverter().convert(list).to(String[].class);
-            this.properties.put(PROP_FEATURE_ORIGINS, values);
-        }
+        this.setOrigins(PROP_FEATURE_ORIGINS, featureOrigins);
     }
 
     /**
@@ -252,17 +229,7 @@ public class Configuration implements Comparable<Configuration>, Serializable {
      * @throws IllegalArgumentException If the stored values are not valid artifact ids
      */
     public List<ArtifactId> getFeatureOrigins(final String propertyName) {
-        final List<ArtifactId> list = new ArrayList<>();
-        final Object origins =
-                this.properties.get(PROP_FEATURE_ORIGINS.concat("-").concat(propertyName));
-        if (origins != null) {
-            final String[] values =
-                    Converters.standardConverter().convert(origins).to(String[].class);
-            for (final String v : values) {
-                list.add(ArtifactId.parse(v));
-            }
-        }
-        return Collections.unmodifiableList(list);
+        return this.getOrigins(PROP_FEATURE_ORIGINS.concat("-").concat(propertyName));
     }
 
     /**
@@ -276,20 +243,9 @@ public class Configuration implements Comparable<Configuration>, Serializable {
      * @throws IllegalArgumentException If the stored values are not valid artifact ids
      */
     public List<ArtifactId> getFeatureOrigins(final String propertyName, final ArtifactId self) {
-        final List<ArtifactId> list = new ArrayList<>();
-        final Object origins =
-                this.properties.get(PROP_FEATURE_ORIGINS.concat("-").concat(propertyName));
-        if (origins != null) {
-            final String[] values =
-                    Converters.standardConverter().convert(origins).to(String[].class);
-            for (final String v : values) {
-                list.add(ArtifactId.parse(v));
-            }
-        }
-        if (list.isEmpty()) {
-            list.add(self);
-        }
-        return Collections.unmodifiableList(list);
+        final List<ArtifactId> list =
+                this.getOrigins(PROP_FEATURE_ORIGINS.concat("-").concat(propertyName));
+        return list.isEmpty() ? Collections.singletonList(self) : list;
     }
 
     /**
@@ -299,13 +255,61 @@ public class Configuration implements Comparable<Configuration>, Serializable {
      * @since 1.8
      */
     public void setFeatureOrigins(final String propertyName, final List<ArtifactId> featureOrigins) {
+        this.setOrigins(PROP_FEATURE_ORIGINS.concat("-").concat(propertyName), featureOrigins);
+    }
+
+    /**
+     * Get the parsed feature origins stored in a property. The result is
+     * cached as long as the property is not changed.
+     * @param key The property name
+     * @return A immutable list of feature artifact ids - list might be empty
+     */
+    private List<ArtifactId> getOrigins(final String key) {
+        final Object value = this.properties.get(key);
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        Map<String, Origins> cache = this.origins;
+        Origins cached = cache == null ? null : cache.get(key);
+        if (cached == null || !cached.isValid(value)) {
+            final String[] values =
+                    Converters.standardConverter().convert(value).to(String[].class);
+            final List<ArtifactId> list = new ArrayList<>(values.length);
+            for (final String v : values) {
+                list.add(ArtifactId.parse(v));
+            }
+            cached = new Origins(value, values, Collections.unmodifiableList(list));
+            if (value instanceof String || value instanceof String[]) {
+                if (cache == null) {
+                    cache = new ConcurrentHashMap<>();
+                    this.origins = cache;
+                }
+                cache.put(key, cached);
+            }
+        }
+        return cached.ids;
+    }
+
+    private void setOrigins(final String key, final List<ArtifactId> featureOrigins) {
         if (featureOrigins == null || featureOrigins.isEmpty()) {
-            this.properties.remove(PROP_FEATURE_ORIGINS.concat("-").concat(propertyName));
+            this.properties.remove(key);
+            if (this.origins != null) {
+                this.origins.remove(key);
+            }
         } else {
-            final List<String> list =
-                    featureOrigins.stream().map(ArtifactId::toMvnId).collect(Collectors.toList());
-            final String[] values = Converters.standardConverter().convert(list).to(String[].class);
-            this.properties.put(PROP_FEATURE_ORIGINS.concat("-").concat(propertyName), values);
+            final String[] values = new String[featureOrigins.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = featureOrigins.get(i).toMvnId();
+            }
+            this.properties.put(key, values);
+            Map<String, Origins> cache = this.origins;
+            if (cache == null) {
+                cache = new ConcurrentHashMap<>();
+                this.origins = cache;
+            }
+            cache.put(
+                    key,
+                    new Origins(values, values.clone(), Collections.unmodifiableList(new ArrayList<>(featureOrigins))));
         }
     }
 
@@ -330,6 +334,23 @@ public class Configuration implements Comparable<Configuration>, Serializable {
         return p;
     }
 
+    /**
+     * Freeze the configuration, the properties can't be modified anymore.
+     */
+    void freeze() {
+        if (!(this.properties instanceof CopyOnWriteDictionary)) {
+            // deserialized from an older version
+            final CopyOnWriteDictionary dict = new CopyOnWriteDictionary();
+            final Enumeration<String> keyEnum = this.properties.keys();
+            while (keyEnum.hasMoreElements()) {
+                final String key = keyEnum.nextElement();
+                dict.put(key, this.properties.get(key));
+            }
+            this.properties = dict;
+        }
+        ((CopyOnWriteDictionary) this.properties).freeze();
+    }
+
     /**
      * Create a copy of the configuration with a provided PID.
      *
@@ -338,10 +359,19 @@ public class Configuration implements Comparable<Configuration>, Serializable {
      */
     public Configuration copy(final String aPid) {
         final Configuration result = new Configuration(aPid);
-        final Enumeration<String> keyEnum = this.getProperties().keys();
-        while (keyEnum.hasMoreElements()) {
-            final String key = keyEnum.nextElement();
-            result.getProperties().put(key, this.getProperties().get(key));
+        if (this.properties instanceof CopyOnWriteDictionary) {
+            result.properties = ((CopyOnWriteDictionary) this.properties).copy();
+        } else {
+            // deserialized from an older version
+            final Enumeration<String> keyEnum = this.getProperties().keys();
+            while (keyEnum.hasMoreElements()) {
+                final String key = keyEnum.nextElement();
+                result.getProperties().put(key, this.getProperties().get(key));
+            }
+        }
+        if (this.origins != null) {
+            // the property values are shared, so are the parsed origins
+            result.origins = new ConcurrentHashMap<>(this.origins);
         }
         return result;
     }
@@ -350,4 +380,35 @@ public class Configuration implements Comparable<Configuration>, Serializable {
     public String toString() {
         return "Configuration [pid=" + pid + ", properties=" + properties + "]";
     }
+
+    /**
+     * The parsed feature origins together with the property value they are parsed from.
+     */
+    private static final class Origins {
+
+        final Object value;
+
+        final String[] values;
+
+        final List<ArtifactId> ids;
+
+        Origins(final Object value, final String[] values, final List<ArtifactId> ids) {
+            this.value = value;
+            this.values = values;
+            this.ids = ids;
+        }
+
+        /**
+         * Check whether the property value is still the same. An array might
+         * have been modified in place, therefore its contents are compared.
+         * @param current The current property value
+         * @return {@code true} if the parsed origins are valid for the value
+         */
+        boolean isValid(final Object current) {
+            if (current != this.value) {
+                return false;
+            }
+            return !(current instanceof String[]) || Arrays.equals((String[]) current, this.values);
+        }
+    }
 }
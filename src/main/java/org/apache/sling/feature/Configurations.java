@@ -20,29 +20,47 @@ package org.apache.sling.feature;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A container for configurations.
- *
+ * <p>
+ * Next to the list, the configurations are indexed by their pid and by their
+ * factory pid, therefore lookups are constant time.
+ * <p>
  * This class is not thread-safe.
  */
-public class Configurations extends ArrayList<Configuration> {
+public class Configurations extends IndexedList<Configuration> {
 
     private static final long serialVersionUID = -7243822886707856704L;
 
+    @Override
+    Index<Configuration> createIndex() {
+        return new ConfigurationIndex();
+    }
+
+    @Override
+    void freeze() {
+        for (final Configuration cfg : this) {
+            cfg.freeze();
+        }
+        super.freeze();
+    }
+
+    private ConfigurationIndex index() {
+        return (ConfigurationIndex) this.getIndex();
+    }
+
     /**
      * Get the configuration
      * @param pid The pid of the configuration
      * @return The configuration or {@code null}
      */
     public Configuration getConfiguration(final String pid) {
-        for (final Configuration cfg : this) {
-            if (pid.equals(cfg.getPid())) {
-                return cfg;
-            }
-        }
-        return null;
+        final List<Configuration> list = this.index().pids.get(pid);
+        return list == null ? null : list.get(0);
     }
 
     /**
@@ -52,12 +70,35 @@ public class Configurations extends ArrayList<Configuration> {
      * @since 1.5
      */
     public Collection<Configuration> getFactoryConfigurations(final String factoryPid) {
-        final List<Configuration> result = new ArrayList<>();
-        for (final Configuration cfg : this) {
-            if (factoryPid.equals(cfg.getFactoryPid())) {
-                result.add(cfg);
+        final List<Configuration> list = this.index().factoryPids.get(factoryPid);
+        return list == null ? new ArrayList<>() : new ArrayList<>(list);
+    }
+
+    private static final class ConfigurationIndex extends Index<Configuration> {
+
+        final Map<String, List<Configuration>> pids = new HashMap<>();
+
+        final Map<String, List<Configuration>> factoryPids = new HashMap<>();
+
+        @Override
+        void add(final Configuration cfg) {
+            add(this.pids, cfg.getPid(), cfg);
+            if (cfg.isFactoryConfiguration()) {
+                add(this.factoryPids, cfg.getFactoryPid(), cfg);
             }
         }
-        return result;
+
+        @Override
+        boolean remove(final Configuration cfg) {
+            return remove(this.pids, cfg.getPid(), cfg)
+                    && (!cfg.isFactoryConfiguration() || remove(this.factoryPids, cfg.getFactoryPid(), cfg));
+        }
+
+        @Override
+        boolean replace(final Configuration old, final Configuration cfg) {
+            return old.getPid().equals(cfg.getPid())
+                    && replace(this.pids, old.getPid(), old, cfg)
+                    && (!cfg.isFactoryConfiguration() || replace(this.factoryPids, cfg.getFactoryPid(), old, cfg));
+        }
     }
 }
@@ -0,0 +1,489 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.apache.sling.feature.CopyOnWriteMap.Shared;
+
+/**
+ * Configuration properties sharing their entries with their copies until
+ * they are modified.
+ * <p>
+ * The properties are stored in an ordered, case insensitive dictionary as
+ * created by the Felix configuration JSON support. A copy created with
+ * {@link #copy()} uses the same dictionary. Before the dictionary is
+ * modified through any of the sharing instances, that instance creates its
+ * own dictionary. Reads, including the enumerations and the map views, are
+ * served from the shared dictionary. Modifications through the map views are
+ * applied like the modifications of the properties.
+ * <p>
+ * This class extends {@code Hashtable} like the ordered dictionary, so it can
+ * be passed to code expecting a {@code Hashtable}.
+ * <p>
+ * Frozen properties can't be modified anymore, their copies are not frozen.
+ * <p>
+ * This class is not thread-safe, however different instances sharing the same
+ * dictionary can be used by different threads. Frozen properties can be used
+ * by different threads without synchronization.
+ */
+class CopyOnWriteDictionary extends Hashtable<String, Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The backing dictionary, shared with copies. */
+    private Shared<Hashtable<String, Object>> shared;
+
+    /** Whether the properties are frozen. */
+    private boolean frozen;
+
+    /**
+     * Create new, empty properties
+     */
+    CopyOnWriteDictionary() {
+        this.shared = new Shared<>(org.apache.felix.cm.json.io.Configurations.newConfiguration());
+    }
+
+    private CopyOnWriteDictionary(final Shared<Hashtable<String, Object>> shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Create a copy of the properties sharing the backing dictionary
+     * @return The copy
+     */
+    CopyOnWriteDictionary copy() {
+        this.shared.references.incrementAndGet();
+        return new CopyOnWriteDictionary(this.shared);
+    }
+
+    /**
+     * Freeze the properties, all further modifications fail with an
+     * {@code UnsupportedOperationException}.
+     */
+    void freeze() {
+        this.frozen = true;
+    }
+
+    /**
+     * Check that the properties can be modified
+     * @throws UnsupportedOperationException If the properties are frozen
+     */
+    private void checkNotFrozen() {
+        if (this.frozen) {
+            throw new UnsupportedOperationException("Properties are frozen");
+        }
+    }
+
+    /**
+     * Get the backing dictionary for reading
+     * @return The backing dictionary
+     */
+    private Hashtable<String, Object> read() {
+        return this.shared.value;
+    }
+
+    /**
+     * Get the backing dictionary for modifications. If the backing dictionary
+     * is shared, a copy is created first.
+     * @return The backing dictionary
+     * @throws UnsupportedOperationException If the properties are frozen
+     */
+    private Hashtable<String, Object> write() {
+        this.checkNotFrozen();
+        final Shared<Hashtable<String, Object>> current = this.shared;
+        if (current.references.get() > 1) {
+            final Hashtable<String, Object> dict = org.apache.felix.cm.json.io.Configurations.newConfiguration();
+            for (final String key : Collections.list(current.value.keys())) {
+                dict.put(key, current.value.get(key));
+            }
+            this.shared = new Shared<>(dict);
+            // release the shared dictionary only after it has been copied
+            current.references.decrementAndGet();
+        }
+        return this.shared.value;
+    }
+
+    @Override
+    public int size() {
+        return read().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return read().isEmpty();
+    }
+
+    @Override
+    public Enumeration<String> keys() {
+        return read().keys();
+    }
+
+    @Override
+    public Enumeration<Object> elements() {
+        return read().elements();
+    }
+
+    @Override
+    public boolean contains(final Object value) {
+        return read().containsValue(value);
+    }
+
+    @Override
+    public boolean containsValue(final Object value) {
+        return read().containsValue(value);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return read().containsKey(key);
+    }
+
+    @Override
+    public Object get(final Object key) {
+        return read().get(key);
+    }
+
+    @Override
+    public Object put(final String key, final Object value) {
+        return write().put(key, value);
+    }
+
+    @Override
+    public Object remove(final Object key) {
+        this.checkNotFrozen();
+        if (!read().containsKey(key)) {
+            return null;
+        }
+        return write().remove(key);
+    }
+
+    @Override
+    public void putAll(final Map<? extends String, ? extends Object> t) {
+        this.checkNotFrozen();
+        if (!t.isEmpty()) {
+            write().putAll(t);
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.checkNotFrozen();
+        if (!read().isEmpty()) {
+            write().clear();
+        }
+    }
+
+    @Override
+    public Object getOrDefault(final Object key, final Object defaultValue) {
+        final Object value = read().get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public void forEach(final BiConsumer<? super String, ? super Object> action) {
+        final Hashtable<String, Object> dict = read();
+        for (final String key : Collections.list(dict.keys())) {
+            action.accept(key, dict.get(key));
+        }
+    }
+
+    // the default methods of the hashtable operate on its own table, which is not used,
+    // they are implemented based on get, put and remove of the backing dictionary
+
+    @Override
+    public Object putIfAbsent(final String key, final Object value) {
+        this.checkNotFrozen();
+        final Object current = read().get(key);
+        if (current == null) {
+            write().put(key, value);
+        }
+        return current;
+    }
+
+    @Override
+    public boolean remove(final Object key, final Object value) {
+        this.checkNotFrozen();
+        final Object current = read().get(key);
+        if (current == null || !current.equals(value)) {
+            return false;
+        }
+        write().remove(key);
+        return true;
+    }
+
+    @Override
+    public boolean replace(final String key, final Object oldValue, final Object newValue) {
+        this.checkNotFrozen();
+        final Object current = read().get(key);
+        if (current == null || !current.equals(oldValue)) {
+            return false;
+        }
+        write().put(key, newValue);
+        return true;
+    }
+
+    @Override
+    public Object replace(final String key, final Object value) {
+        this.checkNotFrozen();
+        if (!read().containsKey(key)) {
+            return null;
+        }
+        return write().put(key, value);
+    }
+
+    @Override
+    public void replaceAll(final BiFunction<? super String, ? super Object, ? extends Object> function) {
+        this.checkNotFrozen();
+        if (!read().isEmpty()) {
+            final Hashtable<String, Object> dict = write();
+            for (final String key : Collections.list(dict.keys())) {
+                dict.put(key, function.apply(key, dict.get(key)));
+            }
+        }
+    }
+
+    @Override
+    public Object computeIfAbsent(final String key, final Function<? super String, ? extends Object> mappingFunction) {
+        this.checkNotFrozen();
+        final Object current = read().get(key);
+        if (current != null) {
+            return current;
+        }
+        final Object value = mappingFunction.apply(key);
+        if (value != null) {
+            write().put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public Object computeIfPresent(
+            final String key, final BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+        this.checkNotFrozen();
+        final Object current = read().get(key);
+        if (current == null) {
+            return null;
+        }
+        return this.update(key, remappingFunction.apply(key, current));
+    }
+
+    @Override
+    public Object compute(
+            final String key, final BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+        this.checkNotFrozen();
+        final Object current = read().get(key);
+        final Object value = remappingFunction.apply(key, current);
+        if (value == null && current == null) {
+            return null;
+        }
+        return this.update(key, value);
+    }
+
+    @Override
+    public Object merge(
+            final String key,
+            final Object value,
+            final BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+        this.checkNotFrozen();
+        Objects.requireNonNull(value);
+        final Object current = read().get(key);
+        return this.update(key, current == null ? value : remappingFunction.apply(current, value));
+    }
+
+    /**
+     * Set or remove a property
+     * @param key The key
+     * @param value The new value, {@code null} to remove the property
+     * @return The new value
+     */
+    private Object update(final String key, final Object value) {
+        if (value == null) {
+            write().remove(key);
+        } else {
+            write().put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Create a copy sharing the backing dictionary, as with {@link #copy()}.
+     * The copy is not frozen.
+     */
+    @Override
+    public Object clone() {
+        return this.copy();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+
+            @Override
+            public Iterator<String> iterator() {
+                return new ViewIterator<>(Map.Entry::getKey);
+            }
+
+            @Override
+            public int size() {
+                return CopyOnWriteDictionary.this.size();
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(final Object o) {
+                return CopyOnWriteDictionary.this.remove(o) != null;
+            }
+
+            @Override
+            public void clear() {
+                CopyOnWriteDictionary.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return new AbstractCollection<Object>() {
+
+            @Override
+            public Iterator<Object> iterator() {
+                return new ViewIterator<>(Map.Entry::getValue);
+            }
+
+            @Override
+            public int size() {
+                return CopyOnWriteDictionary.this.size();
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return containsValue(o);
+            }
+
+            @Override
+            public void clear() {
+                CopyOnWriteDictionary.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new ViewIterator<>(Function.identity());
+            }
+
+            @Override
+            public int size() {
+                return CopyOnWriteDictionary.this.size();
+            }
+
+            @Override
+            public void clear() {
+                CopyOnWriteDictionary.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return o == this || read().equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return read().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return read().toString();
+    }
+
+    /**
+     * Iterator over the keys of the backing dictionary at the time of its
+     * creation. As re-adding a key moves it to the end of the ordered
+     * dictionary, the keys are copied. Modifications are applied to the
+     * properties.
+     * @param <T> The type of the elements
+     */
+    private final class ViewIterator<T> implements Iterator<T> {
+
+        private final Iterator<String> keys = Collections.list(read().keys()).iterator();
+
+        private final Function<Map.Entry<String, Object>, T> element;
+
+        private String last;
+
+        ViewIterator(final Function<Map.Entry<String, Object>, T> element) {
+            this.element = element;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.keys.hasNext();
+        }
+
+        @Override
+        public T next() {
+            this.last = this.keys.next();
+            return this.element.apply(new AbstractMap.SimpleEntry<String, Object>(this.last, get(this.last)) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public Object setValue(final Object value) {
+                    final Object previous = put(getKey(), value);
+                    super.setValue(value);
+                    return previous;
+                }
+            });
+        }
+
+        @Override
+        public void remove() {
+            if (this.last == null) {
+                throw new IllegalStateException();
+            }
+            CopyOnWriteDictionary.this.remove(this.last);
+            this.last = null;
+        }
+    }
+}
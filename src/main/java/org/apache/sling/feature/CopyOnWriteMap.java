@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A map sharing its entries with its copies until it is modified.
+ * <p>
+ * A copy created with {@link #copy()} uses the same backing map as this map.
+ * Before the backing map is modified through any of the sharing maps, including
+ * modifications through its views and iterators, that map creates its own
+ * backing map. Reads are served from the shared backing map.
+ * <p>
+ * A sorted backing map is copied into a {@code TreeMap}, any other map into a
+ * {@code LinkedHashMap}, therefore the iteration order is kept.
+ * <p>
+ * A frozen map can't be modified anymore, its copies are not frozen.
+ * <p>
+ * This class is not thread-safe, however different maps sharing the same backing
+ * map can be used by different threads. A frozen map can be used by different
+ * threads without synchronization.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+class CopyOnWriteMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The backing map, shared with copies. */
+    private Shared<Map<K, V>> shared;
+
+    /** Whether the map is frozen. */
+    private boolean frozen;
+
+    /**
+     * Create a new map
+     * @param map The backing map, not copied
+     */
+    CopyOnWriteMap(final Map<K, V> map) {
+        this.shared = new Shared<>(map);
+    }
+
+    private CopyOnWriteMap(final Shared<Map<K, V>> shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Create a copy of this map sharing the backing map
+     * @return The copy
+     */
+    CopyOnWriteMap<K, V> copy() {
+        this.shared.references.incrementAndGet();
+        return new CopyOnWriteMap<>(this.shared);
+    }
+
+    /**
+     * Freeze the map, all further modifications fail with an
+     * {@code UnsupportedOperationException}.
+     */
+    void freeze() {
+        this.frozen = true;
+    }
+
+    /**
+     * Get the backing map for reading
+     * @return The backing map
+     */
+    private Map<K, V> read() {
+        return this.shared.value;
+    }
+
+    /**
+     * Get the backing map for modifications. If the backing map is shared,
+     * a copy is created first.
+     * @return The backing map
+     * @throws UnsupportedOperationException If the map is frozen
+     */
+    private Map<K, V> write() {
+        if (this.frozen) {
+            throw new UnsupportedOperationException("Map is frozen");
+        }
+        final Shared<Map<K, V>> current = this.shared;
+        if (current.references.get() > 1) {
+            final Map<K, V> map = current.value instanceof SortedMap
+                    ? new TreeMap<>((SortedMap<K, V>) current.value)
+                    : new LinkedHashMap<>(current.value);
+            this.shared = new Shared<>(map);
+            // release the shared map only after it has been copied
+            current.references.decrementAndGet();
+        }
+        return this.shared.value;
+    }
+
+    @Override
+    public int size() {
+        return read().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return read().isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return read().containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(final Object value) {
+        return read().containsValue(value);
+    }
+
+    @Override
+    public V get(final Object key) {
+        return read().get(key);
+    }
+
+    @Override
+    public V put(final K key, final V value) {
+        return write().put(key, value);
+    }
+
+    @Override
+    public V remove(final Object key) {
+        if (!read().containsKey(key)) {
+            return null;
+        }
+        return write().remove(key);
+    }
+
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> m) {
+        if (!m.isEmpty()) {
+            write().putAll(m);
+        }
+    }
+
+    @Override
+    public void clear() {
+        if (!read().isEmpty()) {
+            write().clear();
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        // the key set and the values of the abstract map are based on this set
+        return new AbstractSet<Map.Entry<K, V>>() {
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return CopyOnWriteMap.this.size();
+            }
+
+            @Override
+            public void clear() {
+                CopyOnWriteMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return o == this || read().equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return read().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return read().toString();
+    }
+
+    /**
+     * Iterator over the backing map at the time of its creation. Modifications
+     * are applied to the current backing map, if that is a different one, the
+     * iteration continues over the previous one.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private final Map<K, V> map = read();
+
+        private final Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+
+        private Map.Entry<K, V> last;
+
+        @Override
+        public boolean hasNext() {
+            return this.iterator.hasNext();
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            this.last = this.iterator.next();
+            return new SimpleEntry<K, V>(this.last) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public V setValue(final V value) {
+                    super.setValue(value);
+                    return put(getKey(), value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (this.last == null) {
+                throw new IllegalStateException();
+            }
+            if (write() == this.map) {
+                this.iterator.remove();
+            } else {
+                write().remove(this.last.getKey());
+            }
+            this.last = null;
+        }
+    }
+
+    /**
+     * A value together with the number of its users.
+     */
+    static final class Shared<T> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final T value;
+
+        final AtomicInteger references = new AtomicInteger(1);
+
+        Shared(final T value) {
+            this.value = value;
+        }
+    }
+}
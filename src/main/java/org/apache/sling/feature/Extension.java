@@ -20,6 +20,7 @@ package org.apache.sling.feature;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -91,7 +92,10 @@ public class Extension implements Serializable {
     /** The list of artifacts (if type artifacts) */
     private final Artifacts artifacts;
 
-    /** The text or json (if corresponding type) */
+    /**
+     * The text or json (if corresponding type). For json, the structure
+     * is the primary representation and the text is created on demand.
+     */
     private String text;
 
     /** The json structure (if corresponding type) */
@@ -100,6 +104,9 @@ public class Extension implements Serializable {
     /** Extension state. */
     private final ExtensionState state;
 
+    /** Whether the extension is frozen. */
+    private boolean frozen;
+
     /**
      * Create a new extension
      *
@@ -123,11 +130,19 @@ public class Extension implements Serializable {
         }
     }
 
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        // make sure the json text is available
+        if (this.type == ExtensionType.JSON) {
+            this.getJSON();
+        }
+        out.defaultWriteObject();
+    }
+
     private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
         // initialize json object
-        if (this.type == ExtensionType.JSON) {
-            this.setJSON(this.text);
+        if (this.type == ExtensionType.JSON && this.text != null) {
+            this.json = parse(this.text);
         }
     }
 
@@ -174,11 +189,13 @@ public class Extension implements Serializable {
      * Set the text of the extension
      * @param text The text
      * @throws IllegalStateException if the type is not {@code ExtensionType#TEXT}
+     * @throws UnsupportedOperationException If the extension is frozen
      */
     public void setText(final String text) {
         if (type != ExtensionType.TEXT) {
             throw new IllegalStateException();
         }
+        this.checkNotFrozen();
         this.text = text;
     }
 
@@ -192,6 +209,16 @@ public class Extension implements Serializable {
         if (type != ExtensionType.JSON) {
             throw new IllegalStateException();
         }
+        if (text == null && json != null) {
+            try (final StringWriter w = new StringWriter()) {
+                final JsonWriter jw = Json.createWriter(w);
+                jw.write(json);
+                w.flush();
+                this.text = w.toString();
+            } catch (IOException ioe) {
+                throw new IllegalArgumentException("Not a json structure: " + json, ioe);
+            }
+        }
         return text;
     }
 
@@ -202,15 +229,15 @@ public class Extension implements Serializable {
      * @throws IllegalStateException    if the type is not
      *                                  {@code ExtensionType#JSON}
      * @throws IllegalArgumentException If the structure is not valid
+     * @throws UnsupportedOperationException If the extension is frozen
      */
     public void setJSON(String text) {
         if (type != ExtensionType.JSON) {
             throw new IllegalStateException();
         }
+        this.checkNotFrozen();
         this.text = text;
-        try (final StringReader reader = new StringReader(text)) {
-            this.json = Json.createReader(reader).read();
-        }
+        this.json = parse(text);
     }
 
     /**
@@ -228,27 +255,24 @@ public class Extension implements Serializable {
     }
 
     /**
-     * Set the JSON structure of the extension
+     * Set the JSON structure of the extension.
+     * The JSON text is created from the structure when it is requested
+     * with {@link #getJSON()}.
      *
      * @param struct The JSON structure
      * @throws IllegalStateException    if the type is not
      *                                  {@code ExtensionType#JSON}
      * @throws IllegalArgumentException If the structure is not valid
+     * @throws UnsupportedOperationException If the extension is frozen
      * @since 1.1
      */
     public void setJSONStructure(JsonStructure struct) {
         if (type != ExtensionType.JSON) {
             throw new IllegalStateException();
         }
+        this.checkNotFrozen();
         this.json = struct;
-        try (final StringWriter w = new StringWriter()) {
-            final JsonWriter jw = Json.createWriter(w);
-            jw.write(struct);
-            w.flush();
-            this.text = w.toString();
-        } catch (IOException ioe) {
-            throw new IllegalArgumentException("Not a json structure: " + struct, ioe);
-        }
+        this.text = null;
     }
 
     /**
@@ -266,7 +290,36 @@ public class Extension implements Serializable {
     }
 
     /**
-     * Create a copy of the Extension
+     * Freeze the extension. The text and the JSON can't be changed anymore,
+     * the JSON text is created once and the artifacts are frozen.
+     */
+    void freeze() {
+        if (this.type == ExtensionType.JSON) {
+            this.getJSON();
+        } else if (this.type == ExtensionType.ARTIFACTS) {
+            this.artifacts.freeze();
+        }
+        this.frozen = true;
+    }
+
+    /**
+     * Check that the extension can be modified
+     * @throws UnsupportedOperationException If the extension is frozen
+     */
+    private void checkNotFrozen() {
+        if (this.frozen) {
+            throw new UnsupportedOperationException("Extension is frozen");
+        }
+    }
+
+    private static JsonStructure parse(final String text) {
+        try (final StringReader reader = new StringReader(text)) {
+            return Json.createReader(reader).read();
+        }
+    }
+
+    /**
+     * Create a copy of the Extension. The copy is not frozen.
      * @return A copy of the Extension
      */
     public Extension copy() {
@@ -276,7 +329,9 @@ public class Extension implements Serializable {
                 c.setText(text);
                 break;
             case JSON:
-                c.setJSON(text);
+                // json structures are immutable and can be shared
+                c.json = json;
+                c.text = text;
                 break;
             case ARTIFACTS:
                 if (artifacts != null) {
@@ -18,17 +18,23 @@
  */
 package org.apache.sling.feature;
 
-import java.util.ArrayList;
-
 /**
  * A container for extensions
  *
  * This class is not thread-safe.
  */
-public class Extensions extends ArrayList<Extension> {
+public class Extensions extends FreezableList<Extension> {
 
     private static final long serialVersionUID = -3850006820840607498L;
 
+    @Override
+    void freeze() {
+        for (final Extension ext : this) {
+            ext.freeze();
+        }
+        super.freeze();
+    }
+
     /**
      * Get an extension by name
      * @param name The name
@@ -43,7 +43,8 @@ import org.osgi.util.converter.Converters;
  * <li>Extensions
  * </ul>
  *
- * This class is not thread-safe.
+ * This class is not thread-safe. A {@link #freeze() frozen} feature can be
+ * used by different threads without synchronization.
  */
 public class Feature implements Comparable<Feature>, Serializable {
 
@@ -57,9 +58,9 @@ public class Feature implements Comparable<Feature>, Serializable {
 
     private final MapWithMetadata frameworkProperties = new MapWithMetadata();
 
-    private final List<MatchingRequirement> requirements = new ArrayList<>();
+    private List<MatchingRequirement> requirements = new ArrayList<>();
 
-    private final List<Capability> capabilities = new ArrayList<>();
+    private List<Capability> capabilities = new ArrayList<>();
 
     private final Extensions extensions = new Extensions();
 
@@ -96,7 +97,7 @@ public class Feature implements Comparable<Feature>, Serializable {
      * The optional categories
      * @since 1.9
      */
-    private final List<String> categories = new ArrayList<>();
+    private List<String> categories = new ArrayList<>();
 
     /**
      * Optional document URL
@@ -110,6 +111,9 @@ public class Feature implements Comparable<Feature>, Serializable {
      */
     private String scmInfo;
 
+    /** Whether the feature is frozen. */
+    private boolean frozen;
+
     /**
      * Construct a new feature.
      * @param id The id of the feature.
@@ -145,6 +149,7 @@ public class Feature implements Comparable<Feature>, Serializable {
      * @param value The new location.
      */
     public void setLocation(final String value) {
+        this.checkNotFrozen();
         this.location = value;
     }
 
@@ -205,6 +210,7 @@ public class Feature implements Comparable<Feature>, Serializable {
      * @param prototype The prototype feature or {@code null} if none.
      */
     public void setPrototype(Prototype prototype) {
+        this.checkNotFrozen();
         this.prototype = prototype;
     }
 
@@ -230,6 +236,7 @@ public class Feature implements Comparable<Feature>, Serializable {
      * @param title The title
      */
     public void setTitle(final String title) {
+        this.checkNotFrozen();
         this.title = title;
     }
 
@@ -246,6 +253,7 @@ public class Feature implements Comparable<Feature>, Serializable {
      * @param description The description
      */
     public void setDescription(final String description) {
+        this.checkNotFrozen();
         this.description = description;
     }
 
@@ -270,6 +278,7 @@ public class Feature implements Comparable<Feature>, Serializable {
      * @param vendor The vendor
      */
     public void setVendor(final String vendor) {
+        this.checkNotFrozen();
         this.vendor = vendor;
     }
 
@@ -286,6 +295,7 @@ public class Feature implements Comparable<Feature>, Serializable {
      * @param license The license
      */
     public void setLicense(final String license) {
+        this.checkNotFrozen();
         this.license = license;
     }
 
@@ -305,6 +315,7 @@ public class Feature implements Comparable<Feature>, Serializable {
      * @param flag The flag
      */
     public void setFinal(final boolean flag) {
+        this.checkNotFrozen();
         this.finalFlag = flag;
     }
 
@@ -324,6 +335,7 @@ public class Feature implements Comparable<Feature>, Serializable {
      * @param flag The flag
      */
     public void setComplete(final boolean flag) {
+        this.checkNotFrozen();
         this.completeFlag = flag;
     }
 
@@ -342,6 +354,7 @@ public class Feature implements Comparable<Feature>, Serializable {
      * @param flag The flag
      */
     public void setAssembled(final boolean flag) {
+        this.checkNotFrozen();
         this.assembled = flag;
     }
 
@@ -432,6 +445,7 @@ public class Feature implements Comparable<Feature>, Serializable {
      * @since 1.9
      */
     public void setDocURL(final String url) {
+        this.checkNotFrozen();
         this.docURL = url;
     }
 
@@ -452,9 +466,69 @@ public class Feature implements Comparable<Feature>, Serializable {
      * @since 1.9
      */
     public void setSCMInfo(final String info) {
+        this.checkNotFrozen();
         this.scmInfo = info;
     }
 
+    /**
+     * Freeze the feature. A frozen feature and all its contents, like the
+     * bundles, configurations, framework properties, requirements,
+     * capabilities, the prototype, extensions, variables and all metadata
+     * can't be modified anymore. Any attempt to do so fails with an
+     * {@code UnsupportedOperationException}. Derived data like the
+     * {@link Bundles#getBundlesByStartOrder() bundles by start order} or the
+     * mvn ids of the artifacts is calculated once while freezing.
+     * <p>
+     * A frozen feature can be used by different threads without synchronization
+     * and without creating copies, provided it is handed over to the other threads
+     * after it has been frozen, for example through a final or volatile field or
+     * through a concurrent collection. The contents must not be modified by other
+     * means while freezing.
+     * <p>
+     * A {@link #copy() copy} of a frozen feature is not frozen.
+     *
+     * @return This feature
+     * @since 2.1.0
+     */
+    public Feature freeze() {
+        if (!this.frozen) {
+            this.id.toMvnId();
+            this.bundles.freeze();
+            this.configurations.freeze();
+            this.frameworkProperties.freeze();
+            this.requirements = Collections.unmodifiableList(this.requirements);
+            this.capabilities = Collections.unmodifiableList(this.capabilities);
+            if (this.prototype != null) {
+                this.prototype.freeze();
+            }
+            this.extensions.freeze();
+            this.variables.freeze();
+            this.categories = Collections.unmodifiableList(this.categories);
+            this.frozen = true;
+        }
+        return this;
+    }
+
+    /**
+     * Check whether the feature is frozen
+     * @return {@code true} if the feature is frozen
+     * @see #freeze()
+     * @since 2.1.0
+     */
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+
+    /**
+     * Check that the feature can be modified
+     * @throws UnsupportedOperationException If the feature is frozen
+     */
+    private void checkNotFrozen() {
+        if (this.frozen) {
+            throw new UnsupportedOperationException("Feature is frozen: " + this.id.toMvnId());
+        }
+    }
+
     /**
      * Create a copy of the feature
      * @return A copy of the feature
@@ -466,6 +540,10 @@ public class Feature implements Comparable<Feature>, Serializable {
     /**
      * Create a copy of the feature with a different id For contained items like
      * bundles, artifacts and configurations a copy is created as well.
+     * The metadata of artifacts, the properties of configurations and the
+     * structure of JSON extensions are shared with the copy until they are
+     * modified, requirements and capabilities are immutable and shared.
+     * The copy is not frozen.
      *
      * @param id The new id
      * @return The copy of the feature with the new id
@@ -510,15 +588,23 @@ public class Feature implements Comparable<Feature>, Serializable {
 
         // requirements
         for (final MatchingRequirement r : this.getRequirements()) {
-            final MatchingRequirement c =
-                    new MatchingRequirementImpl(null, r.getNamespace(), r.getDirectives(), r.getAttributes());
-            result.getRequirements().add(c);
+            if (r.getResource() == null) {
+                result.getRequirements().add(r);
+            } else {
+                final MatchingRequirement c =
+                        new MatchingRequirementImpl(null, r.getNamespace(), r.getDirectives(), r.getAttributes());
+                result.getRequirements().add(c);
+            }
         }
 
         // capabilities
         for (final Capability r : this.getCapabilities()) {
-            final Capability c = new CapabilityImpl(null, r.getNamespace(), r.getDirectives(), r.getAttributes());
-            result.getCapabilities().add(c);
+            if (r.getResource() == null) {
+                result.getCapabilities().add(r);
+            } else {
+                final Capability c = new CapabilityImpl(null, r.getNamespace(), r.getDirectives(), r.getAttributes());
+                result.getCapabilities().add(c);
+            }
         }
 
         // prototype
@@ -530,28 +616,17 @@ public class Feature implements Comparable<Feature>, Serializable {
             c.getConfigurationRemovals().addAll(i.getConfigurationRemovals());
             c.getExtensionRemovals().addAll(i.getExtensionRemovals());
             c.getFrameworkPropertiesRemovals().addAll(i.getFrameworkPropertiesRemovals());
-            c.getArtifactExtensionRemovals().putAll(i.getArtifactExtensionRemovals());
+            for (final Map.Entry<String, List<ArtifactId>> entry :
+                    i.getArtifactExtensionRemovals().entrySet()) {
+                c.getArtifactExtensionRemovals().put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
 
             result.setPrototype(c);
         }
 
         // extensions
         for (final Extension e : this.getExtensions()) {
-            final Extension c = new Extension(e.getType(), e.getName(), e.getState());
-            switch (c.getType()) {
-                case ARTIFACTS:
-                    for (final Artifact a : e.getArtifacts()) {
-                        c.getArtifacts().add(a.copy(a.getId()));
-                    }
-                    break;
-                case JSON:
-                    c.setJSON(e.getJSON());
-                    break;
-                case TEXT:
-                    c.setText(e.getText());
-                    break;
-            }
-            result.getExtensions().add(c);
+            result.getExtensions().add(e.copy());
         }
 
         return result;
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A list which can be frozen. Once frozen, all modifications, including
+ * modifications through iterators and sub lists, fail with an
+ * {@code UnsupportedOperationException}.
+ * <p>
+ * This class is not thread-safe. A frozen list can be used by different
+ * threads without synchronization.
+ *
+ * @param <E> The type of the elements
+ */
+class FreezableList<E> extends ArrayList<E> {
+
+    private static final long serialVersionUID = -2036457617474311592L;
+
+    /** Whether the list is frozen. */
+    private boolean frozen;
+
+    /**
+     * Freeze the list. Subclasses freeze their elements and calculate
+     * derived data before calling this method.
+     */
+    void freeze() {
+        this.frozen = true;
+    }
+
+    /**
+     * Check whether the list is frozen
+     * @return {@code true} if the list is frozen
+     */
+    boolean isFrozen() {
+        return this.frozen;
+    }
+
+    /**
+     * Check that the list can be modified
+     * @throws UnsupportedOperationException If the list is frozen
+     */
+    final void checkNotFrozen() {
+        if (this.frozen) {
+            throw new UnsupportedOperationException("List is frozen");
+        }
+    }
+
+    @Override
+    public boolean add(final E element) {
+        this.checkNotFrozen();
+        return super.add(element);
+    }
+
+    @Override
+    public void add(final int pos, final E element) {
+        this.checkNotFrozen();
+        super.add(pos, element);
+    }
+
+    @Override
+    public boolean addAll(final Collection<? extends E> c) {
+        this.checkNotFrozen();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(final int pos, final Collection<? extends E> c) {
+        this.checkNotFrozen();
+        return super.addAll(pos, c);
+    }
+
+    @Override
+    public E remove(final int pos) {
+        this.checkNotFrozen();
+        return super.remove(pos);
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        this.checkNotFrozen();
+        return super.remove(o);
+    }
+
+    @Override
+    public boolean removeAll(final Collection<?> c) {
+        this.checkNotFrozen();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(final Collection<?> c) {
+        this.checkNotFrozen();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean removeIf(final Predicate<? super E> filter) {
+        this.checkNotFrozen();
+        return super.removeIf(filter);
+    }
+
+    @Override
+    protected void removeRange(final int fromIndex, final int toIndex) {
+        this.checkNotFrozen();
+        super.removeRange(fromIndex, toIndex);
+    }
+
+    @Override
+    public E set(final int pos, final E element) {
+        this.checkNotFrozen();
+        return super.set(pos, element);
+    }
+
+    @Override
+    public void replaceAll(final UnaryOperator<E> operator) {
+        this.checkNotFrozen();
+        super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(final Comparator<? super E> c) {
+        this.checkNotFrozen();
+        super.sort(c);
+    }
+
+    @Override
+    public void clear() {
+        this.checkNotFrozen();
+        super.clear();
+    }
+
+    @Override
+    public List<E> subList(final int fromIndex, final int toIndex) {
+        // the sub list of the array list writes some changes directly to the elements
+        final List<E> result = super.subList(fromIndex, toIndex);
+        return this.frozen ? Collections.unmodifiableList(result) : result;
+    }
+
+    /**
+     * Create a copy of the list. The copy is not frozen.
+     */
+    @Override
+    public Object clone() {
+        @SuppressWarnings("unchecked")
+        final FreezableList<E> result = (FreezableList<E>) super.clone();
+        result.frozen = false;
+        return result;
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A list maintaining an index of its elements.
+ * <p>
+ * Appending, removing and clearing update the index, all other modifications
+ * cause the index to be rebuilt with the next lookup. Sub lists are views
+ * delegating to this list, therefore writes through them can't bypass the
+ * index.
+ * <p>
+ * This class is not thread-safe. A frozen list can be used by different
+ * threads without synchronization.
+ *
+ * @param <E> The type of the elements
+ */
+abstract class IndexedList<E> extends FreezableList<E> {
+
+    private static final long serialVersionUID = 6395133914366447358L;
+
+    /**
+     * The index, {@code null} if it needs to be created. Volatile, so that
+     * threads looking up elements of an unmodified list see a complete index.
+     */
+    private transient volatile Index<E> index;
+
+    /**
+     * Create a new, empty index
+     * @return The index
+     */
+    abstract Index<E> createIndex();
+
+    @Override
+    public boolean add(final E element) {
+        final Index<E> current = this.getValidIndex();
+        super.add(element);
+        if (current != null) {
+            current.addElement(element);
+            current.modCount = this.modCount;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addAll(final Collection<? extends E> c) {
+        final Index<E> current = this.getValidIndex();
+        final List<E> added = new ArrayList<>(c);
+        super.addAll(added);
+        if (current != null) {
+            for (final E element : added) {
+                current.addElement(element);
+            }
+            current.modCount = this.modCount;
+        }
+        return !added.isEmpty();
+    }
+
+    @Override
+    public E remove(final int pos) {
+        final Index<E> current = this.getValidIndex();
+        final E result = super.remove(pos);
+        if (current != null && current.removeElement(result)) {
+            current.modCount = this.modCount;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        final int pos = this.indexOf(o);
+        if (pos == -1) {
+            return false;
+        }
+        this.remove(pos);
+        return true;
+    }
+
+    @Override
+    public E set(final int pos, final E element) {
+        final Index<E> current = this.getValidIndex();
+        final E result = super.set(pos, element);
+        if (current == null || result == null || element == null || !current.replace(result, element)) {
+            this.index = null;
+        }
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        final Index<E> current = this.createIndex();
+        current.modCount = this.modCount;
+        this.index = current;
+    }
+
+    @Override
+    public List<E> subList(final int fromIndex, final int toIndex) {
+        if (fromIndex < 0) {
+            throw new IndexOutOfBoundsException("fromIndex = " + fromIndex);
+        }
+        if (toIndex > this.size()) {
+            throw new IndexOutOfBoundsException("toIndex = " + toIndex);
+        }
+        if (fromIndex > toIndex) {
+            throw new IllegalArgumentException("fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
+        }
+        return new SubList(fromIndex, toIndex);
+    }
+
+    @Override
+    public Object clone() {
+        @SuppressWarnings("unchecked")
+        final IndexedList<E> result = (IndexedList<E>) super.clone();
+        result.index = null;
+        return result;
+    }
+
+    /**
+     * Freeze the list. The index is created, so lookups don't modify the list.
+     */
+    @Override
+    void freeze() {
+        this.getIndex();
+        super.freeze();
+    }
+
+    /**
+     * Get the index, create it if it does not reflect the current contents
+     * @return The index
+     */
+    Index<E> getIndex() {
+        Index<E> current = this.getValidIndex();
+        if (current == null) {
+            current = this.createIndex();
+            for (final E element : this) {
+                current.addElement(element);
+            }
+            current.modCount = this.modCount;
+            this.index = current;
+        }
+        return current;
+    }
+
+    /**
+     * Remove the first element of the list which is contained in the provided list
+     * @param candidates The elements in list order, might be {@code null}
+     * @return {@code true} if an element has been removed
+     */
+    boolean removeFirst(final List<E> candidates) {
+        if (candidates == null) {
+            return false;
+        }
+        final E element = candidates.get(0);
+        for (int i = 0; i < this.size(); i++) {
+            if (this.get(i) == element) {
+                this.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the index if it reflects the current contents
+     * @return The index or {@code null}
+     */
+    private Index<E> getValidIndex() {
+        final Index<E> current = this.index;
+        if (current != null && current.modCount == this.modCount) {
+            return current;
+        }
+        return null;
+    }
+
+    /**
+     * Index of the elements. The elements for a key are kept in list order.
+     * @param <E> The type of the elements
+     */
+    abstract static class Index<E> {
+
+        /** The modification count of the list reflected by this index */
+        int modCount;
+
+        /**
+         * Add an element which has been appended to the list
+         * @param element The element, not {@code null}
+         */
+        abstract void add(E element);
+
+        /**
+         * Remove an element which has been removed from the list
+         * @param element The element, not {@code null}
+         * @return {@code false} if the index can't be updated
+         */
+        abstract boolean remove(E element);
+
+        /**
+         * Replace an element in the index, keeping its position within the list
+         * order. The default implementation does not support this.
+         * @param old The replaced element, not {@code null}
+         * @param element The new element, not {@code null}
+         * @return {@code false} if the index can't be updated
+         */
+        boolean replace(final E old, final E element) {
+            return false;
+        }
+
+        final void addElement(final E element) {
+            if (element != null) {
+                this.add(element);
+            }
+        }
+
+        final boolean removeElement(final E element) {
+            return element == null || this.remove(element);
+        }
+
+        static <K, V> void add(final Map<K, List<V>> map, final K key, final V value) {
+            map.computeIfAbsent(key, k -> new ArrayList<>(1)).add(value);
+        }
+
+        /**
+         * Replace a value in a multi map
+         * @return {@code false} if the old value is not contained exactly once
+         */
+        static <K, V> boolean replace(final Map<K, List<V>> map, final K key, final V old, final V value) {
+            final List<V> list = map.get(key);
+            final int found = list == null ? -1 : indexOf(list, old);
+            if (found < 0) {
+                return false;
+            }
+            list.set(found, value);
+            return true;
+        }
+
+        /**
+         * Remove a value from a multi map
+         * @return {@code false} if the value is not contained exactly once
+         */
+        static <K, V> boolean remove(final Map<K, List<V>> map, final K key, final V value) {
+            final List<V> list = map.get(key);
+            final int found = list == null ? -1 : indexOf(list, value);
+            if (found < 0) {
+                return false;
+            }
+            list.remove(found);
+            if (list.isEmpty()) {
+                map.remove(key);
+            }
+            return true;
+        }
+
+        /**
+         * Find a value by identity
+         * @return The position, {@code -1} if not found or {@code -2} if found more than once
+         */
+        private static <V> int indexOf(final List<V> list, final V value) {
+            int found = -1;
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) == value) {
+                    if (found != -1) {
+                        return -2;
+                    }
+                    found = i;
+                }
+            }
+            return found;
+        }
+    }
+
+    /**
+     * View of a range of the elements. All operations are delegated to the
+     * list, keeping the index consistent.
+     */
+    private final class SubList extends AbstractList<E> implements RandomAccess {
+
+        private final int offset;
+
+        private int size;
+
+        SubList(final int fromIndex, final int toIndex) {
+            this.offset = fromIndex;
+            this.size = toIndex - fromIndex;
+            this.modCount = IndexedList.this.modCount;
+        }
+
+        @Override
+        public E get(final int pos) {
+            this.checkIndex(pos, this.size);
+            return IndexedList.this.get(this.offset + pos);
+        }
+
+        @Override
+        public E set(final int pos, final E element) {
+            this.checkIndex(pos, this.size);
+            return IndexedList.this.set(this.offset + pos, element);
+        }
+
+        @Override
+        public int size() {
+            this.checkForComodification();
+            return this.size;
+        }
+
+        @Override
+        public void add(final int pos, final E element) {
+            this.checkIndex(pos, this.size + 1);
+            IndexedList.this.add(this.offset + pos, element);
+            this.modCount = IndexedList.this.modCount;
+            this.size++;
+        }
+
+        @Override
+        public E remove(final int pos) {
+            this.checkIndex(pos, this.size);
+            final E result = IndexedList.this.remove(this.offset + pos);
+            this.modCount = IndexedList.this.modCount;
+            this.size--;
+            return result;
+        }
+
+        @Override
+        protected void removeRange(final int fromIndex, final int toIndex) {
+            this.checkForComodification();
+            IndexedList.this.removeRange(this.offset + fromIndex, this.offset + toIndex);
+            this.modCount = IndexedList.this.modCount;
+            this.size -= toIndex - fromIndex;
+        }
+
+        private void checkIndex(final int pos, final int limit) {
+            if (pos < 0 || pos >= limit) {
+                throw new IndexOutOfBoundsException("Index: " + pos + ", Size: " + this.size);
+            }
+            this.checkForComodification();
+        }
+
+        private void checkForComodification() {
+            if (IndexedList.this.modCount != this.modCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
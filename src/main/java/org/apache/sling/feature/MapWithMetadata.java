@@ -20,6 +20,7 @@ package org.apache.sling.feature;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -27,18 +28,42 @@ import java.util.Set;
 
 /**
  * Helper class to maintain metadata for a map.
- * This class is not thread-safe.
+ * This class is not thread-safe. A frozen map can be used by different
+ * threads without synchronization.
  * @since 1.7.0
  */
 class MapWithMetadata implements Map<String, String>, Serializable {
 
     private static final long serialVersionUID = 2L;
 
-    private final Map<String, String> values = new LinkedHashMap<>();
+    private Map<String, String> values = new LinkedHashMap<>();
 
-    private final Map<String, Map<String, Object>> metadata = new HashMap<>();
+    private Map<String, Map<String, Object>> metadata = new HashMap<>();
+
+    /** Whether the map is frozen. */
+    private boolean frozen;
+
+    /**
+     * Freeze the map. The values and the metadata can't be modified anymore,
+     * the metadata is created for all keys, so reading it does not modify
+     * the map.
+     */
+    void freeze() {
+        if (!this.frozen) {
+            final Map<String, Map<String, Object>> frozenMetadata = new HashMap<>();
+            for (final String key : this.values.keySet()) {
+                frozenMetadata.put(key, Collections.unmodifiableMap(this.getMetadata(key)));
+            }
+            this.metadata = Collections.unmodifiableMap(frozenMetadata);
+            this.values = Collections.unmodifiableMap(this.values);
+            this.frozen = true;
+        }
+    }
 
     public Map<String, Object> getMetadata(final String key) {
+        if (this.frozen) {
+            return metadata.get(key);
+        }
         if (values.containsKey(key)) {
             return metadata.computeIfAbsent(key, id -> new LinkedHashMap<>());
         }
@@ -20,6 +20,7 @@ package org.apache.sling.feature;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,7 +38,8 @@ import org.osgi.resource.Capability;
  * <li>Requirements
  * </ul>
  *
- * This class is not thread-safe.
+ * This class is not thread-safe. A prototype of a frozen feature can be used
+ * by different threads without synchronization.
  */
 public class Prototype implements Comparable<Prototype>, Serializable {
 
@@ -45,19 +47,19 @@ public class Prototype implements Comparable<Prototype>, Serializable {
 
     private final ArtifactId id;
 
-    private final List<String> configurationRemovals = new ArrayList<>();
+    private List<String> configurationRemovals = new ArrayList<>();
 
-    private final List<ArtifactId> bundleRemovals = new ArrayList<>();
+    private List<ArtifactId> bundleRemovals = new ArrayList<>();
 
-    private final List<String> frameworkPropertiesRemovals = new ArrayList<>();
+    private List<String> frameworkPropertiesRemovals = new ArrayList<>();
 
-    private final List<String> extensionRemovals = new ArrayList<>();
+    private List<String> extensionRemovals = new ArrayList<>();
 
-    private final Map<String, List<ArtifactId>> artifactExtensionRemovals = new HashMap<>();
+    private Map<String, List<ArtifactId>> artifactExtensionRemovals = new HashMap<>();
 
-    private final List<MatchingRequirement> requirementRemovals = new ArrayList<>();
+    private List<MatchingRequirement> requirementRemovals = new ArrayList<>();
 
-    private final List<Capability> capabilityRemovals = new ArrayList<>();
+    private List<Capability> capabilityRemovals = new ArrayList<>();
 
     /**
      * Construct a new Include.
@@ -146,6 +148,23 @@ public class Prototype implements Comparable<Prototype>, Serializable {
         return capabilityRemovals;
     }
 
+    /**
+     * Freeze the prototype, the removals can't be modified anymore.
+     */
+    void freeze() {
+        this.configurationRemovals = Collections.unmodifiableList(this.configurationRemovals);
+        this.bundleRemovals = Collections.unmodifiableList(this.bundleRemovals);
+        this.frameworkPropertiesRemovals = Collections.unmodifiableList(this.frameworkPropertiesRemovals);
+        this.extensionRemovals = Collections.unmodifiableList(this.extensionRemovals);
+        final Map<String, List<ArtifactId>> artifactRemovals = new HashMap<>();
+        for (final Map.Entry<String, List<ArtifactId>> entry : this.artifactExtensionRemovals.entrySet()) {
+            artifactRemovals.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        this.artifactExtensionRemovals = Collections.unmodifiableMap(artifactRemovals);
+        this.requirementRemovals = Collections.unmodifiableList(this.requirementRemovals);
+        this.capabilityRemovals = Collections.unmodifiableList(this.capabilityRemovals);
+    }
+
     @Override
     public int compareTo(final Prototype o) {
         return this.id.compareTo(o.id);
@@ -0,0 +1,357 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.sling.feature.Artifact;
+import org.apache.sling.feature.ArtifactId;
+
+/**
+ * Index over the target artifacts of a merge.
+ * <p>
+ * While merging, artifacts are looked up by their coordinates (neglecting the
+ * version) and by their aliases, they are removed and new artifacts are
+ * inserted at the position of the first removed one. This index keeps the
+ * artifacts in a linked list and maintains hash indexes for the coordinates,
+ * the alias coordinates and the exact ids of the artifacts. Each entry carries
+ * an order label, so artifacts found through an index can be returned in list
+ * order.
+ * <p>
+ * The insert position follows the semantics of the list based merge: it is
+ * reset to the end of the list with {@link #resetInsertPosition()}, moves to
+ * the position of the first removed artifact with {@link #removeSame(ArtifactId)}
+ * and advances with each {@link #add(Artifact)}.
+ * <p>
+ * This class is not thread-safe.
+ */
+class ArtifactMergeIndex {
+
+    /** Gap between order labels when the labels are (re)assigned. */
+    private static final long GAP = 1L << 16;
+
+    private static final Comparator<Node> ORDER = Comparator.comparingLong(n -> n.order);
+
+    /** Entries keyed by coordinates, neglecting the version. */
+    private final Map<Key, List<Node>> coordinates = new HashMap<>();
+
+    /** Entries keyed by the coordinates of their aliases, neglecting the version. */
+    private final Map<Key, List<Node>> aliases = new HashMap<>();
+
+    /** Entries keyed by the exact artifact id. */
+    private final Map<ArtifactId, List<Node>> exact = new HashMap<>();
+
+    private Node head;
+
+    private Node tail;
+
+    private int size;
+
+    /** The artifacts are inserted before this node, {@code null} means at the end. */
+    private Node insertBefore;
+
+    /** The first removed node since the insert position has been reset. */
+    private Node firstRemoved;
+
+    /**
+     * Create a new index
+     * @param artifacts The artifacts in list order
+     */
+    ArtifactMergeIndex(final List<Artifact> artifacts) {
+        for (final Artifact a : artifacts) {
+            link(new Node(a), null);
+        }
+    }
+
+    /**
+     * Get all artifacts with the same coordinates as the provided id,
+     * neglecting the version.
+     * @param id The artifact id
+     * @return The artifacts in list order, might be empty
+     */
+    List<Artifact> getSame(final ArtifactId id) {
+        return toArtifacts(this.coordinates.get(new Key(id)));
+    }
+
+    /**
+     * Get all artifacts having an alias with the same coordinates as the
+     * provided id, neglecting the version.
+     * @param id The artifact id
+     * @return The artifacts in list order, might be empty
+     */
+    List<Artifact> getAliased(final ArtifactId id) {
+        return toArtifacts(this.aliases.get(new Key(id)));
+    }
+
+    /**
+     * Checks whether the exact artifact is available
+     * @param id The artifact id
+     * @return {@code true} if the artifact exists
+     */
+    boolean containsExact(final ArtifactId id) {
+        return this.exact.containsKey(id);
+    }
+
+    /**
+     * Reset the insert position to the end of the list.
+     */
+    void resetInsertPosition() {
+        this.insertBefore = null;
+        this.firstRemoved = null;
+    }
+
+    /**
+     * Remove all artifacts with the same coordinates as the provided id,
+     * neglecting the version. If an artifact is removed in front of the
+     * current insert position, the insert position is moved to the position
+     * of that artifact.
+     * @param id The artifact id
+     */
+    void removeSame(final ArtifactId id) {
+        final List<Node> nodes = this.coordinates.get(new Key(id));
+        if (nodes == null) {
+            return;
+        }
+        for (final Node n : new ArrayList<>(nodes)) {
+            unlink(n);
+            if (this.firstRemoved == null || n.order < this.firstRemoved.order) {
+                this.firstRemoved = n;
+            }
+        }
+    }
+
+    /**
+     * Add an artifact at the insert position. If the insert position is the
+     * end of the list, the artifact is only added if the exact artifact is not
+     * already contained, as with {@link org.apache.sling.feature.Artifacts#add(Artifact)}.
+     * Otherwise the artifact is inserted and the insert position advances behind it.
+     * @param artifact The artifact
+     */
+    void add(final Artifact artifact) {
+        if (this.firstRemoved != null) {
+            // removed nodes keep their successor, follow them to the first remaining one
+            Node n = this.firstRemoved.next;
+            while (n != null && n.removed) {
+                n = n.next;
+            }
+            this.insertBefore = n;
+            this.firstRemoved = null;
+        }
+        if (this.insertBefore == null) {
+            if (!this.containsExact(artifact.getId())) {
+                link(new Node(artifact), null);
+            }
+        } else {
+            link(new Node(artifact), this.insertBefore);
+        }
+    }
+
+    /**
+     * Get the number of artifacts
+     * @return The number of artifacts
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Get all artifacts
+     * @return The artifacts in list order
+     */
+    List<Artifact> toList() {
+        final List<Artifact> result = new ArrayList<>(this.size);
+        for (Node n = this.head; n != null; n = n.next) {
+            result.add(n.artifact);
+        }
+        return result;
+    }
+
+    private List<Artifact> toArtifacts(final List<Node> nodes) {
+        if (nodes == null) {
+            return Collections.emptyList();
+        }
+        final List<Node> sorted = new ArrayList<>(nodes);
+        sorted.sort(ORDER);
+        final List<Artifact> result = new ArrayList<>(sorted.size());
+        for (final Node n : sorted) {
+            result.add(n.artifact);
+        }
+        return result;
+    }
+
+    /**
+     * Link a node into the list and the indexes
+     * @param node The new node
+     * @param before The node to insert before or {@code null} to append
+     */
+    private void link(final Node node, final Node before) {
+        if (before == null) {
+            node.order = this.tail == null ? 0 : this.tail.order + GAP;
+            node.prev = this.tail;
+            if (this.tail == null) {
+                this.head = node;
+            } else {
+                this.tail.next = node;
+            }
+            this.tail = node;
+        } else {
+            if (before.prev != null && before.order - before.prev.order < 2) {
+                relabel();
+            }
+            final long low = before.prev == null ? before.order - GAP : before.prev.order;
+            node.order = low + (before.order - low) / 2;
+            node.prev = before.prev;
+            node.next = before;
+            if (before.prev == null) {
+                this.head = node;
+            } else {
+                before.prev.next = node;
+            }
+            before.prev = node;
+        }
+        this.size++;
+
+        final ArtifactId id = node.artifact.getId();
+        this.coordinates.computeIfAbsent(new Key(id), k -> new ArrayList<>()).add(node);
+        this.exact.computeIfAbsent(id, k -> new ArrayList<>()).add(node);
+        for (final Key key : node.aliasKeys) {
+            this.aliases.computeIfAbsent(key, k -> new ArrayList<>()).add(node);
+        }
+    }
+
+    /**
+     * Unlink a node from the list and the indexes. The node keeps
+     * its successor.
+     * @param node The node
+     */
+    private void unlink(final Node node) {
+        if (node.prev == null) {
+            this.head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            this.tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.removed = true;
+        this.size--;
+
+        final ArtifactId id = node.artifact.getId();
+        removeFromIndex(this.coordinates, new Key(id), node);
+        removeFromIndex(this.exact, id, node);
+        for (final Key key : node.aliasKeys) {
+            removeFromIndex(this.aliases, key, node);
+        }
+    }
+
+    private static <K> void removeFromIndex(final Map<K, List<Node>> index, final K key, final Node node) {
+        final List<Node> nodes = index.get(key);
+        if (nodes != null) {
+            // nodes are compared by identity
+            nodes.remove(node);
+            if (nodes.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private void relabel() {
+        long order = 0;
+        for (Node n = this.head; n != null; n = n.next) {
+            n.order = order;
+            order += GAP;
+        }
+    }
+
+    private static final class Node {
+
+        final Artifact artifact;
+
+        final Set<Key> aliasKeys = new HashSet<>();
+
+        long order;
+
+        Node prev;
+
+        Node next;
+
+        boolean removed;
+
+        Node(final Artifact artifact) {
+            this.artifact = artifact;
+            for (final ArtifactId alias : artifact.getUnmodifiableAliases(false)) {
+                this.aliasKeys.add(new Key(alias));
+            }
+        }
+    }
+
+    /**
+     * The coordinates of an artifact id, neglecting the version.
+     */
+    private static final class Key {
+
+        private final String groupId;
+
+        private final String artifactId;
+
+        private final String type;
+
+        private final String classifier;
+
+        private final int hashCode;
+
+        Key(final ArtifactId id) {
+            this.groupId = id.getGroupId();
+            this.artifactId = id.getArtifactId();
+            this.type = id.getType();
+            this.classifier = id.getClassifier();
+            this.hashCode = Objects.hash(groupId, artifactId, type, classifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return this.groupId.equals(other.groupId)
+                    && this.artifactId.equals(other.artifactId)
+                    && this.type.equals(other.type)
+                    && Objects.equals(this.classifier, other.classifier);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.sling.feature.ArtifactId;
+
+/**
+ * Matcher for artifact override rules.
+ * <p>
+ * An override rule matches an artifact id if each of the group id, artifact id,
+ * type and classifier of the rule is either {@link BuilderContext#COORDINATE_MATCH_ALL}
+ * or equal to the corresponding coordinate of the id. The rules are grouped by
+ * the coordinates using the wildcard, each group maps the remaining coordinates
+ * to the first rule with these coordinates. A lookup therefore needs one hash
+ * lookup per group instead of comparing all rules. If several rules match, the
+ * first one in the order of the rules is selected.
+ * <p>
+ * Instances are immutable and can be used by different threads.
+ */
+final class ArtifactOverrideMatcher {
+
+    private static final int GROUP_ID = 1;
+
+    private static final int ARTIFACT_ID = 2;
+
+    private static final int TYPE = 4;
+
+    private static final int CLASSIFIER = 8;
+
+    /** Matcher without any rules */
+    static final ArtifactOverrideMatcher EMPTY = new ArtifactOverrideMatcher(Collections.emptyList());
+
+    /** The override rules in order */
+    private final List<ArtifactId> overrides;
+
+    /** The wildcard masks used by the rules, in ascending order */
+    private final int[] masks;
+
+    /**
+     * The rule groups indexed by the wildcard mask. Each group maps the coordinates
+     * which are not wildcards to the position of the first rule.
+     */
+    private final List<Map<Key, Integer>> groups;
+
+    /**
+     * Create a new matcher
+     * @param overrides The override rules in order, the list is copied
+     */
+    ArtifactOverrideMatcher(final List<ArtifactId> overrides) {
+        this.overrides = new ArrayList<>(overrides);
+        this.groups = new ArrayList<>(CLASSIFIER * 2);
+        for (int i = 0; i < CLASSIFIER * 2; i++) {
+            this.groups.add(null);
+        }
+        for (int i = 0; i < this.overrides.size(); i++) {
+            final ArtifactId override = this.overrides.get(i);
+            final int mask = wildcard(override.getGroupId(), GROUP_ID)
+                    | wildcard(override.getArtifactId(), ARTIFACT_ID)
+                    | wildcard(override.getType(), TYPE)
+                    | wildcard(override.getClassifier(), CLASSIFIER);
+            Map<Key, Integer> group = this.groups.get(mask);
+            if (group == null) {
+                group = new HashMap<>();
+                this.groups.set(mask, group);
+            }
+            group.putIfAbsent(new Key(override, mask), i);
+        }
+        final List<Integer> usedMasks = new ArrayList<>();
+        for (int mask = 0; mask < this.groups.size(); mask++) {
+            if (this.groups.get(mask) != null) {
+                usedMasks.add(mask);
+            }
+        }
+        this.masks = usedMasks.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int wildcard(final String coordinate, final int flag) {
+        return BuilderContext.COORDINATE_MATCH_ALL.equals(coordinate) ? flag : 0;
+    }
+
+    /**
+     * Check whether there are no rules
+     * @return {@code true} if there are no rules
+     */
+    boolean isEmpty() {
+        return this.overrides.isEmpty();
+    }
+
+    /**
+     * Get the first rule matching the artifact id. The version is neglected.
+     * @param id The artifact id
+     * @return The rule or {@code null} if no rule matches
+     */
+    ArtifactId getFirstMatch(final ArtifactId id) {
+        int first = -1;
+        for (final int mask : this.masks) {
+            final Integer pos = this.groups.get(mask).get(new Key(id, mask));
+            if (pos != null && (first == -1 || pos < first)) {
+                first = pos;
+            }
+        }
+        return first == -1 ? null : this.overrides.get(first);
+    }
+
+    /**
+     * The coordinates of an artifact id which are not covered by a wildcard.
+     * Coordinates covered by a wildcard are {@code null}.
+     */
+    private static final class Key {
+
+        private final String groupId;
+
+        private final String artifactId;
+
+        private final String type;
+
+        private final String classifier;
+
+        private final int hashCode;
+
+        Key(final ArtifactId id, final int mask) {
+            this.groupId = (mask & GROUP_ID) == 0 ? id.getGroupId() : null;
+            this.artifactId = (mask & ARTIFACT_ID) == 0 ? id.getArtifactId() : null;
+            this.type = (mask & TYPE) == 0 ? id.getType() : null;
+            this.classifier = (mask & CLASSIFIER) == 0 ? id.getClassifier() : null;
+            this.hashCode = Objects.hash(groupId, artifactId, type, classifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return Objects.equals(this.groupId, other.groupId)
+                    && Objects.equals(this.artifactId, other.artifactId)
+                    && Objects.equals(this.type, other.type)
+                    && Objects.equals(this.classifier, other.classifier);
+        }
+    }
+}
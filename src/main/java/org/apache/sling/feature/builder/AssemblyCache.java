@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.builder;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Feature;
+
+/**
+ * A cache for assembled prototype features.
+ * <p>
+ * If a cache is set with {@link BuilderContext#setAssemblyCache(AssemblyCache)},
+ * the {@link FeatureBuilder} assembles a prototype feature only once and reuses
+ * the result for all features using the same prototype. Assembled features are
+ * cached per feature id and per overrides and handlers in effect. Each use of a
+ * cached feature gets its own copy.
+ * <p>
+ * The cache assumes that the feature provider of the builder context always
+ * provides the same feature for an id. The same cache can be set on several
+ * builder contexts.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @since 2.1.0
+ */
+public class AssemblyCache {
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Get the number of lookups which found an assembled feature
+     * @return The number of cache hits
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Get the number of lookups which did not find an assembled feature
+     * @return The number of cache misses
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Get the number of cached features
+     * @return The number of cached features
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Remove all cached features. The counters are not reset.
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Get a copy of an assembled feature
+     * @param id The id of the feature
+     * @param context The builder context
+     * @param prototypes The ids of the prototypes used to assemble the feature
+     *                   are added to this collection.
+     * @return A copy of the assembled feature or {@code null}
+     */
+    Feature get(final ArtifactId id, final BuilderContext context, final Collection<ArtifactId> prototypes) {
+        final Entry entry = this.entries.get(new Key(id, context));
+        if (entry == null) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+        this.hits.incrementAndGet();
+        prototypes.addAll(entry.prototypes);
+        return entry.feature.copy();
+    }
+
+    /**
+     * Cache a copy of an assembled feature
+     * @param id The id of the feature
+     * @param context The builder context
+     * @param feature The assembled feature
+     * @param prototypes The ids of the prototypes used to assemble the feature,
+     *                   including the id of the feature
+     */
+    void put(
+            final ArtifactId id,
+            final BuilderContext context,
+            final Feature feature,
+            final Collection<ArtifactId> prototypes) {
+        this.entries.put(new Key(id, context), new Entry(feature.copy(), new ArrayList<>(prototypes)));
+    }
+
+    private static final class Entry {
+
+        final Feature feature;
+
+        final List<ArtifactId> prototypes;
+
+        Entry(final Feature feature, final List<ArtifactId> prototypes) {
+            this.feature = feature;
+            this.prototypes = prototypes;
+        }
+    }
+
+    /**
+     * The feature id together with a snapshot of the overrides and handlers of a context.
+     * Handlers and the artifact provider are compared by their equals method.
+     */
+    private static final class Key {
+
+        private final List<Object> values;
+
+        private final int hashCode;
+
+        Key(final ArtifactId id, final BuilderContext context) {
+            final Map<String, Map<String, String>> handlerConfigurations = new HashMap<>();
+            for (final Map.Entry<String, Map<String, String>> entry :
+                    context.getHandlerConfigurations().entrySet()) {
+                handlerConfigurations.put(
+                        entry.getKey(), entry.getValue() == null ? null : new HashMap<>(entry.getValue()));
+            }
+            this.values = Arrays.asList(
+                    id,
+                    new HashMap<>(context.getVariablesOverrides()),
+                    new HashMap<>(context.getFrameworkPropertiesOverrides()),
+                    new ArrayList<>(context.getArtifactOverrides()),
+                    toEntries(context.getConfigOverrides()),
+                    handlerConfigurations,
+                    new ArrayList<>(context.getMergeExtensions()),
+                    new ArrayList<>(context.getPostProcessExtensions()),
+                    context.getArtifactProvider());
+            this.hashCode = this.values.hashCode();
+        }
+
+        /** The order of the config overrides is significant */
+        private static List<Map.Entry<String, String>> toEntries(final Map<String, String> map) {
+            final List<Map.Entry<String, String>> result = new ArrayList<>(map.size());
+            for (final Map.Entry<String, String> entry : map.entrySet()) {
+                result.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+            }
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Key && this.values.equals(((Key) obj).values);
+        }
+    }
+}
@@ -24,8 +24,11 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.ArtifactIdInterner;
+import org.apache.sling.feature.Feature;
 
 /**
  * Builder context holds services and configuration used by {@link FeatureBuilder}
@@ -111,6 +114,21 @@ public class BuilderContext {
     private final Map<String, String> frameworkProperties = new HashMap<>();
     private final Map<String, String> configOverrides = new LinkedHashMap<>();
 
+    /** The compiled artifact overrides, {@code null} if they need to be compiled. */
+    private volatile ArtifactOverrideMatcher artifactOverrideMatcher;
+
+    /** The compiled configuration overrides, {@code null} if they need to be compiled. */
+    private volatile ConfigurationOverrideMatcher configOverrideMatcher;
+
+    /** The optional cache for assembled prototypes. */
+    private AssemblyCache assemblyCache;
+
+    /** The optional executor for assembling features in parallel. */
+    private Executor executor;
+
+    /** The optional interner for artifact ids. */
+    private ArtifactIdInterner artifactIdInterner;
+
     /**
      * Create a new context.
      * The feature provider is for example used to get a prototype feature.
@@ -138,6 +156,52 @@ public class BuilderContext {
         return this;
     }
 
+    /**
+     * Set the cache for assembled prototype features. By default no cache is used
+     * and a prototype feature is assembled each time it is used.
+     *
+     * @param cache The cache or {@code null} to disable caching
+     * @return The builder context
+     * @since 2.1.0
+     */
+    public BuilderContext setAssemblyCache(final AssemblyCache cache) {
+        this.assemblyCache = cache;
+        return this;
+    }
+
+    /**
+     * Set the executor for assembling features in parallel. If an executor is set,
+     * {@link FeatureBuilder#deduplicate(BuilderContext, Feature...)} and therefore
+     * {@link FeatureBuilder#assemble(ArtifactId, BuilderContext, Feature...)}
+     * assemble the provided features concurrently using the executor. The
+     * assembled features are still merged in the order they are provided.
+     * In this case, the feature provider, the artifact provider and the handlers
+     * must be thread-safe. By default features are assembled one after the other.
+     *
+     * @param executor The executor or {@code null} to assemble sequentially
+     * @return The builder context
+     * @since 2.1.0
+     */
+    public BuilderContext setExecutor(final Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Set the interner for artifact ids. If an interner is set, the feature
+     * origins recorded in the assembled features and the ids of the resolved
+     * features are mapped to their canonical instances. By default artifact
+     * ids are not interned.
+     *
+     * @param interner The interner or {@code null} to disable interning
+     * @return The builder context
+     * @since 2.1.0
+     */
+    public BuilderContext setArtifactIdInterner(final ArtifactIdInterner interner) {
+        this.artifactIdInterner = interner;
+        return this;
+    }
+
     /**
      * Add overrides for the variables.
      * Variables can be overridden if any feature in the aggregation/assembly process
@@ -177,6 +241,7 @@ public class BuilderContext {
      */
     public BuilderContext addArtifactsOverride(final ArtifactId override) {
         this.artifactsOverrides.add(override);
+        this.artifactOverrideMatcher = null;
         return this;
     }
 
@@ -188,6 +253,7 @@ public class BuilderContext {
      */
     public BuilderContext addConfigsOverrides(final Map<String, String> overrides) {
         this.configOverrides.putAll(overrides);
+        this.configOverrideMatcher = null;
         return this;
     }
 
@@ -247,10 +313,50 @@ public class BuilderContext {
         return this.artifactsOverrides;
     }
 
+    /**
+     * Get the artifact overrides compiled into a matcher. The matcher is created
+     * once and reused until overrides are added.
+     * @return The matcher
+     */
+    ArtifactOverrideMatcher getArtifactOverrideMatcher() {
+        ArtifactOverrideMatcher matcher = this.artifactOverrideMatcher;
+        if (matcher == null) {
+            matcher = new ArtifactOverrideMatcher(this.artifactsOverrides);
+            this.artifactOverrideMatcher = matcher;
+        }
+        return matcher;
+    }
+
+    AssemblyCache getAssemblyCache() {
+        return this.assemblyCache;
+    }
+
+    Executor getExecutor() {
+        return this.executor;
+    }
+
+    ArtifactIdInterner getArtifactIdInterner() {
+        return this.artifactIdInterner;
+    }
+
     Map<String, String> getConfigOverrides() {
         return this.configOverrides;
     }
 
+    /**
+     * Get the configuration overrides compiled into a matcher. The matcher is
+     * created once and reused until overrides are added.
+     * @return The matcher
+     */
+    ConfigurationOverrideMatcher getConfigOverrideMatcher() {
+        ConfigurationOverrideMatcher matcher = this.configOverrideMatcher;
+        if (matcher == null) {
+            matcher = new ConfigurationOverrideMatcher(this.configOverrides);
+            this.configOverrideMatcher = matcher;
+        }
+        return matcher;
+    }
+
     Map<String, String> getVariablesOverrides() {
         return this.variables;
     }
@@ -291,6 +397,9 @@ public class BuilderContext {
     BuilderContext clone(final FeatureProvider featureProvider) {
         final BuilderContext ctx = new BuilderContext(featureProvider);
         ctx.setArtifactProvider(this.artifactProvider);
+        ctx.setAssemblyCache(this.assemblyCache);
+        ctx.setExecutor(this.executor);
+        ctx.setArtifactIdInterner(this.artifactIdInterner);
         ctx.artifactsOverrides.addAll(this.artifactsOverrides);
         ctx.variables.putAll(this.variables);
         ctx.frameworkProperties.putAll(this.frameworkProperties);
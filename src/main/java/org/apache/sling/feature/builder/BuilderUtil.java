@@ -18,8 +18,6 @@
  */
 package org.apache.sling.feature.builder;
 
-import java.io.StringReader;
-import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -29,7 +27,6 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -42,7 +39,6 @@ import jakarta.json.JsonObjectBuilder;
 import jakarta.json.JsonStructure;
 import jakarta.json.JsonValue;
 import jakarta.json.JsonValue.ValueType;
-import jakarta.json.JsonWriter;
 import org.apache.sling.feature.Artifact;
 import org.apache.sling.feature.ArtifactId;
 import org.apache.sling.feature.Artifacts;
@@ -132,21 +128,44 @@ class BuilderUtil {
             final Feature sourceFeature,
             final List<ArtifactId> artifactOverrides,
             final String originKey) {
+        mergeArtifacts(target, source, sourceFeature, new ArtifactOverrideMatcher(artifactOverrides), originKey);
+    }
+
+    /**
+     * Merge bundles from source into target
+     *
+     * @param target            The target bundles
+     * @param source            The source bundles
+     * @param sourceFeature     Optional, if set origin will be recorded
+     * @param artifactOverrides The compiled artifact override instructions
+     * @param originKey         An optional key used to track origins of merged
+     *                          bundles
+     * @throws IllegalStateException If bundles can't be merged, for example if no
+     *                               override is specified for a clash.
+     */
+    static void mergeArtifacts(
+            final Artifacts target,
+            final Artifacts source,
+            final Feature sourceFeature,
+            final ArtifactOverrideMatcher artifactOverrides,
+            final String originKey) {
+
+        // index the target for lookups by coordinates and aliases as well as removals and insertions
+        final ArtifactMergeIndex index = new ArtifactMergeIndex(target);
+        final Set<ArtifactId> sourceIds = new HashSet<>();
+        for (final Artifact a : source) {
+            sourceIds.add(a.getId());
+        }
 
         for (final Artifact artifactFromSource : source) {
 
             // set of artifacts in target, matching the artifact from source
             // the artifacts are kept in the order of the target - hence the linked hash set.
             final Set<Artifact> allExistingInTarget = new LinkedHashSet<>();
-            for (final ArtifactId id : artifactFromSource.getAliases(true)) {
-                for (Artifact targetArtifact : target) {
-                    // Find aliased bundles in target
-                    if (id.isSame(targetArtifact.getId())) {
-                        allExistingInTarget.add(targetArtifact);
-                    }
-                }
-
-                findAliasedArtifacts(id, target, allExistingInTarget);
+            for (final ArtifactId id : artifactFromSource.getUnmodifiableAliases(true)) {
+                allExistingInTarget.addAll(index.getSame(id));
+                // Find aliased bundles in target
+                allExistingInTarget.addAll(index.getAliased(id));
             }
 
             final List<Artifact> selectedArtifacts = new ArrayList<>();
@@ -154,7 +173,7 @@ class BuilderUtil {
                 selectedArtifacts.add(artifactFromSource);
             }
 
-            int insertPos = target.size();
+            index.resetInsertPosition();
             int count = 0;
             for (final Artifact existing : allExistingInTarget) {
                 if (originKey != null
@@ -174,16 +193,8 @@ class BuilderUtil {
                         selectedArtifacts.add(count++, artifacts.remove(0));
                     }
                     selectedArtifacts.addAll(artifacts);
-                    Artifact same = null;
-                    while ((same = target.getSame(existing.getId())) != null) {
-                        // Keep executing removeSame() which ignores the version until last one was
-                        // removed
-                        final int p = target.indexOf(same);
-                        if (p < insertPos) {
-                            insertPos = p;
-                        }
-                        target.remove(p);
-                    }
+                    // remove all versions, the selected artifacts are inserted at the first removed position
+                    index.removeSame(existing.getId());
                 }
             }
 
@@ -194,21 +205,17 @@ class BuilderUtil {
                 // Record the original feature of the bundle, if needed
                 if (originKey != null) {
                     if (sourceFeature != null
-                            && source.contains(sa)
+                            && sourceIds.contains(sa.getId())
                             && sa.getMetadata().get(originKey) == null) {
                         cp.getMetadata().put(originKey, sourceFeature.getId().toMvnId());
                     }
                 }
-                if (insertPos == target.size()) {
-                    target.add(cp);
-                    insertPos = target.size();
-                } else {
-                    target.add(insertPos, cp);
-                    insertPos++;
-                }
+                index.add(cp);
             }
         }
 
+        target.clear();
+        target.addAll(index.toList());
         for (Artifact artifact : target) {
             artifact.getMetadata().remove(BuilderUtil.class.getName() + "added");
         }
@@ -225,6 +232,16 @@ class BuilderUtil {
             Artifact fromSource,
             List<ArtifactId> artifactOverrides,
             ArtifactId sourceID) {
+        return selectArtifactOverride(
+                source, fromTarget, fromSource, new ArtifactOverrideMatcher(artifactOverrides), sourceID);
+    }
+
+    static List<Artifact> selectArtifactOverride(
+            Feature source,
+            Artifact fromTarget,
+            Artifact fromSource,
+            ArtifactOverrideMatcher artifactOverrides,
+            ArtifactId sourceID) {
         if (fromTarget.getId().equals(fromSource.getId())) {
             // They're the same so return the source (latest)
             return Collections.singletonList(addFeatureOrigin(
@@ -244,66 +261,57 @@ class BuilderUtil {
             result.add(addFeatureOrigin(fromSource, source, fromSource));
             return result;
         }
-        outer:
         for (ArtifactId prefix : commonPrefixes) {
-            for (final ArtifactId override : artifactOverrides) {
-                if (match(prefix, override)) {
-                    String rule = override.getVersion();
-
-                    if (BuilderContext.VERSION_OVERRIDE_ALL.equalsIgnoreCase(rule)) {
-                        result.add(fromTarget);
-                        result.add(fromSource);
-                    } else if (BuilderContext.VERSION_OVERRIDE_HIGHEST.equalsIgnoreCase(rule)) {
-                        Version a1v = fromTarget.getAliases(true).stream()
-                                .filter(prefix::isSame)
-                                .findFirst()
-                                .get()
-                                .getOSGiVersion();
-                        Version a2v = fromSource.getAliases(true).stream()
-                                .filter(prefix::isSame)
-                                .findFirst()
-                                .get()
-                                .getOSGiVersion();
-                        result.add(addFeatureOrigin(
-                                selectStartOrder(
-                                        fromTarget, fromSource, a1v.compareTo(a2v) > 0 ? fromTarget : fromSource),
-                                source,
-                                fromSource,
-                                fromTarget));
-                    } else if (BuilderContext.VERSION_OVERRIDE_FIRST.equalsIgnoreCase(rule)) {
+            final ArtifactId override = artifactOverrides.getFirstMatch(prefix);
+            if (override != null) {
+                String rule = override.getVersion();
+
+                if (BuilderContext.VERSION_OVERRIDE_ALL.equalsIgnoreCase(rule)) {
+                    result.add(fromTarget);
+                    result.add(fromSource);
+                } else if (BuilderContext.VERSION_OVERRIDE_HIGHEST.equalsIgnoreCase(rule)) {
+                    Version a1v = fromTarget.getUnmodifiableAliases(true).stream()
+                            .filter(prefix::isSame)
+                            .findFirst()
+                            .get()
+                            .getOSGiVersion();
+                    Version a2v = fromSource.getUnmodifiableAliases(true).stream()
+                            .filter(prefix::isSame)
+                            .findFirst()
+                            .get()
+                            .getOSGiVersion();
+                    result.add(addFeatureOrigin(
+                            selectStartOrder(fromTarget, fromSource, a1v.compareTo(a2v) > 0 ? fromTarget : fromSource),
+                            source,
+                            fromSource,
+                            fromTarget));
+                } else if (BuilderContext.VERSION_OVERRIDE_FIRST.equalsIgnoreCase(rule)) {
+                    result.add(addFeatureOrigin(
+                            selectStartOrder(fromTarget, fromSource, fromTarget), source, fromSource, fromTarget));
+                } else if (BuilderContext.VERSION_OVERRIDE_LATEST.equalsIgnoreCase(rule)) {
+                    result.add(addFeatureOrigin(
+                            selectStartOrder(fromTarget, fromSource, fromSource), source, fromSource, fromTarget));
+                } else {
+
+                    // The rule must represent a version
+                    // See if its one of the existing artifact. If so use those, as they may have
+                    // additional metadata
+                    if (fromTarget.getId().getVersion().equals(rule)) {
                         result.add(addFeatureOrigin(
                                 selectStartOrder(fromTarget, fromSource, fromTarget), source, fromSource, fromTarget));
-                    } else if (BuilderContext.VERSION_OVERRIDE_LATEST.equalsIgnoreCase(rule)) {
+                    } else if (fromSource.getId().getVersion().equals(rule)) {
                         result.add(addFeatureOrigin(
                                 selectStartOrder(fromTarget, fromSource, fromSource), source, fromSource, fromTarget));
                     } else {
-
-                        // The rule must represent a version
-                        // See if its one of the existing artifact. If so use those, as they may have
-                        // additional metadata
-                        if (fromTarget.getId().getVersion().equals(rule)) {
-                            result.add(addFeatureOrigin(
-                                    selectStartOrder(fromTarget, fromSource, fromTarget),
-                                    source,
-                                    fromSource,
-                                    fromTarget));
-                        } else if (fromSource.getId().getVersion().equals(rule)) {
-                            result.add(addFeatureOrigin(
-                                    selectStartOrder(fromTarget, fromSource, fromSource),
-                                    source,
-                                    fromSource,
-                                    fromTarget));
-                        } else {
-                            // It's a completely new artifact
-                            result.add(addFeatureOrigin(
-                                    selectStartOrder(fromTarget, fromSource, new Artifact(override)),
-                                    source,
-                                    fromSource,
-                                    fromTarget));
-                        }
+                        // It's a completely new artifact
+                        result.add(addFeatureOrigin(
+                                selectStartOrder(fromTarget, fromSource, new Artifact(override)),
+                                source,
+                                fromSource,
+                                fromTarget));
                     }
-                    break outer;
                 }
+                break;
             }
         }
         if (!result.isEmpty()) {
@@ -380,74 +388,10 @@ class BuilderUtil {
         }
     }
 
-    private static boolean match(final ArtifactId id, final ArtifactId override) {
-        int matchCount = 0;
-        // check group id
-        if (BuilderContext.COORDINATE_MATCH_ALL.equals(override.getGroupId())) {
-            matchCount++;
-        } else if (id.getGroupId().equals(override.getGroupId())) {
-            matchCount++;
-        }
-        // check artifact id
-        if (BuilderContext.COORDINATE_MATCH_ALL.equals(override.getArtifactId())) {
-            matchCount++;
-        } else if (id.getArtifactId().equals(override.getArtifactId())) {
-            matchCount++;
-        }
-        // check type
-        if (BuilderContext.COORDINATE_MATCH_ALL.equals(override.getType())) {
-            matchCount++;
-        } else if (id.getType().equals(override.getType())) {
-            matchCount++;
-        }
-        // check classifier
-        if (BuilderContext.COORDINATE_MATCH_ALL.equals(override.getClassifier())) {
-            matchCount++;
-        } else if (Objects.equals(id.getClassifier(), override.getClassifier())) {
-            matchCount++;
-        }
-        return matchCount == 4;
-    }
-
-    private static boolean match(final Configuration config, String override) {
-        boolean result;
-        if (override.equals("*")) {
-            result = true;
-        } else if (Configuration.isFactoryConfiguration(config.getPid())) {
-            if (Configuration.isFactoryConfiguration(override)) {
-                String configPID = Configuration.getFactoryPid(config.getPid());
-                String overridePID = Configuration.getFactoryPid(override);
-                if (match(configPID, overridePID)) {
-                    String configName = Configuration.getName(config.getPid());
-                    String overrideName = Configuration.getName(override);
-                    result = match(configName, overrideName);
-                } else {
-                    result = false;
-                }
-            } else {
-                result = false;
-            }
-        } else {
-            result = match(config.getPid(), override);
-        }
-        return result;
-    }
-
-    private static boolean match(String value, String override) {
-        boolean result;
-        if (override.endsWith("*")) {
-            override = override.substring(0, override.length() - 1);
-            result = value.startsWith(override);
-        } else {
-            result = value.equals(override);
-        }
-        return result;
-    }
-
     private static Set<ArtifactId> getCommonArtifactIds(Artifact a1, Artifact a2) {
         final Set<ArtifactId> result = new HashSet<>();
-        for (final ArtifactId id : a1.getAliases(true)) {
-            for (final ArtifactId c : a2.getAliases(true)) {
+        for (final ArtifactId id : a1.getUnmodifiableAliases(true)) {
+            for (final ArtifactId c : a2.getUnmodifiableAliases(true)) {
                 if (id.isSame(c)) {
                     result.add(id);
                 }
@@ -457,24 +401,23 @@ class BuilderUtil {
         return result;
     }
 
-    private static void findAliasedArtifacts(
-            final ArtifactId id, final Artifacts targetBundles, final Set<Artifact> result) {
-        for (final Artifact a : targetBundles) {
-            for (final ArtifactId aid : a.getAliases(false)) {
-                if (aid.isSame(id)) {
-                    result.add(a);
-                }
-            }
-        }
-    }
-
     // configurations - merge / override
     static void mergeConfigurations(
             final Configurations target,
             final Configurations source,
             final Map<String, String> overrides,
             final ArtifactId sourceFeatureId) {
+        mergeConfigurations(target, source, new ConfigurationOverrideMatcher(overrides), sourceFeatureId);
+    }
+
+    static void mergeConfigurations(
+            final Configurations target,
+            final Configurations source,
+            final ConfigurationOverrideMatcher overrides,
+            final ArtifactId sourceFeatureId) {
 
+        // positions of the configurations in the target by pid, created on first use
+        Map<String, Integer> positions = null;
         for (final Configuration cfg : source) {
             final List<ArtifactId> sourceOrigins = cfg.getFeatureOrigins().isEmpty()
                     ? Collections.singletonList(sourceFeatureId)
@@ -483,51 +426,52 @@ class BuilderUtil {
 
             if (found != null) {
                 boolean handled = false;
-                outer:
-                for (Map.Entry<String, String> override : overrides.entrySet()) {
-                    if (match(cfg, override.getKey())) {
-                        if (BuilderContext.CONFIG_USE_LATEST.equals(override.getValue())) {
-                            final int idx = target.indexOf(found);
-                            target.remove(found);
-                            found = cfg.copy(cfg.getPid());
-                            target.add(idx, found);
-                            setPropertyFeatureOrigins(found, sourceFeatureId);
-                            handled = true;
-                        } else if (BuilderContext.CONFIG_FAIL_ON_PROPERTY_CLASH.equals(override.getValue())) {
-                            for (final String key : listProperties(cfg)) {
-                                if (found.getProperties().get(key) != null) {
-                                    break outer;
-                                } else {
-                                    found.getProperties()
-                                            .put(key, cfg.getProperties().get(key));
-                                    found.setFeatureOrigins(key, cfg.getFeatureOrigins(key, sourceFeatureId));
-                                }
+                final Map.Entry<String, String> override = overrides.getFirstMatch(cfg.getPid());
+                if (override != null) {
+                    if (BuilderContext.CONFIG_USE_LATEST.equals(override.getValue())) {
+                        if (positions == null) {
+                            positions = new HashMap<>();
+                            for (int i = 0; i < target.size(); i++) {
+                                positions.putIfAbsent(target.get(i).getPid(), i);
                             }
-                            handled = true;
-                        } else if (BuilderContext.CONFIG_MERGE_LATEST.equals(override.getValue())) {
-                            for (final String key : listProperties(cfg)) {
+                        }
+                        found = cfg.copy(cfg.getPid());
+                        target.set(positions.get(found.getPid()), found);
+                        setPropertyFeatureOrigins(found, sourceFeatureId);
+                        handled = true;
+                    } else if (BuilderContext.CONFIG_FAIL_ON_PROPERTY_CLASH.equals(override.getValue())) {
+                        handled = true;
+                        for (final String key : listProperties(cfg)) {
+                            if (found.getProperties().get(key) != null) {
+                                handled = false;
+                                break;
+                            } else {
                                 found.getProperties()
                                         .put(key, cfg.getProperties().get(key));
-                                final List<ArtifactId> propOrigins = new ArrayList<>(found.getFeatureOrigins(key));
-                                propOrigins.addAll(cfg.getFeatureOrigins(key, sourceFeatureId));
-                                found.setFeatureOrigins(key, propOrigins);
+                                found.setFeatureOrigins(key, cfg.getFeatureOrigins(key, sourceFeatureId));
                             }
-                            handled = true;
-                        } else if (BuilderContext.CONFIG_USE_FIRST.equals(override.getValue())) {
-                            // no need to update property origins
-                            handled = true;
-                            found = null;
-                        } else if (BuilderContext.CONFIG_MERGE_FIRST.equals(override.getValue())) {
-                            for (final String key : listProperties(cfg)) {
-                                if (found.getProperties().get(key) == null) {
-                                    found.getProperties()
-                                            .put(key, cfg.getProperties().get(key));
-                                    found.setFeatureOrigins(key, cfg.getFeatureOrigins(key, sourceFeatureId));
-                                }
+                        }
+                    } else if (BuilderContext.CONFIG_MERGE_LATEST.equals(override.getValue())) {
+                        for (final String key : listProperties(cfg)) {
+                            found.getProperties().put(key, cfg.getProperties().get(key));
+                            final List<ArtifactId> propOrigins = new ArrayList<>(found.getFeatureOrigins(key));
+                            propOrigins.addAll(cfg.getFeatureOrigins(key, sourceFeatureId));
+                            found.setFeatureOrigins(key, propOrigins);
+                        }
+                        handled = true;
+                    } else if (BuilderContext.CONFIG_USE_FIRST.equals(override.getValue())) {
+                        // no need to update property origins
+                        handled = true;
+                        found = null;
+                    } else if (BuilderContext.CONFIG_MERGE_FIRST.equals(override.getValue())) {
+                        for (final String key : listProperties(cfg)) {
+                            if (found.getProperties().get(key) == null) {
+                                found.getProperties()
+                                        .put(key, cfg.getProperties().get(key));
+                                found.setFeatureOrigins(key, cfg.getFeatureOrigins(key, sourceFeatureId));
                             }
-                            handled = true;
                         }
-                        break outer;
+                        handled = true;
                     }
                 }
                 if (!handled) {
@@ -539,6 +483,9 @@ class BuilderUtil {
                 // create new configuration
                 found = cfg.copy(cfg.getPid());
                 target.add(found);
+                if (positions != null) {
+                    positions.put(found.getPid(), target.size() - 1);
+                }
                 setPropertyFeatureOrigins(found, sourceFeatureId);
                 if (!found.getFeatureOrigins().isEmpty()) {
                     found = null;
@@ -659,6 +606,15 @@ class BuilderUtil {
             final Feature sourceFeature,
             final List<ArtifactId> artifactOverrides,
             final String originKey) {
+        mergeExtensions(target, source, sourceFeature, new ArtifactOverrideMatcher(artifactOverrides), originKey);
+    }
+
+    static void mergeExtensions(
+            final Extension target,
+            final Extension source,
+            final Feature sourceFeature,
+            final ArtifactOverrideMatcher artifactOverrides,
+            final String originKey) {
         switch (target.getType()) {
             case TEXT: // simply append
                 target.setText(
@@ -668,15 +624,10 @@ class BuilderUtil {
                                 + source.getText());
                 break;
             case JSON:
-                JsonStructure struct1;
-                if (target.getJSON() != null) {
-                    try (final StringReader reader = new StringReader(target.getJSON())) {
-                        struct1 = Json.createReader(reader).read();
-                    }
-                    JsonStructure struct2;
-                    try (final StringReader reader = new StringReader(source.getJSON())) {
-                        struct2 = Json.createReader(reader).read();
-                    }
+                // merge the structures, the text is only created when needed
+                JsonStructure struct1 = target.getJSONStructure();
+                if (struct1 != null) {
+                    final JsonStructure struct2 = source.getJSONStructure();
 
                     if (struct1.getValueType() != struct2.getValueType()) {
                         throw new IllegalStateException("Found different JSON types for extension " + target.getName()
@@ -693,13 +644,9 @@ class BuilderUtil {
                         // object is merge
                         struct1 = merge((JsonObject) struct1, (JsonObject) struct2);
                     }
-                    StringWriter buffer = new StringWriter();
-                    try (JsonWriter writer = Json.createWriter(buffer)) {
-                        writer.write(struct1);
-                    }
-                    target.setJSON(buffer.toString());
+                    target.setJSONStructure(struct1);
                 } else {
-                    target.setJSON(source.getJSON());
+                    target.setJSONStructure(source.getJSONStructure());
                 }
                 break;
 
@@ -719,6 +666,24 @@ class BuilderUtil {
             final String originKey,
             final boolean prototypeMerge,
             final boolean initialMerge) {
+        mergeExtensions(
+                target,
+                source,
+                context,
+                new ArtifactOverrideMatcher(artifactOverrides),
+                originKey,
+                prototypeMerge,
+                initialMerge);
+    }
+
+    static void mergeExtensions(
+            final Feature target,
+            final Feature source,
+            final BuilderContext context,
+            final ArtifactOverrideMatcher artifactOverrides,
+            final String originKey,
+            final boolean prototypeMerge,
+            final boolean initialMerge) {
         for (final Extension ext : source.getExtensions()) {
             boolean found = false;
 
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.builder;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sling.feature.Configuration;
+
+/**
+ * Matcher for configuration override rules.
+ * <p>
+ * An override rule is a PID which might end with {@code *} to match all PIDs
+ * starting with the rule. The rule {@code *} matches all configurations. A
+ * factory configuration is only matched by factory rules, where the factory PID
+ * and the name are matched separately. Exact rules are kept in hash maps, rules
+ * ending with {@code *} in prefix tries, so a lookup does not depend on the number
+ * of rules. If several rules match, the first one in the order of the rules is
+ * selected.
+ * <p>
+ * Instances are immutable and can be used by different threads.
+ */
+final class ConfigurationOverrideMatcher {
+
+    private static final String WILDCARD = "*";
+
+    /** Matcher without any rules */
+    static final ConfigurationOverrideMatcher EMPTY = new ConfigurationOverrideMatcher(Collections.emptyMap());
+
+    /** The rules in order, each rule together with its merge policy */
+    private final List<Map.Entry<String, String>> rules = new ArrayList<>();
+
+    /** The position of the first rule matching all configurations, {@code -1} if none */
+    private final int matchAll;
+
+    /** The position of the first rule for each PID */
+    private final Map<String, Integer> pids = new HashMap<>();
+
+    /** The PID prefixes of the rules ending with a wildcard */
+    private final PrefixTrie<Integer> pidPrefixes = new PrefixTrie<>();
+
+    /** The name rules for each factory PID */
+    private final Map<String, List<NameRule>> factoryPids = new HashMap<>();
+
+    /** The factory PID prefixes of the factory rules having a wildcard factory PID */
+    private final PrefixTrie<NameRule> factoryPidPrefixes = new PrefixTrie<>();
+
+    /**
+     * Create a new matcher
+     * @param overrides The rules in order, mapped to the merge policy. The map is copied.
+     */
+    ConfigurationOverrideMatcher(final Map<String, String> overrides) {
+        int all = -1;
+        for (final Map.Entry<String, String> entry : overrides.entrySet()) {
+            final int pos = this.rules.size();
+            final String rule = entry.getKey();
+            this.rules.add(new AbstractMap.SimpleImmutableEntry<>(rule, entry.getValue()));
+            if (rule.equals(WILDCARD) && all == -1) {
+                all = pos;
+            }
+            // rules are matched against the whole pid of a non factory configuration
+            if (rule.endsWith(WILDCARD)) {
+                this.pidPrefixes.put(rule.substring(0, rule.length() - 1), pos);
+            } else {
+                this.pids.putIfAbsent(rule, pos);
+            }
+            // factory rules are matched against factory configurations
+            final String factoryPid = Configuration.getFactoryPid(rule);
+            if (factoryPid != null) {
+                final NameRule nameRule = new NameRule(Configuration.getName(rule), pos);
+                if (factoryPid.endsWith(WILDCARD)) {
+                    this.factoryPidPrefixes.put(factoryPid.substring(0, factoryPid.length() - 1), nameRule);
+                } else {
+                    this.factoryPids
+                            .computeIfAbsent(factoryPid, key -> new ArrayList<>())
+                            .add(nameRule);
+                }
+            }
+        }
+        this.matchAll = all;
+    }
+
+    /**
+     * Check whether there are no rules
+     * @return {@code true} if there are no rules
+     */
+    boolean isEmpty() {
+        return this.rules.isEmpty();
+    }
+
+    /**
+     * Get the first rule matching the PID
+     * @param pid The PID of the configuration
+     * @return The rule together with its merge policy or {@code null} if no rule matches
+     */
+    Map.Entry<String, String> getFirstMatch(final String pid) {
+        int first = this.matchAll;
+        final String factoryPid = Configuration.getFactoryPid(pid);
+        if (factoryPid == null) {
+            first = min(first, this.pids.get(pid));
+            for (final Integer pos : this.pidPrefixes.getPrefixValues(pid)) {
+                first = min(first, pos);
+            }
+        } else {
+            final String name = Configuration.getName(pid);
+            final List<NameRule> exact = this.factoryPids.get(factoryPid);
+            if (exact != null) {
+                for (final NameRule rule : exact) {
+                    if (rule.matches(name)) {
+                        first = min(first, rule.pos);
+                        // the rules are in order
+                        break;
+                    }
+                }
+            }
+            for (final NameRule rule : this.factoryPidPrefixes.getPrefixValues(factoryPid)) {
+                if (rule.matches(name)) {
+                    first = min(first, rule.pos);
+                }
+            }
+        }
+        return first == -1 ? null : this.rules.get(first);
+    }
+
+    private static int min(final int first, final Integer pos) {
+        if (pos == null || (first != -1 && first <= pos)) {
+            return first;
+        }
+        return pos;
+    }
+
+    /**
+     * The name part of a factory rule
+     */
+    private static final class NameRule {
+
+        /** The name or the name prefix */
+        private final String name;
+
+        /** Whether the name is a prefix */
+        private final boolean prefix;
+
+        /** The position of the rule */
+        private final int pos;
+
+        NameRule(final String name, final int pos) {
+            this.prefix = name.endsWith(WILDCARD);
+            this.name = this.prefix ? name.substring(0, name.length() - 1) : name;
+            this.pos = pos;
+        }
+
+        boolean matches(final String value) {
+            return this.prefix ? value.startsWith(this.name) : value.equals(this.name);
+        }
+    }
+
+    /**
+     * Trie of prefixes, each prefix mapped to a list of values.
+     * @param <V> The type of the values
+     */
+    private static final class PrefixTrie<V> {
+
+        private final Map<Character, PrefixTrie<V>> children = new HashMap<>();
+
+        private final List<V> values = new ArrayList<>(1);
+
+        /**
+         * Add a value for a prefix
+         * @param prefix The prefix
+         * @param value The value
+         */
+        void put(final String prefix, final V value) {
+            PrefixTrie<V> node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), key -> new PrefixTrie<>());
+            }
+            node.values.add(value);
+        }
+
+        /**
+         * Get the values of all prefixes of the provided string
+         * @param value The string
+         * @return The values, shortest prefix first
+         */
+        List<V> getPrefixValues(final String value) {
+            // the lists of the nodes are only returned if a single node has values
+            List<V> result = this.values;
+            boolean copied = false;
+            PrefixTrie<V> node = this;
+            for (int i = 0; i < value.length(); i++) {
+                node = node.children.get(value.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                if (!node.values.isEmpty()) {
+                    if (result.isEmpty()) {
+                        result = node.values;
+                    } else {
+                        if (!copied) {
+                            result = new ArrayList<>(result);
+                            copied = true;
+                        }
+                        result.addAll(node.values);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.sling.feature.builder;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -27,11 +28,13 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.apache.sling.feature.Artifact;
 import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.ArtifactIdInterner;
 import org.apache.sling.feature.Configuration;
 import org.apache.sling.feature.Extension;
 import org.apache.sling.feature.ExtensionState;
@@ -46,8 +49,14 @@ public abstract class FeatureBuilder {
     /** This key is used to track origins while a prototype is merged in */
     private static final String TRACKING_KEY = "tracking-key";
 
-    /** Pattern for using variables. */
-    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{[a-zA-Z0-9.\\-_]+\\}");
+    /** The artifact overrides for merging a feature over its prototype */
+    private static final ArtifactOverrideMatcher PROTOTYPE_ARTIFACT_OVERRIDES =
+            new ArtifactOverrideMatcher(Collections.singletonList(
+                    ArtifactId.parse(BuilderUtil.CATCHALL_OVERRIDE + BuilderContext.VERSION_OVERRIDE_ALL)));
+
+    /** The configuration overrides for merging a feature over its prototype */
+    private static final ConfigurationOverrideMatcher PROTOTYPE_CONFIG_OVERRIDES =
+            new ConfigurationOverrideMatcher(Collections.singletonMap("*", BuilderContext.CONFIG_MERGE_LATEST));
 
     /**
      * Assemble the full feature by processing its prototype.
@@ -62,7 +71,7 @@ public abstract class FeatureBuilder {
         if (feature == null || context == null) {
             throw new IllegalArgumentException("Feature and/or context must not be null");
         }
-        return internalAssemble(new ArrayList<>(), feature, context);
+        return internalAssemble(new ArrayList<>(), feature, context, new HashSet<>());
     }
 
     /**
@@ -82,7 +91,7 @@ public abstract class FeatureBuilder {
         final Feature[] features = new Feature[featureIds.length];
         int index = 0;
         for (final String id : featureIds) {
-            features[index] = context.getFeatureProvider().provide(ArtifactId.parse(id));
+            features[index] = context.getFeatureProvider().provide(intern(context, ArtifactId.parse(id)));
             if (features[index] == null) {
                 throw new IllegalStateException("Unable to find prototype feature " + id);
             }
@@ -97,6 +106,7 @@ public abstract class FeatureBuilder {
      * only the one with the highest version is kept in the result list.
      * If a feature has another feature as prototype from the provided set, the prototype feature
      * is removed from the set.
+     * If an executor is set on the context, the features are assembled in parallel.
      *
      * @param context The builder context
      * @param features A list of features
@@ -134,23 +144,50 @@ public abstract class FeatureBuilder {
         }
 
         // assemble each features
+        final FeatureProvider provider = new FeatureProvider() {
+
+            @Override
+            public Feature provide(final ArtifactId id) {
+                for (final Feature f : features) {
+                    if (f.getId().equals(id)) {
+                        return f;
+                    }
+                }
+                return context.getFeatureProvider().provide(id);
+            }
+        };
         final List<Feature> assembledFeatures = new ArrayList<>();
         final Set<ArtifactId> included = new HashSet<>();
-        for (final Feature f : featureList) {
-            final Feature assembled = FeatureBuilder.assemble(f, context.clone(new FeatureProvider() {
-
-                @Override
-                public Feature provide(final ArtifactId id) {
-                    included.add(id);
-                    for (final Feature f : features) {
-                        if (f.getId().equals(id)) {
-                            return f;
-                        }
+        final Executor executor = context.getExecutor();
+        if (executor == null) {
+            for (final Feature f : featureList) {
+                assembledFeatures.add(internalAssemble(new ArrayList<>(), f, context.clone(provider), included));
+            }
+        } else {
+            final List<CompletableFuture<Feature>> futures = new ArrayList<>();
+            final List<Set<ArtifactId>> includedPerFeature = new ArrayList<>();
+            for (final Feature f : featureList) {
+                final BuilderContext ctx = context.clone(provider);
+                final Set<ArtifactId> prototypes = new HashSet<>();
+                includedPerFeature.add(prototypes);
+                futures.add(CompletableFuture.supplyAsync(
+                        () -> internalAssemble(new ArrayList<>(), f, ctx, prototypes), executor));
+            }
+            // collect in the order of the features, to keep the result deterministic
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    assembledFeatures.add(futures.get(i).join());
+                } catch (final CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
                     }
-                    return context.getFeatureProvider().provide(id);
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw e;
                 }
-            }));
-            assembledFeatures.add(assembled);
+                included.addAll(includedPerFeature.get(i));
+            }
         }
 
         // filter out included features
@@ -208,8 +245,8 @@ public abstract class FeatureBuilder {
                     target,
                     assembled,
                     context,
-                    context.getArtifactOverrides(),
-                    context.getConfigOverrides(),
+                    context.getArtifactOverrideMatcher(),
+                    context.getConfigOverrideMatcher(),
                     null,
                     false,
                     firstMerge);
@@ -221,6 +258,7 @@ public abstract class FeatureBuilder {
             target.setComplete(true);
         }
 
+        internOrigins(context, target);
         target.setAssembled(true);
 
         return target;
@@ -232,28 +270,47 @@ public abstract class FeatureBuilder {
      * configuration properties.
      * @param feature The feature
      * @param additionalVariables Optional additional variables
+     * @throws IllegalStateException If a referenced variable has no value or if variables
+     *         reference each other in a cycle
      */
     public static void resolveVariables(final Feature feature, final Map<String, String> additionalVariables) {
+        final VariableResolver resolver = new VariableResolver(feature, additionalVariables);
         for (final Configuration cfg : feature.getConfigurations()) {
             final Set<String> keys =
                     new HashSet<>(Collections.list(cfg.getProperties().keys()));
             for (final String key : keys) {
                 final Object value = cfg.getProperties().get(key);
                 if (value instanceof String) {
-                    cfg.getProperties().put(key, replaceVariables((String) value, additionalVariables, feature));
+                    final String replaced = resolver.resolve((String) value);
+                    if (replaced != value) {
+                        cfg.getProperties().put(key, replaced);
+                    }
                 } else if (value instanceof String[]) {
+                    // the array might be shared with copies of the configuration
                     final String[] values = (String[]) value;
+                    String[] replacedValues = null;
                     for (int i = 0; i < values.length; i++) {
-                        values[i] = replaceVariables(values[i], additionalVariables, feature);
+                        final String replaced = resolver.resolve(values[i]);
+                        if (replaced != values[i]) {
+                            if (replacedValues == null) {
+                                replacedValues = values.clone();
+                            }
+                            replacedValues[i] = replaced;
+                        }
+                    }
+                    if (replacedValues != null) {
+                        cfg.getProperties().put(key, replacedValues);
                     }
-                    cfg.getProperties().put(key, values);
                 }
             }
         }
         for (final Map.Entry<String, String> entry :
                 feature.getFrameworkProperties().entrySet()) {
             // the  value is always a string
-            entry.setValue(replaceVariables(entry.getValue(), additionalVariables, feature));
+            final String replaced = resolver.resolve(entry.getValue());
+            if (replaced != entry.getValue()) {
+                entry.setValue(replaced);
+            }
         }
     }
 
@@ -268,41 +325,77 @@ public abstract class FeatureBuilder {
      * @param additionalVariables The optional variables that can be substituted (might be {@code null})
      * @param feature The feature containing variables
      * @return The value with the variables substituted.
+     * @throws IllegalStateException If a referenced variable has no value or if variables
+     *         reference each other in a cycle
      */
     static String replaceVariables(
             final String value, final Map<String, String> additionalVariables, final Feature feature) {
-        final String textWithVars = value;
-
-        final Matcher m = VARIABLE_PATTERN.matcher(textWithVars.toString());
-        final StringBuffer sb = new StringBuffer();
-        while (m.find()) {
-            final String var = m.group();
+        return new VariableResolver(feature, additionalVariables).resolve(value);
+    }
 
-            final int len = var.length();
-            final String name = var.substring(2, len - 1);
+    /**
+     * Get the canonical instance of an artifact id, if an interner is configured
+     * @param context The builder context
+     * @param id The artifact id
+     * @return The artifact id
+     */
+    private static ArtifactId intern(final BuilderContext context, final ArtifactId id) {
+        final ArtifactIdInterner interner = context.getArtifactIdInterner();
+        return interner == null ? id : interner.intern(id);
+    }
 
-            if (feature.getVariables().containsKey(name)) {
-                String val = null;
-                if (additionalVariables != null) val = additionalVariables.get(name);
-                if (val == null) {
-                    val = feature.getVariables().get(name);
+    /**
+     * Replace the feature origins of the artifacts and configurations of the
+     * feature with their canonical instances, if an interner is configured
+     * @param context The builder context
+     * @param feature The feature
+     */
+    private static void internOrigins(final BuilderContext context, final Feature feature) {
+        final ArtifactIdInterner interner = context.getArtifactIdInterner();
+        if (interner == null) {
+            return;
+        }
+        final List<Artifact> artifacts = new ArrayList<>(feature.getBundles());
+        for (final Extension e : feature.getExtensions()) {
+            if (e.getType() == ExtensionType.ARTIFACTS) {
+                artifacts.addAll(e.getArtifacts());
+            }
+        }
+        for (final Artifact a : artifacts) {
+            final ArtifactId[] origins = a.getFeatureOrigins();
+            if (origins.length > 0) {
+                for (int i = 0; i < origins.length; i++) {
+                    origins[i] = interner.intern(origins[i]);
                 }
-
-                if (val != null) {
-                    String replaced = replaceVariables(val, additionalVariables, feature);
-                    m.appendReplacement(sb, Matcher.quoteReplacement(replaced));
-                } else {
-                    throw new IllegalStateException("Undefined variable: " + name);
+                a.setFeatureOrigins(origins);
+            }
+        }
+        for (final Configuration cfg : feature.getConfigurations()) {
+            final List<ArtifactId> origins = cfg.getFeatureOrigins();
+            // origins are stored as an array, other representations are kept
+            if (cfg.getProperties().get(Configuration.PROP_FEATURE_ORIGINS) instanceof String[]) {
+                final List<ArtifactId> interned = new ArrayList<>(origins.size());
+                for (final ArtifactId id : origins) {
+                    interned.add(interner.intern(id));
                 }
+                cfg.setFeatureOrigins(interned);
             }
         }
-        m.appendTail(sb);
-
-        return sb.toString();
     }
 
+    /**
+     * Assemble a feature
+     * @param processedFeatures The features currently being assembled, used to detect recursion
+     * @param feature The feature
+     * @param context The builder context
+     * @param prototypes The ids of all prototypes used are added to this collection
+     * @return The assembled feature
+     */
     private static Feature internalAssemble(
-            final List<String> processedFeatures, final Feature feature, final BuilderContext context) {
+            final List<String> processedFeatures,
+            final Feature feature,
+            final BuilderContext context,
+            final Collection<ArtifactId> prototypes) {
         if (feature.isAssembled()) {
             return feature;
         }
@@ -328,15 +421,7 @@ public abstract class FeatureBuilder {
 
             final Prototype i = feature.getPrototype();
 
-            final Feature f = context.getFeatureProvider().provide(i.getId());
-            if (f == null) {
-                throw new IllegalStateException("Unable to find prototype feature " + i.getId());
-            }
-            if (f.isFinal()) {
-                throw new IllegalStateException(
-                        "Prototype feature " + i.getId() + " is marked as final and can't be used in a prototype.");
-            }
-            final Feature prototypeFeature = internalAssemble(processedFeatures, f, context);
+            final Feature prototypeFeature = assemblePrototype(processedFeatures, i.getId(), context, prototypes);
 
             // process prototype instructions
             processPrototype(prototypeFeature, i);
@@ -347,8 +432,8 @@ public abstract class FeatureBuilder {
                     result,
                     prototypeFeature,
                     context,
-                    Collections.emptyList(),
-                    Collections.emptyMap(),
+                    ArtifactOverrideMatcher.EMPTY,
+                    ConfigurationOverrideMatcher.EMPTY,
                     TRACKING_KEY,
                     true,
                     true);
@@ -358,9 +443,8 @@ public abstract class FeatureBuilder {
                     result,
                     feature,
                     context,
-                    Collections.singletonList(
-                            ArtifactId.parse(BuilderUtil.CATCHALL_OVERRIDE + BuilderContext.VERSION_OVERRIDE_ALL)),
-                    Collections.singletonMap("*", BuilderContext.CONFIG_MERGE_LATEST),
+                    PROTOTYPE_ARTIFACT_OVERRIDES,
+                    PROTOTYPE_CONFIG_OVERRIDES,
                     TRACKING_KEY,
                     true,
                     false);
@@ -388,6 +472,7 @@ public abstract class FeatureBuilder {
             }
         }
 
+        internOrigins(context, result);
         result.setAssembled(true);
 
         processedFeatures.remove(feature.getId().toMvnId());
@@ -395,12 +480,64 @@ public abstract class FeatureBuilder {
         return result;
     }
 
+    /**
+     * Provide and assemble a prototype feature. If an assembly cache is set
+     * on the context, the assembled prototype is taken from or put into the cache.
+     * @param processedFeatures The features currently being assembled, used to detect recursion
+     * @param id The id of the prototype
+     * @param context The builder context
+     * @param prototypes The ids of all prototypes used are added to this collection
+     * @return The assembled prototype, the caller is free to modify it
+     */
+    private static Feature assemblePrototype(
+            final List<String> processedFeatures,
+            final ArtifactId id,
+            final BuilderContext context,
+            final Collection<ArtifactId> prototypes) {
+        final AssemblyCache cache = context.getAssemblyCache();
+        if (cache != null) {
+            final Set<ArtifactId> cachedPrototypes = new LinkedHashSet<>();
+            final Feature cached = cache.get(id, context, cachedPrototypes);
+            if (cached != null) {
+                for (final ArtifactId p : cachedPrototypes) {
+                    if (processedFeatures.contains(p.toMvnId())) {
+                        throw new IllegalStateException(
+                                "Recursive inclusion of " + p.toMvnId() + " via " + processedFeatures);
+                    }
+                }
+                prototypes.addAll(cachedPrototypes);
+                return cached;
+            }
+        }
+
+        final Feature f = context.getFeatureProvider().provide(id);
+        if (f == null) {
+            throw new IllegalStateException("Unable to find prototype feature " + id);
+        }
+        if (f.isFinal()) {
+            throw new IllegalStateException(
+                    "Prototype feature " + id + " is marked as final and can't be used in a prototype.");
+        }
+        final Set<ArtifactId> usedPrototypes = new LinkedHashSet<>();
+        usedPrototypes.add(id);
+        Feature result = internalAssemble(processedFeatures, f, context, usedPrototypes);
+        if (result == f) {
+            // already assembled, the provided feature must not be modified
+            result = f.copy();
+        }
+        if (cache != null) {
+            cache.put(id, context, result, usedPrototypes);
+        }
+        prototypes.addAll(usedPrototypes);
+        return result;
+    }
+
     private static void merge(
             final Feature target,
             final Feature source,
             final BuilderContext context,
-            final List<ArtifactId> artifactOverrides,
-            final Map<String, String> configOverrides,
+            final ArtifactOverrideMatcher artifactOverrides,
+            final ConfigurationOverrideMatcher configOverrides,
             final String originKey,
             final boolean prototypeMerge,
             final boolean initialMerge) {
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.builder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sling.feature.Feature;
+
+/**
+ * Substitutes the variables of a feature in values.
+ * <p>
+ * Variables follow the syntax <code>${variable_name}</code>, where the name
+ * consists of letters, digits, dots, dashes and underscores. Only variables
+ * defined in the feature are substituted, all other references are kept.
+ * The additional variables are looked up first, potentially overwriting the
+ * values of the feature variables.
+ * <p>
+ * The values of the variables can reference other variables. Each variable is
+ * resolved once, when it is referenced for the first time, and the result is
+ * reused for all further references. A variable referencing itself, directly
+ * or through other variables, is reported as an error.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class VariableResolver {
+
+    private static final String START = "${";
+
+    /** The feature variables */
+    private final Map<String, String> variables;
+
+    /** The optional additional variables */
+    private final Map<String, String> additionalVariables;
+
+    /** The resolved values of the variables */
+    private final Map<String, String> resolved = new HashMap<>();
+
+    /** The variables currently being resolved, in the order of their references */
+    private final Set<String> resolving = new LinkedHashSet<>();
+
+    /**
+     * Create a new resolver
+     * @param feature The feature containing variables
+     * @param additionalVariables The optional variables that can be substituted (might be {@code null})
+     */
+    VariableResolver(final Feature feature, final Map<String, String> additionalVariables) {
+        this.variables = feature.getVariables();
+        this.additionalVariables = additionalVariables;
+    }
+
+    /**
+     * Substitute the variables in the provided value.
+     * @param value The value that can contain variables
+     * @return The value with the variables substituted. If the value contains no
+     *         variables, it is returned as-is.
+     * @throws IllegalStateException If a referenced variable has no value or
+     *         if the variables reference each other in a cycle
+     */
+    String resolve(final String value) {
+        int start = value.indexOf(START);
+        if (start == -1) {
+            return value;
+        }
+        StringBuilder sb = null;
+        int copied = 0;
+        while (start != -1) {
+            final int end = findEnd(value, start + START.length());
+            if (end == -1) {
+                start = value.indexOf(START, start + 1);
+                continue;
+            }
+            final String name = value.substring(start + START.length(), end);
+            if (this.variables.containsKey(name)) {
+                if (sb == null) {
+                    sb = new StringBuilder(value.length() + 16);
+                }
+                sb.append(value, copied, start).append(this.getValue(name));
+                copied = end + 1;
+            }
+            start = value.indexOf(START, end + 1);
+        }
+        if (sb == null) {
+            return value;
+        }
+        return sb.append(value, copied, value.length()).toString();
+    }
+
+    /**
+     * Find the end of a variable name
+     * @param value The value
+     * @param pos The position of the first character of the name
+     * @return The position of the closing bracket or {@code -1} if this is not a variable
+     */
+    private static int findEnd(final String value, final int pos) {
+        int i = pos;
+        while (i < value.length() && isNameChar(value.charAt(i))) {
+            i++;
+        }
+        if (i == pos || i == value.length() || value.charAt(i) != '}') {
+            return -1;
+        }
+        return i;
+    }
+
+    private static boolean isNameChar(final char c) {
+        return (c >= 'a' && c <= 'z')
+                || (c >= 'A' && c <= 'Z')
+                || (c >= '0' && c <= '9')
+                || c == '.'
+                || c == '-'
+                || c == '_';
+    }
+
+    /**
+     * Get the resolved value of a variable
+     * @param name The name of the variable
+     * @return The value
+     * @throws IllegalStateException If the variable has no value or
+     *         if the variables reference each other in a cycle
+     */
+    private String getValue(final String name) {
+        String result = this.resolved.get(name);
+        if (result == null) {
+            String value = null;
+            if (this.additionalVariables != null) {
+                value = this.additionalVariables.get(name);
+            }
+            if (value == null) {
+                value = this.variables.get(name);
+            }
+            if (value == null) {
+                throw new IllegalStateException("Undefined variable: " + name);
+            }
+            if (!this.resolving.add(name)) {
+                final List<String> cycle = new ArrayList<>(this.resolving);
+                cycle.subList(0, cycle.indexOf(name)).clear();
+                cycle.add(name);
+                throw new IllegalStateException(
+                        "Variable " + name + " references itself: " + String.join(" -> ", cycle));
+            }
+            result = this.resolve(value);
+            this.resolving.remove(name);
+            this.resolved.put(name, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.io.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Feature;
+import org.apache.sling.feature.io.json.FeatureJSONReader;
+
+/**
+ * Random access to a feature archive stored in a file. In contrast to the
+ * {@link ArchiveReader}, the contents are listed from the central directory of
+ * the archive and only the entries which are requested are read.
+ * <p>
+ * The archive file is kept open until {@link #close()} is called.
+ *
+ * @since 1.1.0
+ */
+public class ArchiveFile implements Closeable {
+
+    private final JarFile jarFile;
+
+    private final List<ArtifactId> featureIds = new ArrayList<>();
+
+    private final Map<ArtifactId, JarEntry> entries = new LinkedHashMap<>();
+
+    /**
+     * Open a feature archive.
+     *
+     * @param path The path of the archive
+     * @throws IOException If the file can't be read or is not a feature archive
+     */
+    public ArchiveFile(final Path path) throws IOException {
+        this.jarFile = new JarFile(path.toFile());
+        try {
+            for (final String id : ArchiveReader.checkHeaderAndExtractContents(this.jarFile.getManifest())) {
+                this.featureIds.add(ArtifactId.parse(id));
+            }
+            final Enumeration<JarEntry> e = this.jarFile.entries();
+            while (e.hasMoreElements()) {
+                final JarEntry entry = e.nextElement();
+                if (!entry.isDirectory() && !entry.getName().startsWith("META-INF/")) {
+                    try {
+                        this.entries.put(ArtifactId.fromMvnPath(entry.getName()), entry);
+                    } catch (final IllegalArgumentException iae) {
+                        // additional file, not an artifact
+                    }
+                }
+            }
+        } catch (final IOException | RuntimeException ex) {
+            this.jarFile.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Get the ids of the features listed in the manifest of the archive.
+     *
+     * @return The feature ids in the order of the manifest
+     */
+    public List<ArtifactId> getFeatureIds() {
+        return Collections.unmodifiableList(this.featureIds);
+    }
+
+    /**
+     * Get the ids of all artifacts in the archive, including the features.
+     *
+     * @return The artifact ids in the order of the archive
+     */
+    public Set<ArtifactId> getArtifactIds() {
+        return Collections.unmodifiableSet(this.entries.keySet());
+    }
+
+    /**
+     * Check whether the archive contains an artifact
+     *
+     * @param id The artifact id
+     * @return {@code true} if the artifact is in the archive
+     */
+    public boolean contains(final ArtifactId id) {
+        return this.entries.containsKey(id);
+    }
+
+    /**
+     * Get the size of an artifact
+     *
+     * @param id The artifact id
+     * @return The uncompressed size or {@code -1} if the artifact is not in the archive or the size is unknown
+     */
+    public long getSize(final ArtifactId id) {
+        final JarEntry entry = this.entries.get(id);
+        return entry == null ? -1 : entry.getSize();
+    }
+
+    /**
+     * Open an artifact. The caller must close the returned stream.
+     *
+     * @param id The artifact id
+     * @return The input stream or {@code null} if the artifact is not in the archive
+     * @throws IOException If the artifact can't be read
+     */
+    public InputStream open(final ArtifactId id) throws IOException {
+        final JarEntry entry = this.entries.get(id);
+        return entry == null ? null : this.jarFile.getInputStream(entry);
+    }
+
+    /**
+     * Read a feature from the archive
+     *
+     * @param id The feature id
+     * @return The feature
+     * @throws IOException If the feature is not in the archive or can't be read
+     */
+    public Feature readFeature(final ArtifactId id) throws IOException {
+        final JarEntry entry = this.entries.get(id);
+        if (entry == null) {
+            throw new IOException("Feature " + id.toMvnId() + " is missing in archive");
+        }
+        try (final Reader reader = new InputStreamReader(this.jarFile.getInputStream(entry), StandardCharsets.UTF_8)) {
+            return FeatureJSONReader.read(reader, entry.getName());
+        }
+    }
+
+    /**
+     * Read the features listed in the manifest of the archive
+     *
+     * @return The features in the order of the manifest
+     * @throws IOException If a feature is not in the archive or can't be read
+     */
+    public List<Feature> readFeatures() throws IOException {
+        final List<Feature> result = new ArrayList<>();
+        for (final ArtifactId id : this.featureIds) {
+            result.add(this.readFeature(id));
+        }
+        return result;
+    }
+
+    /**
+     * Verify that the archive contains the features listed in the manifest
+     * and all their artifacts. The artifacts are not read.
+     *
+     * @throws IOException If a feature or an artifact is missing
+     */
+    public void verify() throws IOException {
+        ArchiveReader.checkCompleteness(this.readFeatures(), this::contains);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.jarFile.close();
+    }
+}
@@ -27,9 +27,11 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
@@ -130,10 +132,22 @@ public class ArchiveReader {
             throw new IOException("Not a feature model archive - feature file is missing.");
         }
 
-        // check whether all artifacts from the models are in the archive
+        checkCompleteness(features, artifacts::contains);
+        return features;
+    }
+
+    /**
+     * Check whether all artifacts from the features are in the archive
+     *
+     * @param features The features
+     * @param contained Tests whether an artifact is in the archive
+     * @throws IOException If an artifact is missing
+     */
+    static void checkCompleteness(final Collection<Feature> features, final Predicate<ArtifactId> contained)
+            throws IOException {
         for (final Feature feature : features) {
             for (final Artifact a : feature.getBundles()) {
-                if (!artifacts.contains(a.getId())) {
+                if (!contained.test(a.getId())) {
                     throw new IOException("Artifact " + a.getId().toMvnId() + " is missing in archive");
                 }
             }
@@ -141,17 +155,16 @@ public class ArchiveReader {
             for (final Extension e : feature.getExtensions()) {
                 if (e.getType() == ExtensionType.ARTIFACTS) {
                     for (final Artifact a : e.getArtifacts()) {
-                        if (!artifacts.contains(a.getId())) {
+                        if (!contained.test(a.getId())) {
                             throw new IOException("Artifact " + a.getId().toMvnId() + " is missing in archive");
                         }
                     }
                 }
             }
         }
-        return features;
     }
 
-    private static String[] checkHeaderAndExtractContents(final Manifest manifest) throws IOException {
+    static String[] checkHeaderAndExtractContents(final Manifest manifest) throws IOException {
         if (manifest == null) {
             throw new IOException("Not a feature model archive - manifest is missing.");
         }
@@ -19,6 +19,7 @@
 package org.apache.sling.feature.io.archive;
 
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -26,8 +27,17 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.Writer;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -62,6 +72,26 @@ public class ArchiveWriter {
     /** Current support version of the feature model archive. */
     public static final int ARCHIVE_VERSION = 1;
 
+    /** The size of the buffer used to copy artifacts. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * A listener informed about each entry written into an archive.
+     * @since 1.1.0
+     */
+    @FunctionalInterface
+    public interface WriteListener {
+
+        /**
+         * Called after an entry for a feature or an artifact has been written.
+         *
+         * @param artifactId The id of the feature or artifact
+         * @param bytes      The number of bytes written for the entry, uncompressed
+         * @param nanos      The time it took to provide and write the entry in nanoseconds
+         */
+        void written(ArtifactId artifactId, long bytes, long nanos);
+    }
+
     /**
      * Create a feature model archive. The output stream will not be closed by this
      * method. The caller must call {@link JarOutputStream#close()}
@@ -89,6 +119,29 @@ public class ArchiveWriter {
             final ArtifactProvider provider,
             final Feature... features)
             throws IOException {
+        return write(out, baseManifest, provider, null, features);
+    }
+
+    /**
+     * Create a feature model archive and report each written entry to a listener.
+     * See {@link #write(OutputStream, Manifest, ArtifactProvider, Feature...)}.
+     *
+     * @param out          The output stream to write to
+     * @param baseManifest Optional base manifest used for creating the manifest.
+     * @param provider     The artifact provider
+     * @param listener     Optional listener informed about each written entry
+     * @param features     The features model to archive
+     * @return The jar output stream.
+     * @throws IOException If anything goes wrong
+     * @since 1.1.0
+     */
+    public static JarOutputStream write(
+            final OutputStream out,
+            final Manifest baseManifest,
+            final ArtifactProvider provider,
+            final WriteListener listener,
+            final Feature... features)
+            throws IOException {
         // create manifest
         final Manifest manifest = (baseManifest == null ? new Manifest() : new Manifest(baseManifest));
         manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
@@ -103,7 +156,7 @@ public class ArchiveWriter {
                                         .collect(Collectors.toList())));
 
         final Set<ArtifactId> artifacts = new HashSet<>();
-        final byte[] buffer = new byte[1024 * 1024 * 256];
+        final Context ctx = new Context(provider, listener);
 
         // create archive
         final JarOutputStream jos = new JarOutputStream(out, manifest);
@@ -111,12 +164,12 @@ public class ArchiveWriter {
         // write everything without compression
         jos.setLevel(Deflater.NO_COMPRESSION);
         for (final Feature feature : features) {
-            writeFeature(artifacts, feature, provider, jos, buffer);
+            writeFeature(artifacts, feature, ctx, jos, System.nanoTime());
         }
 
         for (final Feature feature : features) {
             for (final Artifact a : feature.getBundles()) {
-                writeArtifact(artifacts, provider, a, jos, buffer);
+                writeArtifact(artifacts, ctx, a, jos);
             }
 
             for (final Extension e : feature.getExtensions()) {
@@ -124,9 +177,9 @@ public class ArchiveWriter {
                     final boolean isFeature = Extension.EXTENSION_NAME_ASSEMBLED_FEATURES.equals(e.getName());
                     for (final Artifact a : e.getArtifacts()) {
                         if (isFeature) {
-                            writeFeature(artifacts, provider, a.getId(), jos, buffer);
+                            writeFeature(artifacts, ctx, a.getId(), jos);
                         } else {
-                            writeArtifact(artifacts, provider, a, jos, buffer);
+                            writeArtifact(artifacts, ctx, a, jos);
                         }
                     }
                 }
@@ -138,71 +191,169 @@ public class ArchiveWriter {
     private static void writeFeature(
             final Set<ArtifactId> artifacts,
             final Feature feature,
-            final ArtifactProvider provider,
+            final Context ctx,
             final JarOutputStream jos,
-            final byte[] buffer)
+            final long startTime)
             throws IOException {
         if (artifacts.add(feature.getId())) {
             final JarEntry entry = new JarEntry(feature.getId().toMvnPath());
             jos.putNextEntry(entry);
-            final Writer writer = new OutputStreamWriter(jos, StandardCharsets.UTF_8);
+            final CountingOutputStream counter = new CountingOutputStream(jos);
+            final Writer writer = new OutputStreamWriter(counter, StandardCharsets.UTF_8);
             FeatureJSONWriter.write(writer, feature);
             writer.flush();
             jos.closeEntry();
+            ctx.written(feature.getId(), counter.count, startTime);
 
             if (feature.getPrototype() != null) {
-                writeFeature(artifacts, provider, feature.getPrototype().getId(), jos, buffer);
+                writeFeature(artifacts, ctx, feature.getPrototype().getId(), jos);
             }
         }
     }
 
     private static void writeFeature(
-            final Set<ArtifactId> artifacts,
-            final ArtifactProvider provider,
-            final ArtifactId featureId,
-            final JarOutputStream jos,
-            final byte[] buffer)
+            final Set<ArtifactId> artifacts, final Context ctx, final ArtifactId featureId, final JarOutputStream jos)
             throws IOException {
         if (!artifacts.contains(featureId)) {
-            final URL url = provider.provide(featureId);
-            try (final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    final InputStream is = url.openStream()) {
-                int l = 0;
-                while ((l = is.read(buffer)) > 0) {
-                    baos.write(buffer, 0, l);
-                }
+            final long startTime = System.nanoTime();
+            final URL url = ctx.provider.provide(featureId);
+            try (final ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+                copy(url, baos, ctx.buffer);
                 final String contents = new String(baos.toByteArray(), StandardCharsets.UTF_8);
                 try (final Reader reader = new StringReader(contents)) {
                     final Feature feature = FeatureJSONReader.read(reader, featureId.toMvnId());
-                    writeFeature(artifacts, feature, provider, jos, buffer);
+                    writeFeature(artifacts, feature, ctx, jos, startTime);
                 }
             }
         }
     }
 
     private static void writeArtifact(
-            final Set<ArtifactId> artifacts,
-            final ArtifactProvider provider,
-            final Artifact artifact,
-            final JarOutputStream jos,
-            final byte[] buffer)
+            final Set<ArtifactId> artifacts, final Context ctx, final Artifact artifact, final JarOutputStream jos)
             throws IOException {
         if (artifacts.add(artifact.getId())) {
+            final long startTime = System.nanoTime();
             final JarEntry artifactEntry = new JarEntry(artifact.getId().toMvnPath());
             jos.putNextEntry(artifactEntry);
 
-            final URL url = provider.provide(artifact.getId());
+            final URL url = ctx.provider.provide(artifact.getId());
             if (url == null) {
                 throw new IOException(
                         "Unable to find artifact " + artifact.getId().toMvnId());
             }
+            final long bytes = copy(url, jos, ctx.buffer);
+            jos.closeEntry();
+            ctx.written(artifact.getId(), bytes, startTime);
+        }
+    }
+
+    /**
+     * Copy the contents of the url to the output stream. The output stream is not closed.
+     * Files are transferred through a file channel, all other urls are streamed.
+     *
+     * @param url The url
+     * @param out The output stream
+     * @param buffer The buffer to use for streaming
+     * @return The number of bytes copied
+     * @throws IOException If copying fails
+     */
+    private static long copy(final URL url, final OutputStream out, final byte[] buffer) throws IOException {
+        final Path path = toPath(url);
+        long count = 0;
+        if (path != null) {
+            try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                // the channel must not be closed as this would close the output stream
+                final WritableByteChannel target = Channels.newChannel(out);
+                final long size = channel.size();
+                while (count < size) {
+                    final long l = channel.transferTo(count, size - count, target);
+                    if (l <= 0) {
+                        break;
+                    }
+                    count += l;
+                }
+            }
+        } else {
             try (final InputStream is = url.openStream()) {
                 int l = 0;
                 while ((l = is.read(buffer)) > 0) {
-                    jos.write(buffer, 0, l);
+                    out.write(buffer, 0, l);
+                    count += l;
                 }
             }
-            jos.closeEntry();
+        }
+        return count;
+    }
+
+    /**
+     * Get the path of a file url
+     * @param url The url
+     * @return The path or {@code null} if the url does not point to a file
+     */
+    private static Path toPath(final URL url) {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                final Path path = Paths.get(url.toURI());
+                if (Files.isRegularFile(path)) {
+                    return path;
+                }
+            } catch (final URISyntaxException | IllegalArgumentException | FileSystemNotFoundException ignore) {
+                // fall back to streaming
+            }
+        }
+        return null;
+    }
+
+    /**
+     * State shared while writing a single archive.
+     */
+    private static final class Context {
+
+        final ArtifactProvider provider;
+
+        final WriteListener listener;
+
+        final byte[] buffer = new byte[BUFFER_SIZE];
+
+        Context(final ArtifactProvider provider, final WriteListener listener) {
+            this.provider = provider;
+            this.listener = listener;
+        }
+
+        void written(final ArtifactId id, final long bytes, final long startTime) {
+            if (this.listener != null) {
+                this.listener.written(id, bytes, System.nanoTime() - startTime);
+            }
+        }
+    }
+
+    /**
+     * Output stream counting the bytes written to the underlying stream.
+     * Closing this stream does not close the underlying stream.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        long count;
+
+        CountingOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.flush();
         }
     }
 }
@@ -19,29 +19,52 @@
 package org.apache.sling.feature.io.artifacts;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Reader;
 import java.lang.ProcessBuilder.Redirect;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -69,6 +92,15 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
     /** The configuration */
     private final ArtifactManagerConfig config;
 
+    /** The outcome of previous repository lookups. */
+    private final RepositoryLookupCache lookups;
+
+    /** The size limit of the cache directory. */
+    private final CacheEvictor evictor;
+
+    /** Running requests keyed by repository path. */
+    private final ConcurrentMap<String, CompletableFuture<ArtifactHandler>> inFlight = new ConcurrentHashMap<>();
+
     /**
      * Get an artifact manager based on the configuration
      * @param config The configuration
@@ -106,6 +138,16 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
             throws IOException {
         this.config = config;
         this.providers = providers;
+        final File cacheDirectory = config.getCacheDirectory();
+        this.lookups = new RepositoryLookupCache(
+                cacheDirectory == null ? null : cacheDirectory.toPath().resolve(RepositoryLookupCache.FILE_NAME),
+                config.getNegativeCacheTtl(),
+                config.isPreferLastSuccessfulRepository());
+        this.evictor = new CacheEvictor(
+                cacheDirectory == null ? null : cacheDirectory.toPath(),
+                config.getMaxCacheSize(),
+                config.getPinnedArtifacts());
+        this.evictor.evict();
         try {
             for (final ArtifactProvider provider : this.providers.values()) {
                 provider.init(config);
@@ -120,6 +162,8 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
      * Shutdown the artifact manager.
      */
     public void shutdown() {
+        this.lookups.save();
+        this.evictor.evict();
         for (final ArtifactProvider provider : this.providers.values()) {
             provider.shutdown();
         }
@@ -175,6 +219,25 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
         if (provider == null) {
             throw new IOException("No URL provider found for " + url);
         }
+        return getArtifact(provider, url, relativeCachePath);
+    }
+
+    /**
+     * Get the artifact from a provider. Failures of the default provider other
+     * than a missing artifact are reported as an exception, for other providers
+     * these can't be distinguished from a missing artifact.
+     *
+     * @param provider The provider
+     * @param url The artifact url
+     * @param relativeCachePath The relative cache path
+     * @return The local url or {@code null} if the artifact does not exist
+     * @throws IOException If the artifact can't be retrieved
+     */
+    private static URL getArtifact(final ArtifactProvider provider, final String url, final String relativeCachePath)
+            throws IOException {
+        if (provider instanceof DefaultArtifactHandler) {
+            return ((DefaultArtifactHandler) provider).resolve(url, relativeCachePath);
+        }
         return provider.getArtifact(url, relativeCachePath);
     }
 
@@ -213,7 +276,7 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
             }
             final URL file = this.getArtifactFromProviders(url, url.substring(pos));
             if (file == null) {
-                throw new IOException("Artifact " + url + " not found.");
+                throw new FileNotFoundException("Artifact " + url + " not found.");
             }
             return new ArtifactHandler(url, file);
 
@@ -225,9 +288,75 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
             }
             return new ArtifactHandler(f);
         }
+        final ArtifactHandler handler = this.getArtifactHandlerFromRepositories(path);
+        if (handler != null) {
+            return handler;
+        }
+        // if we have an artifact id and using mvn is enabled, we try this as a last
+        // resort
+        if (artifactId != null && this.config.isUseMvn()) {
+            final Path file =
+                    getArtifactsFromMvn(Collections.singleton(artifactId)).get(artifactId);
+            if (file != null) {
+                return new ArtifactHandler(file);
+            }
+        }
+        throw new IOException("Artifact " + url + " not found in any repository.");
+    }
+
+    /**
+     * Get the artifact handler for a repository path. If the same path is
+     * already being resolved by another thread, the result of that
+     * resolution is used.
+     *
+     * @param path The repository path
+     * @return The artifact handler or {@code null} if the artifact is not found in the repositories
+     * @throws IOException If something goes wrong
+     */
+    private ArtifactHandler getArtifactHandlerFromRepositories(final String path) throws IOException {
+        final CompletableFuture<ArtifactHandler> own = new CompletableFuture<>();
+        final CompletableFuture<ArtifactHandler> running = this.inFlight.putIfAbsent(path, own);
+        if (running != null) {
+            logger.debug("Waiting for running request for {}", path);
+            return await(running);
+        }
+        try {
+            final ArtifactHandler handler = this.queryRepositories(path);
+            own.complete(handler);
+            return handler;
+        } catch (final IOException | RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlight.remove(path, own);
+        }
+    }
+
+    private static ArtifactHandler await(final Future<ArtifactHandler> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for artifact");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private ArtifactHandler queryRepositories(final String path) throws IOException {
         logger.debug("Querying repositories for {}", path);
 
-        for (final String repoUrl : this.config.getRepositoryUrls()) {
+        for (final String repoUrl : this.lookups.order(this.config.getRepositoryUrls())) {
+            if (this.lookups.isMissing(repoUrl, path)) {
+                logger.debug("Skipping {} as {} has not been found there recently", repoUrl, path);
+                continue;
+            }
             final StringBuilder builder = new StringBuilder();
             builder.append(repoUrl);
             builder.append('/');
@@ -247,9 +376,18 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
 
             logger.debug("Checking {} to get artifact from {}", handler, artifactUrl);
 
-            final URL file = handler.getArtifact(artifactUrl, path);
+            final URL file;
+            try {
+                file = getArtifact(handler, artifactUrl, path);
+            } catch (final IOException e) {
+                // not a definite miss, don't remember it
+                logger.info("Unable to get artifact from " + artifactUrl, e);
+                continue;
+            }
             if (file != null) {
                 logger.debug("Found artifact {}", artifactUrl);
+                this.lookups.found(repoUrl, path);
+                this.accessed(file);
                 return new ArtifactHandler(artifactUrl, file);
             }
 
@@ -261,11 +399,11 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
                 // special snapshot handling
                 final String metadataUrl = artifactUrl.substring(0, lastSlash) + "/maven-metadata.xml";
                 try {
-                    final ArtifactHandler metadataHandler = this.getArtifactHandler(metadataUrl);
-
-                    final String contents = getFileContents(metadataHandler);
-
-                    final String latestVersion = getLatestSnapshot(contents);
+                    final String latestVersion = SnapshotMetadataCache.SHARED.getLatestSnapshot(
+                            metadataUrl,
+                            this.config.getSnapshotMetadataTtl(),
+                            this.config.isSnapshotMetadataOffline(),
+                            u -> getLatestSnapshot(getFileContents(this.getArtifactHandler(u))));
                     if (latestVersion != null) {
                         final String name = artifactUrl.substring(lastSlash); // includes slash
                         final String fullURL =
@@ -276,25 +414,117 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
                         }
                         final URL file2 = this.getArtifactFromProviders(fullURL, path);
                         if (file2 == null) {
-                            throw new IOException("Artifact " + fullURL + " not found.");
+                            throw new FileNotFoundException("Artifact " + fullURL + " not found.");
                         }
+                        this.lookups.found(repoUrl, path);
+                        this.accessed(file2);
                         return new ArtifactHandler(artifactUrl, file2);
                     }
-                } catch (final IOException ignore) {
+                } catch (final FileNotFoundException ignore) {
                     // we ignore this but report the original 404
+                } catch (final IOException e) {
+                    // not a definite miss, don't remember it
+                    logger.info("Unable to get snapshot artifact from " + artifactUrl, e);
+                    continue;
                 }
             }
+            this.lookups.missed(repoUrl, path);
         }
+        return null;
+    }
 
-        // if we have an artifact id and using mvn is enabled, we try this as a last
-        // resort
-        if (artifactId != null && this.config.isUseMvn()) {
-            final Path file = getArtifactFromMvn(artifactId);
-            if (file != null) {
-                return new ArtifactHandler(file);
+    /**
+     * Record the access to a file for the eviction from the cache directory
+     * @param url The url of the local file
+     */
+    private void accessed(final URL url) {
+        if (this.evictor.isEnabled() && "file".equals(url.getProtocol())) {
+            try {
+                this.evictor.accessed(Paths.get(url.toURI()));
+            } catch (final URISyntaxException | IllegalArgumentException ignore) {
+                // not a local file
             }
         }
-        throw new IOException("Artifact " + url + " not found in any repository.");
+    }
+
+    /**
+     * Get several artifacts in parallel, for example to fill the cache before
+     * the artifacts are used. At most {@link ArtifactManagerConfig#getPrefetchThreads()}
+     * artifacts are resolved at the same time. Each artifact is only
+     * resolved once, even if it is requested several times or if it is
+     * requested at the same time through {@link #getArtifactHandler(String)}.
+     *
+     * @param ids The artifact ids
+     * @return The report containing the handlers and the failures
+     * @since 1.3.0
+     */
+    public PrefetchReport prefetch(final Collection<ArtifactId> ids) {
+        final long start = System.currentTimeMillis();
+        final Set<ArtifactId> distinct = new LinkedHashSet<>(ids);
+        final Map<ArtifactId, ArtifactHandler> handlers = new LinkedHashMap<>();
+        final Map<ArtifactId, IOException> failures = new LinkedHashMap<>();
+        final List<ArtifactId> missing = new ArrayList<>();
+        if (!distinct.isEmpty()) {
+            final int threads = Math.max(1, Math.min(distinct.size(), this.config.getPrefetchThreads()));
+            final AtomicInteger counter = new AtomicInteger();
+            final ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+                final Thread t = new Thread(r, "ArtifactManager-prefetch-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                final Map<ArtifactId, Future<ArtifactHandler>> futures = new LinkedHashMap<>();
+                for (final ArtifactId id : distinct) {
+                    futures.put(id, executor.submit(() -> this.getArtifactHandlerFromRepositories(id.toMvnPath())));
+                }
+                for (final Map.Entry<ArtifactId, Future<ArtifactHandler>> entry : futures.entrySet()) {
+                    try {
+                        final ArtifactHandler handler = await(entry.getValue());
+                        if (handler != null) {
+                            handlers.put(entry.getKey(), handler);
+                        } else {
+                            missing.add(entry.getKey());
+                        }
+                    } catch (final InterruptedIOException e) {
+                        failures.put(entry.getKey(), e);
+                        break;
+                    } catch (final IOException e) {
+                        failures.put(entry.getKey(), e);
+                    } catch (final RuntimeException e) {
+                        failures.put(entry.getKey(), new IOException(e.getMessage(), e));
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            if (!missing.isEmpty()) {
+                // resolve all missing artifacts with mvn at once
+                final Map<ArtifactId, Path> files =
+                        this.config.isUseMvn() ? this.getArtifactsFromMvn(missing) : Collections.emptyMap();
+                for (final ArtifactId id : missing) {
+                    final Path file = files.get(id);
+                    if (file != null) {
+                        try {
+                            handlers.put(id, new ArtifactHandler(file));
+                        } catch (final IOException e) {
+                            failures.put(id, e);
+                        }
+                    } else {
+                        failures.put(
+                                id, new IOException("Artifact " + id.toMvnUrl() + " not found in any repository."));
+                    }
+                }
+            }
+            for (final ArtifactId id : distinct) {
+                if (!handlers.containsKey(id) && !failures.containsKey(id)) {
+                    failures.put(id, new InterruptedIOException("Prefetch of " + id.toMvnId() + " interrupted"));
+                }
+            }
+        }
+        final PrefetchReport report = new PrefetchReport(handlers, failures, System.currentTimeMillis() - start);
+        logger.debug(
+                "Prefetched {} artifacts, {} failed in {}ms", handlers.size(), failures.size(), report.getDuration());
+        return report;
     }
 
     protected String getFileContents(final ArtifactHandler handler) throws IOException {
@@ -353,6 +583,8 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
 
         private Path cacheDir;
 
+        private BlobStore blobs;
+
         private boolean isNewlyCreatedCacheDir;
         private ArtifactProviderContext config;
 
@@ -370,12 +602,14 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
                 this.cacheDir = Files.createTempDirectory("slingfeature");
                 isNewlyCreatedCacheDir = true;
             }
+            this.blobs = new BlobStore(this.cacheDir);
             this.config = config;
         }
 
         @Override
         public void shutdown() {
             this.config = null;
+            this.blobs = null;
             if (isNewlyCreatedCacheDir) {
                 try {
                     deleteDirectoryRecursively(cacheDir);
@@ -388,6 +622,24 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
 
         @Override
         public URL getArtifact(final String url, final String relativeCachePath) {
+            try {
+                return this.resolve(url, relativeCachePath);
+            } catch (final IOException e) {
+                logger.info("Artifact not found in one repository", e);
+                return null;
+            }
+        }
+
+        /**
+         * Get a local file for the artifact URL.
+         *
+         * @param url Artifact url
+         * @param relativeCachePath A relative path that can be used as a cache path
+         * @return A local url if the artifact exists or {@code null} if it does not exist
+         * @throws IOException If it can't be determined whether the artifact exists or
+         *         if it can't be downloaded
+         */
+        URL resolve(final String url, final String relativeCachePath) throws IOException {
             logger.debug("Checking url to be local file {}", url);
             // check if this is already a local file
             try {
@@ -422,36 +674,157 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
                         "/", java.nio.file.FileSystems.getDefault().getSeparator()));
                 if (!Files.exists(cacheFile)) {
                     Files.createDirectories(cacheFile.getParent());
-                    final URL u = new URL(url);
-                    final URLConnection con = u.openConnection();
-                    final String userInfo = u.getUserInfo();
-                    if (userInfo != null) {
-                        con.addRequestProperty(
-                                "Authorization",
-                                "Basic "
-                                        + Base64.getEncoder()
-                                                .encodeToString(
-                                                        u.toURI().getUserInfo().getBytes("UTF-8")));
-                    }
-                    con.connect();
-
-                    try (InputStream input = con.getInputStream()) {
-                        Files.copy(input, cacheFile);
-                    } catch (IOException e) {
-                        // TODO: Remove this logging statement when it settled down
-                        logger.debug("Failed to copy file", e);
-                        throw e;
+                    // another thread or process might download the same file, check again with the lock held
+                    final boolean downloaded = FileLocks.withLock(cacheFile, () -> {
+                        if (Files.exists(cacheFile)) {
+                            return false;
+                        }
+                        download(url, cacheFile);
+                        return true;
+                    });
+                    if (downloaded) {
+                        this.config.incDownloadedArtifacts();
+                    } else {
+                        this.config.incCachedArtifacts();
                     }
-                    this.config.incDownloadedArtifacts();
                 } else {
                     this.config.incCachedArtifacts();
                 }
                 return cacheFile.toUri().toURL();
-            } catch (final Exception e) {
-                logger.info("Artifact not found in one repository", e);
-                // ignore for now
+            } catch (final FileNotFoundException e) {
+                logger.debug("Artifact {} not found", url);
                 return null;
+            } catch (final RuntimeException e) {
+                throw new IOException("Unable to get artifact " + url, e);
+            }
+        }
+
+        /**
+         * Download the url into a temporary file and move it into the blob store
+         * once it is complete and verified. Readers of the cache file therefore
+         * never see a partially written file.
+         * @param url The url
+         * @param cacheFile The cache file
+         * @throws IOException If the download fails or the checksum does not match
+         */
+        private void download(final String url, final Path cacheFile) throws IOException {
+            final URLConnection con = openConnection(url);
+            if (con instanceof HttpURLConnection) {
+                final int status = ((HttpURLConnection) con).getResponseCode();
+                if (status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_GONE) {
+                    throw new FileNotFoundException(url);
+                }
+            }
+
+            final Path tempFile = Files.createTempFile(
+                    cacheFile.getParent(), cacheFile.getFileName().toString(), ".part");
+            try {
+                final MessageDigest sha256 = getDigest("SHA-256");
+                final MessageDigest sha1 = getDigest("SHA-1");
+                try (InputStream input =
+                        new DigestInputStream(new DigestInputStream(con.getInputStream(), sha256), sha1)) {
+                    final long size = Files.copy(input, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                    final long expectedSize = con.getContentLengthLong();
+                    if (expectedSize != -1 && expectedSize != size) {
+                        throw new IOException(
+                                "Incomplete download of " + url + " : " + size + " of " + expectedSize + " bytes");
+                    }
+                } catch (IOException e) {
+                    // TODO: Remove this logging statement when it settled down
+                    logger.debug("Failed to copy file", e);
+                    throw e;
+                }
+                final String sha256Hex = toHex(sha256.digest());
+                if (!verify(url, ".sha256", sha256Hex)) {
+                    verify(url, ".sha1", toHex(sha1.digest()));
+                }
+
+                final long size = Files.size(tempFile);
+                if (this.blobs.store(tempFile, sha256Hex, cacheFile)) {
+                    this.config.incDeduplicatedArtifacts(size);
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+
+        /**
+         * Verify the checksum against the checksum file provided by the repository.
+         * @param url The url of the artifact
+         * @param extension The extension of the checksum file
+         * @param checksum The checksum of the downloaded artifact
+         * @return {@code true} if the checksum has been verified, {@code false}
+         *         if the repository does not provide the checksum file
+         * @throws IOException If the checksum does not match
+         */
+        private boolean verify(final String url, final String extension, final String checksum) throws IOException {
+            final String expected;
+            try (InputStream input = openConnection(url.concat(extension)).getInputStream()) {
+                final String content = new String(readFully(input), StandardCharsets.US_ASCII).trim();
+                // the file might contain the file name after the checksum
+                final int pos = content.indexOf(' ');
+                expected = (pos == -1 ? content : content.substring(0, pos)).toLowerCase(Locale.ROOT);
+            } catch (final IOException e) {
+                logger.debug("No checksum file {} for {}", extension, url);
+                return false;
+            }
+            if (expected.length() != checksum.length()
+                    || !expected.chars().allMatch(c -> Character.digit(c, 16) != -1)) {
+                logger.debug("Ignoring invalid checksum file {} for {}", extension, url);
+                return false;
+            }
+            if (!expected.equals(checksum)) {
+                this.config.incInvalidArtifacts();
+                throw new IOException("Checksum mismatch for " + url + " : expected " + expected + ", got " + checksum);
+            }
+            return true;
+        }
+
+        private static URLConnection openConnection(final String url) throws IOException {
+            final URL u = new URL(url);
+            final URLConnection con = u.openConnection();
+            final String userInfo = u.getUserInfo();
+            if (userInfo != null) {
+                try {
+                    con.addRequestProperty(
+                            "Authorization",
+                            "Basic "
+                                    + Base64.getEncoder()
+                                            .encodeToString(
+                                                    u.toURI().getUserInfo().getBytes("UTF-8")));
+                } catch (final URISyntaxException e) {
+                    throw new IOException("Invalid url " + url, e);
+                }
             }
+            con.connect();
+            return con;
+        }
+
+        private static byte[] readFully(final InputStream input) throws IOException {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            int l;
+            while ((l = input.read(buffer)) != -1) {
+                out.write(buffer, 0, l);
+            }
+            return out.toByteArray();
+        }
+
+        private static MessageDigest getDigest(final String algorithm) {
+            try {
+                return MessageDigest.getInstance(algorithm);
+            } catch (final NoSuchAlgorithmException e) {
+                // every Java platform supports SHA-1 and SHA-256
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static String toHex(final byte[] digest) {
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
         }
 
         @Override
@@ -460,35 +833,64 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
         }
     }
 
-    private Path getArtifactFromMvn(final ArtifactId artifactId) {
-        final Path filePath = Paths.get(
-                config.getMvnHome(),
-                artifactId
-                        .toMvnPath()
-                        .replace("/", java.nio.file.FileSystems.getDefault().getSeparator()));
-        logger.debug("Trying to fetch artifact {} from local mvn repository {}", artifactId.toMvnId(), filePath);
-        if (!Files.exists(filePath) || !Files.isRegularFile(filePath) || Files.isReadable(filePath)) {
-            logger.debug("Trying to download {}", artifactId.toMvnId());
+    /**
+     * Get artifacts from the local mvn repository. Artifacts not available
+     * there are downloaded with a single mvn invocation.
+     *
+     * @param artifactIds The artifact ids
+     * @return The files of the available artifacts keyed by artifact id
+     */
+    private Map<ArtifactId, Path> getArtifactsFromMvn(final Collection<ArtifactId> artifactIds) {
+        final Map<ArtifactId, Path> result = new LinkedHashMap<>();
+        final List<ArtifactId> missing = new ArrayList<>();
+        for (final ArtifactId artifactId : artifactIds) {
+            final Path filePath = getMvnPath(artifactId);
+            logger.debug("Trying to fetch artifact {} from local mvn repository {}", artifactId.toMvnId(), filePath);
+            if (isReadableFile(filePath)) {
+                result.put(artifactId, filePath);
+            } else {
+                missing.add(artifactId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            logger.debug("Trying to download {} artifacts", missing.size());
             try {
-                this.downloadArtifact(artifactId);
+                this.downloadArtifacts(missing);
             } catch (final IOException ioe) {
-                logger.debug("Error downloading file.", ioe);
+                logger.debug("Error downloading files.", ioe);
             }
-            if (!Files.exists(filePath) || !Files.isRegularFile(filePath) || !Files.isReadable(filePath)) {
-                logger.info("Artifact not found {}", artifactId.toMvnId());
-
-                return null;
+            for (final ArtifactId artifactId : missing) {
+                final Path filePath = getMvnPath(artifactId);
+                if (isReadableFile(filePath)) {
+                    result.put(artifactId, filePath);
+                } else {
+                    logger.info("Artifact not found {}", artifactId.toMvnId());
+                }
             }
         }
-        return filePath;
+        return result;
+    }
+
+    private Path getMvnPath(final ArtifactId artifactId) {
+        return Paths.get(
+                config.getMvnHome(),
+                artifactId
+                        .toMvnPath()
+                        .replace("/", java.nio.file.FileSystems.getDefault().getSeparator()));
+    }
+
+    private static boolean isReadableFile(final Path filePath) {
+        return Files.exists(filePath) && Files.isRegularFile(filePath) && Files.isReadable(filePath);
     }
 
     /**
-     * Download artifact from maven
+     * Download artifacts from maven. A pom declaring all artifacts as dependencies
+     * is generated, so a single mvn invocation resolves all of them.
      *
-     * @throws IOException
+     * @param artifactIds The artifact ids
+     * @throws IOException If mvn can't be invoked
      */
-    private void downloadArtifact(final ArtifactId artifactId) throws IOException {
+    void downloadArtifacts(final Collection<ArtifactId> artifactIds) throws IOException {
         // create fake pom
         final Path dir = Files.createTempDirectory(null);
         try {
@@ -500,22 +902,33 @@ public class ArtifactManager implements AutoCloseable, org.apache.sling.feature.
             lines.add("    <artifactId>temp-artifact</artifactId>");
             lines.add("    <version>1-SNAPSHOT</version>");
             lines.add("    <dependencies>");
-            lines.add("        <dependency>");
-            lines.add("            <groupId>".concat(artifactId.getGroupId()).concat("</groupId>"));
-            lines.add("            <artifactId>"
-                    .concat(artifactId.getArtifactId())
-                    .concat("</artifactId>"));
-            lines.add("            <version>".concat(artifactId.getVersion()).concat("</version>"));
-            if (artifactId.getClassifier() != null) {
-                lines.add("            <classifier>"
-                        .concat(artifactId.getClassifier())
-                        .concat("</classifier>"));
-            }
-            if (!"bundle".equals(artifactId.getType()) && !"jar".equals(artifactId.getType())) {
-                lines.add("            <type>".concat(artifactId.getType()).concat("</type>"));
-            }
-            lines.add("            <scope>provided</scope>");
-            lines.add("        </dependency>");
+            for (final ArtifactId artifactId : artifactIds) {
+                lines.add("        <dependency>");
+                lines.add(
+                        "            <groupId>".concat(artifactId.getGroupId()).concat("</groupId>"));
+                lines.add("            <artifactId>"
+                        .concat(artifactId.getArtifactId())
+                        .concat("</artifactId>"));
+                lines.add(
+                        "            <version>".concat(artifactId.getVersion()).concat("</version>"));
+                if (artifactId.getClassifier() != null) {
+                    lines.add("            <classifier>"
+                            .concat(artifactId.getClassifier())
+                            .concat("</classifier>"));
+                }
+                if (!"bundle".equals(artifactId.getType()) && !"jar".equals(artifactId.getType())) {
+                    lines.add("            <type>".concat(artifactId.getType()).concat("</type>"));
+                }
+                lines.add("            <scope>provided</scope>");
+                // only the artifacts themselves are needed
+                lines.add("            <exclusions>");
+                lines.add("                <exclusion>");
+                lines.add("                    <groupId>*</groupId>");
+                lines.add("                    <artifactId>*</artifactId>");
+                lines.add("                </exclusion>");
+                lines.add("            </exclusions>");
+                lines.add("        </dependency>");
+            }
             lines.add("    </dependencies>");
             lines.add("</project>");
             logger.debug("Writing pom to {}", dir);
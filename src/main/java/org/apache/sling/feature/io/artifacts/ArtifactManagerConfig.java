@@ -25,8 +25,17 @@ import javax.xml.parsers.ParserConfigurationException;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.sling.feature.Artifact;
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Extension;
+import org.apache.sling.feature.ExtensionType;
+import org.apache.sling.feature.Feature;
 import org.apache.sling.feature.io.artifacts.spi.ArtifactProviderContext;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -57,9 +66,39 @@ public class ArtifactManagerConfig implements ArtifactProviderContext {
     /** Metrics for artifacts read locally. */
     private final AtomicLong localArtifacts = new AtomicLong();
 
+    /** Metrics for downloaded artifacts already contained in the cache. */
+    private final AtomicLong deduplicatedArtifacts = new AtomicLong();
+
+    /** Metrics for the size of downloaded artifacts already contained in the cache. */
+    private final AtomicLong deduplicatedBytes = new AtomicLong();
+
+    /** Metrics for downloaded artifacts with a checksum mismatch. */
+    private final AtomicLong invalidArtifacts = new AtomicLong();
+
     /** Whether locally mvn command can be used to download artifacts. */
     private boolean useMvn = false;
 
+    /** The maximum number of artifacts fetched in parallel. */
+    private int prefetchThreads = 8;
+
+    /** The time to remember that an artifact is missing in a repository. */
+    private long negativeCacheTtl = 0;
+
+    /** Whether the repository of the last successful lookup is queried first. */
+    private boolean preferLastSuccessfulRepository = false;
+
+    /** The time to reuse the latest snapshot version read from the maven metadata. */
+    private long snapshotMetadataTtl = 60 * 1000;
+
+    /** Whether the latest snapshot versions are reused regardless of their age. */
+    private boolean snapshotMetadataOffline = false;
+
+    /** The maximum size of the cache directory in bytes, 0 for no limit. */
+    private long maxCacheSize = 0;
+
+    /** Artifacts which are never evicted from the cache directory. */
+    private final Set<ArtifactId> pinnedArtifacts = new LinkedHashSet<>();
+
     /**
      * The .m2 directory.
      */
@@ -140,6 +179,17 @@ public class ArtifactManagerConfig implements ArtifactProviderContext {
         this.localArtifacts.incrementAndGet();
     }
 
+    @Override
+    public void incDeduplicatedArtifacts(final long size) {
+        this.deduplicatedArtifacts.incrementAndGet();
+        this.deduplicatedBytes.addAndGet(size);
+    }
+
+    @Override
+    public void incInvalidArtifacts() {
+        this.invalidArtifacts.incrementAndGet();
+    }
+
     /**
      * Get the number of cached artifacts
      * @return The number of cached artifacts
@@ -164,6 +214,49 @@ public class ArtifactManagerConfig implements ArtifactProviderContext {
         return this.localArtifacts.get();
     }
 
+    /**
+     * Get the number of downloaded artifacts whose content was already
+     * contained in the cache and therefore is not stored again.
+     * @return The number of deduplicated artifacts
+     * @since 1.3.0
+     */
+    public long getDeduplicatedArtifacts() {
+        return this.deduplicatedArtifacts.get();
+    }
+
+    /**
+     * Get the storage saved in the cache by deduplicating artifacts.
+     * @return The size of the deduplicated artifacts in bytes
+     * @since 1.3.0
+     */
+    public long getDeduplicatedBytes() {
+        return this.deduplicatedBytes.get();
+    }
+
+    /**
+     * Get the number of downloaded artifacts which have been rejected
+     * as their checksum does not match the checksum provided by the repository.
+     * @return The number of invalid artifacts
+     * @since 1.3.0
+     */
+    public long getInvalidArtifacts() {
+        return this.invalidArtifacts.get();
+    }
+
+    /**
+     * Get the size of the content stored in the cache directory.
+     * Each distinct content is only counted once.
+     * @return The size in bytes, 0 if no cache directory is set
+     * @throws IOException If the cache directory can't be read
+     * @since 1.3.0
+     */
+    public long getCacheSize() throws IOException {
+        if (this.cacheDirectory == null) {
+            return 0;
+        }
+        return new BlobStore(this.cacheDirectory.toPath()).getSize();
+    }
+
     /**
      * Should mvn be used if an artifact can't be found in the repositories
      *
@@ -184,6 +277,197 @@ public class ArtifactManagerConfig implements ArtifactProviderContext {
         this.useMvn = useMvn;
     }
 
+    /**
+     * Get the maximum number of artifacts fetched in parallel by
+     * {@link ArtifactManager#prefetch(java.util.Collection)}.
+     *
+     * @return The number of threads, defaults to 8
+     * @since 1.3.0
+     */
+    public int getPrefetchThreads() {
+        return this.prefetchThreads;
+    }
+
+    /**
+     * Set the maximum number of artifacts fetched in parallel by
+     * {@link ArtifactManager#prefetch(java.util.Collection)}.
+     *
+     * @param threads The number of threads, must be at least 1
+     * @throws IllegalArgumentException If threads is less than 1
+     * @since 1.3.0
+     */
+    public void setPrefetchThreads(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1: " + threads);
+        }
+        this.prefetchThreads = threads;
+    }
+
+    /**
+     * Get the time to remember that an artifact is missing in a remote repository.
+     * While remembered, the repository is not queried for the artifact again.
+     * If a cache directory is set, this information is stored there and shared
+     * with later runs.
+     *
+     * @return The time in milliseconds, 0 if disabled which is the default
+     * @since 1.3.0
+     */
+    public long getNegativeCacheTtl() {
+        return this.negativeCacheTtl;
+    }
+
+    /**
+     * Set the time to remember that an artifact is missing in a remote repository.
+     *
+     * @param ttl The time in milliseconds, 0 to disable
+     * @since 1.3.0
+     * @see #getNegativeCacheTtl()
+     */
+    public void setNegativeCacheTtl(final long ttl) {
+        this.negativeCacheTtl = Math.max(0, ttl);
+    }
+
+    /**
+     * Whether the repositories are queried in the order of their last
+     * successful lookup instead of the configured order.
+     *
+     * @return {@code true} if the most recently successful repository is queried first
+     * @since 1.3.0
+     */
+    public boolean isPreferLastSuccessfulRepository() {
+        return this.preferLastSuccessfulRepository;
+    }
+
+    /**
+     * Set whether the repositories are queried in the order of their last
+     * successful lookup instead of the configured order.
+     *
+     * @param flag {@code true} to query the most recently successful repository first
+     * @since 1.3.0
+     */
+    public void setPreferLastSuccessfulRepository(final boolean flag) {
+        this.preferLastSuccessfulRepository = flag;
+    }
+
+    /**
+     * Get the time the latest version of a snapshot artifact, as read from the
+     * maven metadata of a repository, is reused. The versions are shared by all
+     * {@link ArtifactManager} instances in this JVM.
+     *
+     * @return The time in milliseconds, 0 if the versions are not reused. Defaults to one minute.
+     * @since 1.3.0
+     */
+    public long getSnapshotMetadataTtl() {
+        return this.snapshotMetadataTtl;
+    }
+
+    /**
+     * Set the time the latest version of a snapshot artifact is reused.
+     *
+     * @param ttl The time in milliseconds, 0 to always read the maven metadata
+     * @since 1.3.0
+     * @see #getSnapshotMetadataTtl()
+     */
+    public void setSnapshotMetadataTtl(final long ttl) {
+        this.snapshotMetadataTtl = Math.max(0, ttl);
+    }
+
+    /**
+     * Whether the latest version of a snapshot artifact, once read, is reused
+     * regardless of the {@link #getSnapshotMetadataTtl() time to live}. This
+     * avoids repeated requests for the maven metadata while working offline.
+     *
+     * @return {@code true} if the versions do not expire
+     * @since 1.3.0
+     */
+    public boolean isSnapshotMetadataOffline() {
+        return this.snapshotMetadataOffline;
+    }
+
+    /**
+     * Set whether the latest version of a snapshot artifact, once read, is
+     * reused regardless of the time to live.
+     *
+     * @param flag {@code true} if the versions do not expire
+     * @since 1.3.0
+     * @see #isSnapshotMetadataOffline()
+     */
+    public void setSnapshotMetadataOffline(final boolean flag) {
+        this.snapshotMetadataOffline = flag;
+    }
+
+    /**
+     * Get the maximum size of the cache directory. If the artifacts in the
+     * cache directory exceed this size, the least recently used ones are
+     * removed when an {@link ArtifactManager} is created and shut down.
+     *
+     * @return The size in bytes, 0 if the size is not limited which is the default
+     * @since 1.3.0
+     */
+    public long getMaxCacheSize() {
+        return this.maxCacheSize;
+    }
+
+    /**
+     * Set the maximum size of the cache directory.
+     *
+     * @param size The size in bytes, 0 to not limit the size
+     * @since 1.3.0
+     * @see #getMaxCacheSize()
+     */
+    public void setMaxCacheSize(final long size) {
+        this.maxCacheSize = Math.max(0, size);
+    }
+
+    /**
+     * Get the artifacts which are never removed from the cache directory
+     * when the maximum cache size is exceeded. For a snapshot artifact,
+     * all its timestamped versions are pinned.
+     *
+     * @return The pinned artifacts
+     * @since 1.3.0
+     */
+    public @NotNull Set<ArtifactId> getPinnedArtifacts() {
+        return Collections.unmodifiableSet(this.pinnedArtifacts);
+    }
+
+    /**
+     * Pin artifacts, they are never removed from the cache directory.
+     *
+     * @param ids The artifact ids
+     * @since 1.3.0
+     * @see #getPinnedArtifacts()
+     */
+    public void pinArtifacts(final @NotNull Collection<ArtifactId> ids) {
+        this.pinnedArtifacts.addAll(ids);
+    }
+
+    /**
+     * Pin the feature and all artifacts referenced by the feature, they are
+     * never removed from the cache directory. This includes the prototype,
+     * the bundles and the artifacts of the artifact extensions.
+     *
+     * @param feature The feature
+     * @since 1.3.0
+     * @see #getPinnedArtifacts()
+     */
+    public void pinFeature(final @NotNull Feature feature) {
+        this.pinnedArtifacts.add(feature.getId());
+        if (feature.getPrototype() != null) {
+            this.pinnedArtifacts.add(feature.getPrototype().getId());
+        }
+        for (final Artifact a : feature.getBundles()) {
+            this.pinnedArtifacts.add(a.getId());
+        }
+        for (final Extension ext : feature.getExtensions()) {
+            if (ext.getType() == ExtensionType.ARTIFACTS) {
+                for (final Artifact a : ext.getArtifacts()) {
+                    this.pinnedArtifacts.add(a.getId());
+                }
+            }
+        }
+    }
+
     /**
      * Return mvn home
      *
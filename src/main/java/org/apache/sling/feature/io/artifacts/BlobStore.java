@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.io.artifacts;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.Stream;
+
+/**
+ * Content addressed storage for the artifact cache.
+ * <p>
+ * The content of each artifact is stored once as a blob named after its
+ * SHA-256 checksum in the directory {@link #DIRECTORY} of the cache directory.
+ * The files at the maven paths in the cache directory are hard links to these
+ * blobs. If the file system does not support hard links, the blob is copied.
+ * <p>
+ * This class is thread-safe.
+ */
+class BlobStore {
+
+    /** The name of the directory containing the blobs. */
+    static final String DIRECTORY = ".blobs";
+
+    private final Path blobDirectory;
+
+    /**
+     * Create a new store
+     * @param cacheDirectory The cache directory
+     */
+    BlobStore(final Path cacheDirectory) {
+        this.blobDirectory = cacheDirectory.resolve(DIRECTORY).resolve("sha256");
+    }
+
+    /**
+     * Get the path of a blob
+     * @param sha256 The SHA-256 checksum as a lower case hex string
+     * @return The path of the blob, which might not exist
+     */
+    Path getBlob(final String sha256) {
+        return this.blobDirectory.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    /**
+     * Store the content of a file and link it to the target path.
+     * The file is moved into the store or deleted if the blob already exists.
+     * The blob is linked while holding its lock, so that it can't be removed
+     * in the meantime.
+     * @param file The file with the content
+     * @param sha256 The SHA-256 checksum of the content
+     * @param target The target path
+     * @return {@code true} if the blob already existed
+     * @throws IOException If storing fails
+     */
+    boolean store(final Path file, final String sha256, final Path target) throws IOException {
+        final Path blob = getBlob(sha256);
+        Files.createDirectories(blob.getParent());
+        return FileLocks.withLock(blob, () -> {
+            final boolean exists = Files.exists(blob);
+            if (exists) {
+                Files.delete(file);
+            } else {
+                move(file, blob);
+            }
+            link(blob, target);
+            return exists;
+        });
+    }
+
+    /**
+     * Get the total size of all blobs
+     * @return The size in bytes
+     * @throws IOException If the store can't be read
+     */
+    long getSize() throws IOException {
+        if (!Files.isDirectory(this.blobDirectory)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(this.blobDirectory)) {
+            long size = 0;
+            for (final Path p : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(p) && !p.getFileName().toString().endsWith(FileLocks.SUFFIX)) {
+                    size += Files.size(p);
+                }
+            }
+            return size;
+        }
+    }
+
+    private static void link(final Path blob, final Path target) throws IOException {
+        final Path temp = target.resolveSibling(target.getFileName() + ".link");
+        Files.deleteIfExists(temp);
+        try {
+            Files.createLink(temp, blob);
+        } catch (final UnsupportedOperationException | IOException e) {
+            Files.copy(blob, temp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        try {
+            move(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Move a file atomically if supported by the file system
+     * @param source The source
+     * @param target The target, replaced if it exists
+     * @throws IOException If the move fails
+     */
+    static void move(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.io.artifacts;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.apache.sling.feature.ArtifactId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the size of the artifact cache directory.
+ * <p>
+ * The last access time and the size of each cached file is recorded in an
+ * index file in the cache directory. If the cached files exceed the maximum
+ * size, the least recently used files are removed. Files of pinned artifacts
+ * are never removed. The index is built by scanning the cache directory and
+ * afterwards updated incrementally with the accesses of this and other
+ * processes sharing the cache directory. To pick up files added or removed
+ * by other means, the cache directory is scanned again once the last scan
+ * is older than an hour.
+ * <p>
+ * The files in the cache directory are hard links to the blobs of the
+ * {@link BlobStore}. After files have been removed, blobs not linked by any
+ * file anymore are removed as well, if the file system reports link counts.
+ * As the size of each file is accounted for, content shared by several
+ * files is counted several times, which errs on the side of evicting more.
+ * <p>
+ * This class is thread-safe.
+ */
+class CacheEvictor {
+
+    /** The name of the index file in the cache directory. */
+    static final String FILE_NAME = ".access-index.properties";
+
+    /** The key of the time of the last scan in the index file. */
+    static final String SCANNED = ".scanned";
+
+    /** Time in milliseconds after which the cache directory is scanned again. */
+    private static final long SCAN_INTERVAL = 60 * 60 * 1000;
+
+    /** Pattern matching the timestamped version of a snapshot. */
+    private static final String TIMESTAMP = "\\d{8}\\.\\d{6}-\\d+";
+
+    /** Time in milliseconds a new blob is kept without being linked. */
+    private static final long BLOB_GRACE_PERIOD = 60 * 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Path cacheDirectory;
+
+    private final Path file;
+
+    /** The maximum size in bytes, 0 for no limit. */
+    private final long maxSize;
+
+    /** Paths of pinned artifacts. */
+    private final Set<String> pinnedPaths = new HashSet<>();
+
+    /** Paths of pinned snapshot artifacts, matching all timestamped versions. */
+    private final List<Pattern> pinnedSnapshots = new ArrayList<>();
+
+    /** Accesses since the last run keyed by the relative path. */
+    private final Map<String, Entry> accesses = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new evictor
+     *
+     * @param cacheDirectory The cache directory or {@code null}
+     * @param maxSize The maximum size in bytes, 0 for no limit
+     * @param pinned The pinned artifacts
+     */
+    CacheEvictor(final Path cacheDirectory, final long maxSize, final Collection<ArtifactId> pinned) {
+        this.cacheDirectory = cacheDirectory;
+        this.file = cacheDirectory == null ? null : cacheDirectory.resolve(FILE_NAME);
+        this.maxSize = maxSize;
+        if (pinned != null) {
+            for (final ArtifactId id : pinned) {
+                final String path = id.toMvnPath();
+                this.pinnedPaths.add(path);
+                if (id.getVersion().endsWith("-SNAPSHOT")) {
+                    // the file name is the artifact id, the version, the optional classifier and the type
+                    final int pos = path.lastIndexOf('/') + id.getArtifactId().length() + 2;
+                    final int end = pos + id.getVersion().length();
+                    this.pinnedSnapshots.add(Pattern.compile(Pattern.quote(path.substring(0, end - "SNAPSHOT".length()))
+                            .concat(TIMESTAMP)
+                            .concat(Pattern.quote(path.substring(end)))));
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the cache size is limited
+     * @return {@code true} if enabled
+     */
+    boolean isEnabled() {
+        return this.maxSize > 0 && this.cacheDirectory != null;
+    }
+
+    /**
+     * Record an access to a file. Files outside of the cache directory are ignored.
+     *
+     * @param path The file
+     */
+    void accessed(final Path path) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        final Path p = path.toAbsolutePath().normalize();
+        final Path dir = this.cacheDirectory.toAbsolutePath().normalize();
+        if (p.startsWith(dir) && !p.equals(dir)) {
+            final String relPath = toRelativePath(dir.relativize(p));
+            if (isCachedFile(relPath)) {
+                try {
+                    this.accesses.put(relPath, new Entry(System.currentTimeMillis(), Files.size(p)));
+                } catch (final IOException e) {
+                    // ignore, file has been removed
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge the recorded accesses into the index and remove the least
+     * recently used files until the cache size is below the maximum.
+     */
+    void evict() {
+        if (!this.isEnabled() || !Files.isDirectory(this.cacheDirectory)) {
+            return;
+        }
+        try {
+            FileLocks.withLock(this.file, () -> {
+                Map<String, Entry> index = this.load();
+                final Entry scanned = index.remove(SCANNED);
+                long scanTime = scanned == null ? 0 : scanned.lastAccess;
+                if (scanTime + SCAN_INTERVAL < System.currentTimeMillis()) {
+                    scanTime = System.currentTimeMillis();
+                    index = this.scan(index);
+                }
+                for (final Map.Entry<String, Entry> e : this.accesses.entrySet()) {
+                    index.merge(e.getKey(), e.getValue(), (a, b) -> a.lastAccess >= b.lastAccess ? a : b);
+                    this.accesses.remove(e.getKey(), e.getValue());
+                }
+                long size = 0;
+                for (final Entry e : index.values()) {
+                    size += e.size;
+                }
+                boolean removed = false;
+                if (size > this.maxSize) {
+                    final List<Map.Entry<String, Entry>> candidates = new ArrayList<>(index.entrySet());
+                    candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+                    for (final Map.Entry<String, Entry> e : candidates) {
+                        if (size <= this.maxSize) {
+                            break;
+                        }
+                        if (!this.isPinned(e.getKey())) {
+                            this.remove(e.getKey());
+                            removed = true;
+                            index.remove(e.getKey());
+                            size -= e.getValue().size;
+                        }
+                    }
+                    if (size > this.maxSize) {
+                        logger.warn(
+                                "Artifact cache in {} exceeds maximum size of {} bytes with pinned artifacts",
+                                this.cacheDirectory,
+                                this.maxSize);
+                    }
+                }
+                if (removed) {
+                    this.removeUnusedBlobs();
+                }
+                this.store(index, scanTime);
+                return null;
+            });
+        } catch (final IOException e) {
+            logger.warn("Unable to evict artifacts from cache " + this.cacheDirectory, e);
+        }
+    }
+
+    /**
+     * Check whether a file belongs to a pinned artifact
+     * @param relPath The path relative to the cache directory
+     * @return {@code true} if the file must not be removed
+     */
+    boolean isPinned(final String relPath) {
+        if (this.pinnedPaths.contains(relPath)) {
+            return true;
+        }
+        for (final Pattern pattern : this.pinnedSnapshots) {
+            if (pattern.matcher(relPath).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remove(final String relPath) throws IOException {
+        final Path p = this.cacheDirectory.resolve(relPath);
+        // empty directories are kept, as another process might be about to download into them
+        Files.deleteIfExists(p);
+        logger.debug("Evicted {} from artifact cache", relPath);
+    }
+
+    /**
+     * Remove the blobs which are not linked by any file anymore. Blobs which
+     * have just been stored are kept, as they might not be linked yet.
+     * @throws IOException If removing fails
+     */
+    private void removeUnusedBlobs() throws IOException {
+        final Path blobs = this.cacheDirectory.resolve(BlobStore.DIRECTORY);
+        if (!Files.isDirectory(blobs)) {
+            return;
+        }
+        final long threshold = System.currentTimeMillis() - BLOB_GRACE_PERIOD;
+        final List<Path> candidates = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(blobs)) {
+            for (final Path blob : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(blob)
+                        && !blob.getFileName().toString().endsWith(FileLocks.SUFFIX)
+                        && Files.getLastModifiedTime(blob).toMillis() < threshold
+                        && isUnlinked(blob)) {
+                    candidates.add(blob);
+                }
+            }
+        } catch (final UnsupportedOperationException | IllegalArgumentException e) {
+            // link count not supported by the file system, blobs are kept
+            return;
+        }
+        for (final Path blob : candidates) {
+            // the blob store links blobs while holding the lock
+            FileLocks.withLock(blob, () -> {
+                if (Files.exists(blob) && isUnlinked(blob)) {
+                    Files.delete(blob);
+                }
+                return null;
+            });
+        }
+    }
+
+    private static boolean isUnlinked(final Path blob) throws IOException {
+        return Integer.valueOf(1).equals(Files.getAttribute(blob, "unix:nlink"));
+    }
+
+    /**
+     * Scan the cache directory. The last access of files already in the index is kept.
+     * @param index The current index
+     * @return The new index
+     * @throws IOException If scanning fails
+     */
+    private Map<String, Entry> scan(final Map<String, Entry> index) throws IOException {
+        final Map<String, Entry> result = new HashMap<>();
+        try (Stream<Path> files = Files.walk(this.cacheDirectory)) {
+            for (final Path p : (Iterable<Path>) files::iterator) {
+                final String relPath = toRelativePath(this.cacheDirectory.relativize(p));
+                if (isCachedFile(relPath) && Files.isRegularFile(p)) {
+                    final Entry known = index.get(relPath);
+                    final long lastModified = Files.getLastModifiedTime(p).toMillis();
+                    result.put(
+                            relPath,
+                            new Entry(
+                                    known == null ? lastModified : Math.max(known.lastAccess, lastModified),
+                                    Files.size(p)));
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Entry> load() {
+        final Map<String, Entry> result = new HashMap<>();
+        if (!Files.exists(this.file)) {
+            return result;
+        }
+        final Properties props = new Properties();
+        try (final InputStream in = Files.newInputStream(this.file)) {
+            props.load(in);
+        } catch (final IOException e) {
+            logger.warn("Unable to read artifact cache index from " + this.file, e);
+            return result;
+        }
+        for (final String key : props.stringPropertyNames()) {
+            final String value = props.getProperty(key);
+            final int pos = value.indexOf(',');
+            try {
+                result.put(
+                        key,
+                        new Entry(Long.parseLong(value.substring(0, pos)), Long.parseLong(value.substring(pos + 1))));
+            } catch (final NumberFormatException | IndexOutOfBoundsException ignore) {
+                // ignore invalid entry
+            }
+        }
+        return result;
+    }
+
+    private void store(final Map<String, Entry> index, final long scanTime) throws IOException {
+        final Properties props = new Properties();
+        for (final Map.Entry<String, Entry> e : index.entrySet()) {
+            props.setProperty(e.getKey(), e.getValue().lastAccess + "," + e.getValue().size);
+        }
+        props.setProperty(SCANNED, scanTime + ",0");
+        final Path tmp = Files.createTempFile(this.cacheDirectory, FILE_NAME, ".tmp");
+        try {
+            try (final OutputStream out = Files.newOutputStream(tmp)) {
+                props.store(out, "Last access and size of cached artifacts");
+            }
+            BlobStore.move(tmp, this.file);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static String toRelativePath(final Path path) {
+        final StringBuilder sb = new StringBuilder();
+        for (final Path element : path) {
+            if (sb.length() > 0) {
+                sb.append('/');
+            }
+            sb.append(element.toString());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Whether the path is an artifact file. Files and directories starting
+     * with a dot in the cache directory, lock files and files being written
+     * are not.
+     * @param relPath The relative path
+     * @return {@code true} for an artifact file
+     */
+    private static boolean isCachedFile(final String relPath) {
+        return !relPath.isEmpty()
+                && !relPath.startsWith(".")
+                && !relPath.endsWith(FileLocks.SUFFIX)
+                && !relPath.endsWith(".part")
+                && !relPath.endsWith(".link");
+    }
+
+    private static final class Entry {
+
+        final long lastAccess;
+
+        final long size;
+
+        Entry(final long lastAccess, final long size) {
+            this.lastAccess = lastAccess;
+            this.size = size;
+        }
+    }
+}
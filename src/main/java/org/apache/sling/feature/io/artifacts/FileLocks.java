@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.io.artifacts;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive locks for files in a cache directory.
+ * <p>
+ * A lock is held for a file path, both against other threads in this JVM
+ * and against other processes using the same cache directory. The latter
+ * uses a file lock on a sibling lock file with the suffix {@link #SUFFIX}.
+ * As file locks are held on behalf of the whole JVM, threads are coordinated
+ * with an additional in-memory lock per path.
+ * <p>
+ * The lock file is deleted before the lock is released, unless another
+ * thread of this JVM is waiting for the lock. A deleted lock file is marked
+ * as such, so that a process which opened it before it was deleted notices
+ * this once it gets the lock, and retries with a new lock file.
+ * <p>
+ * This class is thread-safe.
+ */
+final class FileLocks {
+
+    /** The suffix of the lock files. */
+    static final String SUFFIX = ".lock";
+
+    /** The content of a deleted lock file, a new lock file is empty. */
+    private static final byte[] DELETED = {1};
+
+    /** The in-memory locks for the paths, with a count of the current users. */
+    private static final ConcurrentMap<Path, Entry> LOCKS = new ConcurrentHashMap<>();
+
+    private FileLocks() {}
+
+    /**
+     * An action executed while holding a lock
+     * @param <T> The result type
+     */
+    @FunctionalInterface
+    interface Action<T> {
+
+        /**
+         * Execute the action
+         * @return The result
+         * @throws IOException If the action fails
+         */
+        T execute() throws IOException;
+    }
+
+    /**
+     * Execute the action while holding the lock for the file. The parent
+     * directory of the file must exist.
+     * @param <T> The result type
+     * @param file The file
+     * @param action The action
+     * @return The result of the action
+     * @throws IOException If the lock can't be acquired or the action fails
+     */
+    static <T> T withLock(final Path file, final Action<T> action) throws IOException {
+        final Path key = file.toAbsolutePath().normalize();
+        final Entry entry = LOCKS.compute(key, (k, e) -> {
+            final Entry result = e == null ? new Entry() : e;
+            result.users++;
+            return result;
+        });
+        try {
+            entry.lock.lockInterruptibly();
+        } catch (final InterruptedException e) {
+            release(key);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for lock on " + file, e);
+        }
+        try {
+            final Path lockFile =
+                    key.resolveSibling(key.getFileName().toString().concat(SUFFIX));
+            while (true) {
+                try (FileChannel channel =
+                                FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                        FileLock lock = channel.lock()) {
+                    if (channel.size() > 0) {
+                        // deleted by another process while waiting for the lock
+                        continue;
+                    }
+                    try {
+                        return action.execute();
+                    } finally {
+                        if (!entry.lock.hasQueuedThreads()) {
+                            delete(channel, lockFile);
+                        }
+                    }
+                }
+            }
+        } finally {
+            entry.lock.unlock();
+            release(key);
+        }
+    }
+
+    /**
+     * Delete the lock file while holding the lock and mark it as deleted.
+     * @param channel The channel of the lock file
+     * @param lockFile The lock file
+     */
+    private static void delete(final FileChannel channel, final Path lockFile) {
+        try {
+            Files.delete(lockFile);
+            channel.write(ByteBuffer.wrap(DELETED));
+        } catch (final IOException ignore) {
+            // the lock file is kept or reused
+        }
+    }
+
+    private static void release(final Path key) {
+        LOCKS.computeIfPresent(key, (k, e) -> --e.users == 0 ? null : e);
+    }
+
+    private static final class Entry {
+
+        final ReentrantLock lock = new ReentrantLock();
+
+        /** Only modified within the map operations for the key. */
+        int users;
+    }
+}
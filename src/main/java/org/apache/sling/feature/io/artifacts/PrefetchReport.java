@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.io.artifacts;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.sling.feature.ArtifactId;
+
+/**
+ * The result of {@link ArtifactManager#prefetch(java.util.Collection)}.
+ *
+ * @since 1.3.0
+ */
+public class PrefetchReport {
+
+    private final Map<ArtifactId, ArtifactHandler> handlers;
+
+    private final Map<ArtifactId, IOException> failures;
+
+    private final long duration;
+
+    PrefetchReport(
+            final Map<ArtifactId, ArtifactHandler> handlers,
+            final Map<ArtifactId, IOException> failures,
+            final long duration) {
+        this.handlers = Collections.unmodifiableMap(handlers);
+        this.failures = Collections.unmodifiableMap(failures);
+        this.duration = duration;
+    }
+
+    /**
+     * Get the handlers of the artifacts which have been fetched
+     *
+     * @return The handlers keyed by artifact id
+     */
+    public Map<ArtifactId, ArtifactHandler> getHandlers() {
+        return this.handlers;
+    }
+
+    /**
+     * Get the artifacts which could not be fetched
+     *
+     * @return The errors keyed by artifact id
+     */
+    public Map<ArtifactId, IOException> getFailures() {
+        return this.failures;
+    }
+
+    /**
+     * Check whether all artifacts have been fetched
+     *
+     * @return {@code true} if no artifact failed
+     */
+    public boolean isComplete() {
+        return this.failures.isEmpty();
+    }
+
+    /**
+     * Get the time it took to fetch all artifacts
+     *
+     * @return The duration in milliseconds
+     */
+    public long getDuration() {
+        return this.duration;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.io.artifacts;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the outcome of repository lookups.
+ * <p>
+ * Lookups of a path in a repository which did not find the artifact are
+ * remembered for a configured time and can be skipped. The misses are
+ * persisted in a file, so they are shared with later runs. Misses in local
+ * file repositories are not remembered, as checking them is cheap and their
+ * contents change often.
+ * <p>
+ * In addition, the repositories can be ordered by their last successful
+ * lookup.
+ * <p>
+ * This class is thread-safe.
+ */
+class RepositoryLookupCache {
+
+    /** The name of the file storing the misses in the cache directory. */
+    static final String FILE_NAME = ".repository-misses.properties";
+
+    private static final String SEPARATOR = "|";
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /** The file storing the misses, might be {@code null}. */
+    private final Path file;
+
+    /** The time to remember a miss in milliseconds, 0 to disable. */
+    private final long ttl;
+
+    /** Whether the repositories are ordered by their last successful lookup. */
+    private final boolean ordered;
+
+    /** Expiry time of misses keyed by repository and path. */
+    private final Map<String, Long> misses = new ConcurrentHashMap<>();
+
+    /** Sequence number of the last successful lookup keyed by repository. */
+    private final Map<String, Long> lastSuccess = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Create a new cache
+     *
+     * @param file The file to store the misses or {@code null}
+     * @param ttl The time to remember a miss in milliseconds, 0 to disable
+     * @param ordered Whether the repositories are ordered by their last successful lookup
+     */
+    RepositoryLookupCache(final Path file, final long ttl, final boolean ordered) {
+        this.file = file;
+        this.ttl = ttl;
+        this.ordered = ordered;
+        if (this.ttl > 0 && this.file != null) {
+            this.misses.putAll(this.load());
+        }
+    }
+
+    /**
+     * Get the repositories in the order they should be queried
+     *
+     * @param repositories The configured repositories
+     * @return The repositories
+     */
+    List<String> order(final String[] repositories) {
+        final List<String> result = new ArrayList<>(Arrays.asList(repositories));
+        if (this.ordered && !this.lastSuccess.isEmpty()) {
+            // stable sort, repositories without success keep the configured order
+            result.sort(Comparator.comparingLong(repo -> -this.lastSuccess.getOrDefault(repo, -1L)));
+        }
+        return result;
+    }
+
+    /**
+     * Check whether a lookup is known to miss
+     *
+     * @param repository The repository url
+     * @param path The path
+     * @return {@code true} if the lookup can be skipped
+     */
+    boolean isMissing(final String repository, final String path) {
+        if (this.ttl <= 0) {
+            return false;
+        }
+        final String key = repository.concat(SEPARATOR).concat(path);
+        final Long expiry = this.misses.get(key);
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry < System.currentTimeMillis()) {
+            this.misses.remove(key, expiry);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remember a lookup without result
+     *
+     * @param repository The repository url
+     * @param path The path
+     */
+    void missed(final String repository, final String path) {
+        if (this.ttl > 0 && !repository.startsWith("file:")) {
+            this.misses.put(repository.concat(SEPARATOR).concat(path), System.currentTimeMillis() + this.ttl);
+        }
+    }
+
+    /**
+     * Remember a successful lookup
+     *
+     * @param repository The repository url
+     * @param path The path
+     */
+    void found(final String repository, final String path) {
+        this.lastSuccess.put(repository, this.sequence.incrementAndGet());
+        if (this.ttl > 0) {
+            this.misses.remove(repository.concat(SEPARATOR).concat(path));
+        }
+    }
+
+    /**
+     * Persist the misses. Misses stored by other processes in the meantime are kept.
+     */
+    void save() {
+        if (this.ttl <= 0 || this.file == null) {
+            return;
+        }
+        final Map<String, Long> current = this.load();
+        current.putAll(this.misses);
+        final long now = System.currentTimeMillis();
+        final Properties props = new Properties();
+        for (final Map.Entry<String, Long> entry : current.entrySet()) {
+            if (entry.getValue() >= now) {
+                props.setProperty(entry.getKey(), entry.getValue().toString());
+            }
+        }
+        try {
+            Files.createDirectories(this.file.getParent());
+            final Path tmp = Files.createTempFile(this.file.getParent(), FILE_NAME, ".tmp");
+            try {
+                try (final OutputStream out = Files.newOutputStream(tmp)) {
+                    props.store(out, "Repository lookups without result");
+                }
+                try {
+                    Files.move(tmp, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (final AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (final IOException e) {
+            logger.warn("Unable to store repository misses in " + this.file, e);
+        }
+    }
+
+    private Map<String, Long> load() {
+        final Map<String, Long> result = new ConcurrentHashMap<>();
+        if (Files.isRegularFile(this.file)) {
+            final Properties props = new Properties();
+            try (final InputStream in = Files.newInputStream(this.file)) {
+                props.load(in);
+            } catch (final IOException e) {
+                logger.warn("Unable to read repository misses from " + this.file, e);
+                return result;
+            }
+            final long now = System.currentTimeMillis();
+            for (final String key : props.stringPropertyNames()) {
+                try {
+                    final long expiry = Long.parseLong(props.getProperty(key));
+                    if (expiry >= now) {
+                        result.put(key, expiry);
+                    }
+                } catch (final NumberFormatException ignore) {
+                    // ignore invalid entry
+                }
+            }
+        }
+        return result;
+    }
+}
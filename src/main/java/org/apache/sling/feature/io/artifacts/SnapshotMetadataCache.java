@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.io.artifacts;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache for the latest snapshot versions read from the maven metadata of
+ * snapshot artifact directories in the repositories. The entries are keyed
+ * by the url of the metadata, which identifies the repository and the
+ * artifact directory.
+ * <p>
+ * This class is thread-safe.
+ */
+class SnapshotMetadataCache {
+
+    /** The cache shared by all artifact managers. */
+    static final SnapshotMetadataCache SHARED = new SnapshotMetadataCache();
+
+    /**
+     * Reads the latest snapshot version from the metadata
+     */
+    @FunctionalInterface
+    interface Loader {
+
+        /**
+         * Load the latest snapshot version
+         * @param metadataUrl The url of the metadata
+         * @return The latest snapshot version or {@code null} if the metadata does not contain it
+         * @throws IOException If the metadata can't be read
+         */
+        String load(String metadataUrl) throws IOException;
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Get the latest snapshot version. If there is no valid entry in the cache,
+     * the version is loaded and cached. Failures to load the version are not cached.
+     *
+     * @param metadataUrl The url of the metadata
+     * @param ttl The time in milliseconds an entry is valid, 0 to disable the cache
+     * @param offline If {@code true} entries are valid regardless of their age
+     * @param loader The loader for the version
+     * @return The latest snapshot version or {@code null}
+     * @throws IOException If the version can't be loaded
+     */
+    String getLatestSnapshot(final String metadataUrl, final long ttl, final boolean offline, final Loader loader)
+            throws IOException {
+        if (ttl <= 0 && !offline) {
+            return loader.load(metadataUrl);
+        }
+        final long now = System.currentTimeMillis();
+        final Entry entry = this.entries.get(metadataUrl);
+        if (entry != null && (offline || now - entry.created < ttl)) {
+            return entry.version;
+        }
+        final String version = loader.load(metadataUrl);
+        this.entries.put(metadataUrl, new Entry(version, now));
+        return version;
+    }
+
+    /**
+     * Remove all entries
+     */
+    void clear() {
+        this.entries.clear();
+    }
+
+    private static final class Entry {
+
+        final String version;
+
+        final long created;
+
+        Entry(final String version, final long created) {
+            this.version = version;
+            this.created = created;
+        }
+    }
+}
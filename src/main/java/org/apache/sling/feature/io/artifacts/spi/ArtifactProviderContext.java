@@ -48,4 +48,19 @@ public interface ArtifactProviderContext {
      * Inform about an artifact found locally.
      */
     void incLocalArtifacts();
+
+    /**
+     * Inform about a downloaded artifact whose content was already stored
+     * in the cache, for example under different coordinates.
+     * @param size The size of the artifact in bytes
+     * @since 1.1.0
+     */
+    void incDeduplicatedArtifacts(long size);
+
+    /**
+     * Inform about a downloaded artifact which has been rejected as its
+     * checksum does not match the checksum provided by the repository.
+     * @since 1.1.0
+     */
+    void incInvalidArtifacts();
 }
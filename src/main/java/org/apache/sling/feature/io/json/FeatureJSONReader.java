@@ -21,9 +21,11 @@ package org.apache.sling.feature.io.json;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -37,6 +39,8 @@ import jakarta.json.JsonString;
 import jakarta.json.JsonStructure;
 import jakarta.json.JsonValue;
 import jakarta.json.JsonValue.ValueType;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParser.Event;
 import org.apache.felix.cm.json.io.ConfigurationReader;
 import org.apache.felix.cm.json.io.ConfigurationReader.ConfiguratorPropertyHandler;
 import org.apache.felix.cm.json.io.ConfigurationResource;
@@ -44,6 +48,7 @@ import org.apache.felix.utils.resource.CapabilityImpl;
 import org.apache.felix.utils.resource.RequirementImpl;
 import org.apache.sling.feature.Artifact;
 import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.ArtifactIdInterner;
 import org.apache.sling.feature.Bundles;
 import org.apache.sling.feature.Configuration;
 import org.apache.sling.feature.Configurations;
@@ -58,7 +63,7 @@ import org.osgi.resource.Capability;
 import org.osgi.resource.Resource;
 
 /**
- * This class offers a static method to read a {@code Feature} using a {@code Reader} instance.
+ * This class offers static methods to read a {@code Feature} using a {@code Reader} instance.
  */
 public class FeatureJSONReader {
 
@@ -72,14 +77,77 @@ public class FeatureJSONReader {
      * @throws IOException If an IO errors occurs or the JSON is invalid.
      */
     public static Feature read(final Reader reader, final String location) throws IOException {
+        return read(reader, location, null);
+    }
+
+    /**
+     * Read a new feature from the reader
+     * The reader is not closed. It is up to the caller to close the reader.
+     * The artifact ids of the feature, like the id of the feature and of its
+     * artifacts, are mapped to their canonical instances by the provided interner.
+     *
+     * @param reader The reader for the feature
+     * @param location Optional location
+     * @param interner Optional interner for the artifact ids
+     * @return The read feature
+     * @throws IOException If an IO errors occurs or the JSON is invalid.
+     * @since 2.1.0
+     */
+    public static Feature read(final Reader reader, final String location, final ArtifactIdInterner interner)
+            throws IOException {
         try {
-            final FeatureJSONReader mr = new FeatureJSONReader(location);
+            final FeatureJSONReader mr = new FeatureJSONReader(location, interner);
             return mr.readFeature(reader);
         } catch (final IllegalStateException | IllegalArgumentException | JsonException e) {
             throw new IOException(e);
         }
     }
 
+    /**
+     * Read a new feature from the reader using a streaming parser.
+     * Unlike {@link #read(Reader, String)} the document is not materialized
+     * as a whole. Bundles, configurations and extensions are created
+     * while the document is parsed, only single entries like a bundle,
+     * a configuration or the value of a JSON extension are kept in memory
+     * as JSON structures. The result and the validation are the same as
+     * with {@link #read(Reader, String)}.
+     * The reader is not closed. It is up to the caller to close the reader.
+     *
+     * @param reader The reader for the feature
+     * @param location Optional location
+     * @return The read feature
+     * @throws IOException If an IO errors occurs or the JSON is invalid.
+     * @since 2.1.0
+     */
+    public static Feature readStreaming(final Reader reader, final String location) throws IOException {
+        return readStreaming(reader, location, null);
+    }
+
+    /**
+     * Read a new feature from the reader using a streaming parser, see
+     * {@link #readStreaming(Reader, String)}.
+     * The reader is not closed. It is up to the caller to close the reader.
+     * The artifact ids of the feature, like the id of the feature and of its
+     * artifacts, are mapped to their canonical instances by the provided interner.
+     *
+     * @param reader The reader for the feature
+     * @param location Optional location
+     * @param interner Optional interner for the artifact ids
+     * @return The read feature
+     * @throws IOException If an IO errors occurs or the JSON is invalid.
+     * @since 2.1.0
+     */
+    public static Feature readStreaming(final Reader reader, final String location, final ArtifactIdInterner interner)
+            throws IOException {
+        try {
+            final FeatureJSONReader mr = new FeatureJSONReader(location, interner);
+            return mr.readFeature(
+                    Json.createParser(org.apache.felix.cm.json.io.Configurations.jsonCommentAwareReader(reader)));
+        } catch (final IllegalStateException | IllegalArgumentException | JsonException e) {
+            throw new IOException(e);
+        }
+    }
+
     /** The read feature. */
     private Feature feature;
 
@@ -89,12 +157,17 @@ public class FeatureJSONReader {
     /** Exception prefix containing the location (if set) */
     private final String exceptionPrefix;
 
+    /** The optional interner for artifact ids. */
+    private final ArtifactIdInterner interner;
+
     /**
      * private constructor
      * @param location Optional location
+     * @param interner Optional interner for artifact ids
      */
-    private FeatureJSONReader(final String location) {
+    private FeatureJSONReader(final String location, final ArtifactIdInterner interner) {
         this.location = location;
+        this.interner = interner;
         if (location == null) {
             exceptionPrefix = "";
         } else {
@@ -170,22 +243,32 @@ public class FeatureJSONReader {
                     configContainer);
 
             for (final Artifact a : list) {
-                if (container.containsExact(a.getId())) {
-                    throw new IOException(exceptionPrefix + "Duplicate identical bundle "
-                            + a.getId().toMvnId());
-                }
-                try {
-                    // check start order
-                    a.getStartOrder();
-                } catch (final IllegalArgumentException nfe) {
-                    throw new IOException(exceptionPrefix + "Illegal start order '"
-                            + a.getMetadata().get(Artifact.KEY_START_ORDER) + "'");
-                }
-                container.add(a);
+                addBundle(a, container);
             }
         }
     }
 
+    /**
+     * Add a bundle to the bundles container
+     * @param a The bundle
+     * @param container The bundles container
+     * @throws IOException If the bundle is a duplicate or has an invalid start order
+     */
+    private void addBundle(final Artifact a, final Bundles container) throws IOException {
+        if (container.containsExact(a.getId())) {
+            throw new IOException(
+                    exceptionPrefix + "Duplicate identical bundle " + a.getId().toMvnId());
+        }
+        try {
+            // check start order
+            a.getStartOrder();
+        } catch (final IllegalArgumentException nfe) {
+            throw new IOException(
+                    exceptionPrefix + "Illegal start order '" + a.getMetadata().get(Artifact.KEY_START_ORDER) + "'");
+        }
+        container.add(a);
+    }
+
     private void readArtifacts(
             final String section,
             final String artifactType,
@@ -194,53 +277,100 @@ public class FeatureJSONReader {
             final Configurations container)
             throws IOException {
         for (final JsonValue entry : checkTypeArray(section, listObj)) {
-            final Artifact artifact;
-            checkTypeObjectOrString(artifactType, entry);
-            if (entry.getValueType() == ValueType.STRING) {
+            final Artifact artifact = readArtifact(artifactType, entry, container);
+            if (artifact != null) {
+                artifacts.add(artifact);
+            }
+        }
+    }
+
+    /**
+     * Read a single artifact
+     * @param artifactType The artifact type for error messages
+     * @param entry The json value describing the artifact
+     * @param container The configurations container for embedded configurations
+     * @return The artifact or {@code null} if the entry is a comment
+     * @throws IOException If the json is invalid.
+     */
+    private Artifact readArtifact(final String artifactType, final JsonValue entry, final Configurations container)
+            throws IOException {
+        final Artifact artifact;
+        checkTypeObjectOrString(artifactType, entry);
+        if (entry.getValueType() == ValueType.STRING) {
+            // skip comments
+            if (((JsonString) entry).getString().startsWith("#")) {
+                return null;
+            }
+            artifact = new Artifact(checkTypeArtifactId(artifactType, entry));
+        } else {
+            final JsonObject bundleObj = (JsonObject) entry;
+            if (!bundleObj.containsKey(JSONConstants.ARTIFACT_ID)) {
+                throw new IOException(
+                        exceptionPrefix.concat(" ").concat(artifactType).concat(" is missing required artifact id"));
+            }
+            final ArtifactId id = checkTypeArtifactId(
+                    artifactType.concat(" ").concat(JSONConstants.ARTIFACT_ID),
+                    bundleObj.get(JSONConstants.ARTIFACT_ID));
+
+            artifact = new Artifact(id);
+            for (final Map.Entry<String, JsonValue> metadataEntry : bundleObj.entrySet()) {
+                final String key = metadataEntry.getKey();
                 // skip comments
-                if (((JsonString) entry).getString().startsWith("#")) {
+                if (key.startsWith("#")) {
                     continue;
                 }
-                artifact = new Artifact(checkTypeArtifactId(artifactType, entry));
-            } else {
-                final JsonObject bundleObj = (JsonObject) entry;
-                if (!bundleObj.containsKey(JSONConstants.ARTIFACT_ID)) {
-                    throw new IOException(exceptionPrefix
-                            .concat(" ")
-                            .concat(artifactType)
-                            .concat(" is missing required artifact id"));
-                }
-                final ArtifactId id = checkTypeArtifactId(
-                        artifactType.concat(" ").concat(JSONConstants.ARTIFACT_ID),
-                        bundleObj.get(JSONConstants.ARTIFACT_ID));
-
-                artifact = new Artifact(id);
-                for (final Map.Entry<String, JsonValue> metadataEntry : bundleObj.entrySet()) {
-                    final String key = metadataEntry.getKey();
-                    // skip comments
-                    if (key.startsWith("#")) {
-                        continue;
-                    }
-                    if (JSONConstants.ARTIFACT_KNOWN_PROPERTIES.contains(key)) {
-                        continue;
-                    }
-                    final String mval = checkScalarType(
-                            artifactType.concat(" metadata ").concat(key), metadataEntry.getValue(), false);
-                    artifact.getMetadata().put(key, mval);
-                }
-                if (bundleObj.containsKey(JSONConstants.FEATURE_CONFIGURATIONS)) {
-                    final JsonObject cfgs = checkTypeObject(
-                            artifactType.concat(" configurations"),
-                            bundleObj.get(JSONConstants.FEATURE_CONFIGURATIONS));
-                    addConfigurations(cfgs, artifact, container);
+                if (JSONConstants.ARTIFACT_KNOWN_PROPERTIES.contains(key)) {
+                    continue;
                 }
+                final String mval =
+                        checkScalarType(artifactType.concat(" metadata ").concat(key), metadataEntry.getValue(), false);
+                artifact.getMetadata().put(key, mval);
+            }
+            if (bundleObj.containsKey(JSONConstants.FEATURE_CONFIGURATIONS)) {
+                final JsonObject cfgs = checkTypeObject(
+                        artifactType.concat(" configurations"), bundleObj.get(JSONConstants.FEATURE_CONFIGURATIONS));
+                addConfigurations(cfgs, artifact, container);
             }
-            artifacts.add(artifact);
         }
+        return artifact;
     }
 
     private void addConfigurations(final JsonObject json, final Artifact artifact, final Configurations container)
             throws IOException {
+        final List<String> errors = new ArrayList<>();
+        addConfigurations(json, artifact, container, errors);
+        checkConfigurationErrors(errors);
+    }
+
+    /**
+     * Throw an exception if errors occurred while reading configurations
+     * @param errors The errors reported by the configuration reader
+     * @throws IOException If the list of errors is not empty
+     */
+    private void checkConfigurationErrors(final List<String> errors) throws IOException {
+        if (!errors.isEmpty()) {
+            final StringBuilder builder = new StringBuilder(exceptionPrefix);
+            builder.append("Errors in configurations:");
+            for (final String w : errors) {
+                builder.append("\n");
+                builder.append(w);
+            }
+            throw new IOException(builder.toString());
+        }
+    }
+
+    /**
+     * Add configurations to the container
+     * @param json The json object containing the configurations
+     * @param artifact Optional artifact the configurations belong to
+     * @param container The configurations container
+     * @param errors The errors reported by the configuration reader are added to this list.
+     *               If errors are reported, no configurations are added.
+     * @throws IOException If the json is invalid.
+     */
+    private void addConfigurations(
+            final JsonObject json, final Artifact artifact, final Configurations container, final List<String> errors)
+            throws IOException {
         final ConfigurationReader reader = org.apache.felix.cm.json.io.Configurations.buildReader()
                 .verifyAsBundleResource(true)
                 .withIdentifier(this.location)
@@ -260,13 +390,8 @@ public class FeatureJSONReader {
                 .build(json);
         final ConfigurationResource rsrc = reader.readConfigurationResource();
         if (!reader.getIgnoredErrors().isEmpty()) {
-            final StringBuilder builder = new StringBuilder(exceptionPrefix);
-            builder.append("Errors in configurations:");
-            for (final String w : reader.getIgnoredErrors()) {
-                builder.append("\n");
-                builder.append(w);
-            }
-            throw new IOException(builder.toString());
+            errors.addAll(reader.getIgnoredErrors());
+            return;
         }
 
         for (final Map.Entry<String, Hashtable<String, Object>> c :
@@ -337,112 +462,144 @@ public class FeatureJSONReader {
                 // skip comments
                 continue;
             }
-            final int pos = key.indexOf(':');
-            final String postfix = pos == -1 ? null : key.substring(pos + 1);
-            final int sep = (postfix == null ? key.indexOf('|') : postfix.indexOf('|'));
-            final String name;
-            final String type;
-            final String state;
-            if (pos == -1) {
-                type = ExtensionType.ARTIFACTS.name();
-                if (sep == -1) {
-                    name = key;
-                    state = ExtensionState.OPTIONAL.name();
-                } else {
-                    name = key.substring(0, sep);
-                    state = key.substring(sep + 1);
-                }
+            final Extension ext = createExtension(key, container);
+            readExtension(ext, json.get(key), configContainer);
+            container.add(ext);
+        }
+    }
+
+    /**
+     * Create an extension
+     * @param key The key of the extension containing name, type and state
+     * @param container The extensions container
+     * @return The new extension, not added to the container
+     * @throws IOException If the name is reserved or already used
+     */
+    private Extension createExtension(final String key, final Extensions container) throws IOException {
+        final int pos = key.indexOf(':');
+        final String postfix = pos == -1 ? null : key.substring(pos + 1);
+        final int sep = (postfix == null ? key.indexOf('|') : postfix.indexOf('|'));
+        final String name;
+        final String type;
+        final String state;
+        if (pos == -1) {
+            type = ExtensionType.ARTIFACTS.name();
+            if (sep == -1) {
+                name = key;
+                state = ExtensionState.OPTIONAL.name();
             } else {
-                name = key.substring(0, pos);
-                if (sep == -1) {
-                    type = postfix;
-                    state = ExtensionState.OPTIONAL.name();
-                } else {
-                    type = postfix.substring(0, sep);
-                    state = postfix.substring(sep + 1);
-                }
-            }
-            if (JSONConstants.FEATURE_KNOWN_PROPERTIES.contains(name)) {
-                throw new IOException(this.exceptionPrefix
-                        .concat("Extension is using reserved name : ")
-                        .concat(name));
+                name = key.substring(0, sep);
+                state = key.substring(sep + 1);
             }
-            if (container.getByName(name) != null) {
-                throw new IOException(
-                        exceptionPrefix.concat("Duplicate extension with name ").concat(name));
-            }
-
-            final ExtensionType extType = ExtensionType.valueOf(type);
-            final ExtensionState extState;
-            if (ExtensionState.OPTIONAL.name().equalsIgnoreCase(state)) {
-                extState = ExtensionState.OPTIONAL;
-            } else if (ExtensionState.REQUIRED.name().equalsIgnoreCase(state)) {
-                extState = ExtensionState.REQUIRED;
-            } else if (ExtensionState.TRANSIENT.name().equalsIgnoreCase(state)) {
-                extState = ExtensionState.TRANSIENT;
+        } else {
+            name = key.substring(0, pos);
+            if (sep == -1) {
+                type = postfix;
+                state = ExtensionState.OPTIONAL.name();
             } else {
-                final boolean opt = Boolean.valueOf(state).booleanValue();
-                extState = opt ? ExtensionState.REQUIRED : ExtensionState.OPTIONAL;
+                type = postfix.substring(0, sep);
+                state = postfix.substring(sep + 1);
             }
+        }
+        if (JSONConstants.FEATURE_KNOWN_PROPERTIES.contains(name)) {
+            throw new IOException(this.exceptionPrefix
+                    .concat("Extension is using reserved name : ")
+                    .concat(name));
+        }
+        if (container.getByName(name) != null) {
+            throw new IOException(
+                    exceptionPrefix.concat("Duplicate extension with name ").concat(name));
+        }
 
-            final Extension ext = new Extension(extType, name, extState);
-            final JsonValue value = json.get(key);
-            switch (extType) {
-                case ARTIFACTS:
-                    final List<Artifact> list = new ArrayList<>();
-                    readArtifacts("Extension ".concat(name), "artifact", list, value, configContainer);
-                    for (final Artifact a : list) {
-                        if (ext.getArtifacts().contains(a)) {
-                            throw new IOException(exceptionPrefix
-                                    .concat("Duplicate artifact in extension ")
-                                    .concat(name)
-                                    .concat(" : ")
-                                    .concat(a.getId().toMvnId()));
-                        }
-                        ext.getArtifacts().add(a);
-                    }
-                    break;
-                case JSON:
-                    if (value.getValueType() != ValueType.ARRAY && value.getValueType() != ValueType.OBJECT) {
-                        throw new IOException(this.exceptionPrefix
-                                .concat("JSON Extension ")
-                                .concat(name)
-                                .concat(" is neither an object nor an array : ")
-                                .concat(value.getValueType().name()));
-                    }
-                    ext.setJSONStructure((JsonStructure) value);
-                    break;
-                case TEXT:
-                    if (value.getValueType() != ValueType.ARRAY && value.getValueType() != ValueType.STRING) {
-                        throw new IOException(this.exceptionPrefix
-                                .concat("Text Extension ")
-                                .concat(name)
-                                .concat(" is neither a string nor an array : ")
-                                .concat(value.getValueType().name()));
-                    }
-                    if (value.getValueType() == ValueType.STRING) {
-                        // string
-                        ext.setText(((JsonString) value).getString());
-                    } else {
-                        // list (array of strings)
-                        final StringBuilder sb = new StringBuilder();
-                        for (final JsonValue o : value.asJsonArray()) {
-                            final String textValue = checkTypeString(
-                                    "Text Extension "
-                                            .concat(name)
-                                            .concat(", value ")
-                                            .concat(o.toString()),
-                                    o);
-                            sb.append(textValue);
-                            sb.append('\n');
-                        }
-                        ext.setText(sb.toString());
+        final ExtensionType extType = ExtensionType.valueOf(type);
+        final ExtensionState extState;
+        if (ExtensionState.OPTIONAL.name().equalsIgnoreCase(state)) {
+            extState = ExtensionState.OPTIONAL;
+        } else if (ExtensionState.REQUIRED.name().equalsIgnoreCase(state)) {
+            extState = ExtensionState.REQUIRED;
+        } else if (ExtensionState.TRANSIENT.name().equalsIgnoreCase(state)) {
+            extState = ExtensionState.TRANSIENT;
+        } else {
+            final boolean opt = Boolean.valueOf(state).booleanValue();
+            extState = opt ? ExtensionState.REQUIRED : ExtensionState.OPTIONAL;
+        }
+
+        return new Extension(extType, name, extState);
+    }
+
+    /**
+     * Read the value of an extension
+     * @param ext The extension
+     * @param value The json value of the extension
+     * @param configContainer The configurations container for embedded configurations
+     * @throws IOException If the json is invalid.
+     */
+    private void readExtension(final Extension ext, final JsonValue value, final Configurations configContainer)
+            throws IOException {
+        final String name = ext.getName();
+        switch (ext.getType()) {
+            case ARTIFACTS:
+                final List<Artifact> list = new ArrayList<>();
+                readArtifacts("Extension ".concat(name), "artifact", list, value, configContainer);
+                for (final Artifact a : list) {
+                    addExtensionArtifact(ext, a);
+                }
+                break;
+            case JSON:
+                if (value.getValueType() != ValueType.ARRAY && value.getValueType() != ValueType.OBJECT) {
+                    throw new IOException(this.exceptionPrefix
+                            .concat("JSON Extension ")
+                            .concat(name)
+                            .concat(" is neither an object nor an array : ")
+                            .concat(value.getValueType().name()));
+                }
+                ext.setJSONStructure((JsonStructure) value);
+                break;
+            case TEXT:
+                if (value.getValueType() != ValueType.ARRAY && value.getValueType() != ValueType.STRING) {
+                    throw new IOException(this.exceptionPrefix
+                            .concat("Text Extension ")
+                            .concat(name)
+                            .concat(" is neither a string nor an array : ")
+                            .concat(value.getValueType().name()));
+                }
+                if (value.getValueType() == ValueType.STRING) {
+                    // string
+                    ext.setText(((JsonString) value).getString());
+                } else {
+                    // list (array of strings)
+                    final StringBuilder sb = new StringBuilder();
+                    for (final JsonValue o : value.asJsonArray()) {
+                        final String textValue = checkTypeString(
+                                "Text Extension "
+                                        .concat(name)
+                                        .concat(", value ")
+                                        .concat(o.toString()),
+                                o);
+                        sb.append(textValue);
+                        sb.append('\n');
                     }
-                    break;
-            }
+                    ext.setText(sb.toString());
+                }
+                break;
+        }
+    }
 
-            container.add(ext);
+    /**
+     * Add an artifact to an artifacts extension
+     * @param ext The extension
+     * @param a The artifact
+     * @throws IOException If the artifact is a duplicate
+     */
+    private void addExtensionArtifact(final Extension ext, final Artifact a) throws IOException {
+        if (ext.getArtifacts().contains(a)) {
+            throw new IOException(exceptionPrefix
+                    .concat("Duplicate artifact in extension ")
+                    .concat(ext.getName())
+                    .concat(" : ")
+                    .concat(a.getId().toMvnId()));
         }
+        ext.getArtifacts().add(a);
     }
 
     /**
@@ -515,7 +672,8 @@ public class FeatureJSONReader {
     private ArtifactId checkTypeArtifactId(final String key, final JsonValue value) throws IOException {
         final String textValue = checkTypeString(key, value);
         try {
-            return ArtifactId.parse(textValue);
+            final ArtifactId id = ArtifactId.parse(textValue);
+            return this.interner == null ? id : this.interner.intern(id);
         } catch (final IllegalArgumentException iae) {
             throw new IOException(this.exceptionPrefix
                     .concat("Key ")
@@ -581,163 +739,163 @@ public class FeatureJSONReader {
 
     private Prototype readPrototype(final JsonObject json) throws IOException {
         if (json.containsKey(JSONConstants.FEATURE_PROTOTYPE)) {
-            final JsonValue prototypeObj = json.get(JSONConstants.FEATURE_PROTOTYPE);
-            checkTypeObjectOrString(JSONConstants.FEATURE_PROTOTYPE, prototypeObj);
+            return readPrototype(json.get(JSONConstants.FEATURE_PROTOTYPE));
+        }
+        return null;
+    }
 
-            final Prototype prototype;
-            if (prototypeObj.getValueType() == ValueType.STRING) {
-                prototype = new Prototype(checkTypeArtifactId(JSONConstants.FEATURE_PROTOTYPE, prototypeObj));
-            } else {
-                final JsonObject obj = (JsonObject) prototypeObj;
-                if (!obj.containsKey(JSONConstants.ARTIFACT_ID)) {
-                    throw new IOException(exceptionPrefix.concat(" prototype is missing required artifact id"));
+    private Prototype readPrototype(final JsonValue prototypeObj) throws IOException {
+        checkTypeObjectOrString(JSONConstants.FEATURE_PROTOTYPE, prototypeObj);
+
+        final Prototype prototype;
+        if (prototypeObj.getValueType() == ValueType.STRING) {
+            prototype = new Prototype(checkTypeArtifactId(JSONConstants.FEATURE_PROTOTYPE, prototypeObj));
+        } else {
+            final JsonObject obj = (JsonObject) prototypeObj;
+            if (!obj.containsKey(JSONConstants.ARTIFACT_ID)) {
+                throw new IOException(exceptionPrefix.concat(" prototype is missing required artifact id"));
+            }
+            prototype = new Prototype(checkTypeArtifactId(
+                    "Prototype ".concat(JSONConstants.ARTIFACT_ID), obj.get(JSONConstants.ARTIFACT_ID)));
+
+            if (obj.containsKey(JSONConstants.PROTOTYPE_REMOVALS)) {
+                final JsonObject removalObj =
+                        checkTypeObject("Prototype removals", obj.get(JSONConstants.PROTOTYPE_REMOVALS));
+                if (removalObj.containsKey(JSONConstants.FEATURE_BUNDLES)) {
+                    for (final JsonValue val : checkTypeArray(
+                            "Prototype removal bundles", removalObj.get(JSONConstants.FEATURE_BUNDLES))) {
+                        if (checkTypeString("Prototype removal bundles", val).startsWith("#")) {
+                            continue;
+                        }
+                        prototype.getBundleRemovals().add(checkTypeArtifactId("Prototype removal bundles", val));
+                    }
                 }
-                prototype = new Prototype(checkTypeArtifactId(
-                        "Prototype ".concat(JSONConstants.ARTIFACT_ID), obj.get(JSONConstants.ARTIFACT_ID)));
-
-                if (obj.containsKey(JSONConstants.PROTOTYPE_REMOVALS)) {
-                    final JsonObject removalObj =
-                            checkTypeObject("Prototype removals", obj.get(JSONConstants.PROTOTYPE_REMOVALS));
-                    if (removalObj.containsKey(JSONConstants.FEATURE_BUNDLES)) {
-                        for (final JsonValue val : checkTypeArray(
-                                "Prototype removal bundles", removalObj.get(JSONConstants.FEATURE_BUNDLES))) {
-                            if (checkTypeString("Prototype removal bundles", val)
-                                    .startsWith("#")) {
-                                continue;
-                            }
-                            prototype.getBundleRemovals().add(checkTypeArtifactId("Prototype removal bundles", val));
+                if (removalObj.containsKey(JSONConstants.FEATURE_CONFIGURATIONS)) {
+                    for (final JsonValue val : checkTypeArray(
+                            "Prototype removal configuration", removalObj.get(JSONConstants.FEATURE_CONFIGURATIONS))) {
+                        final String propVal = checkTypeString("Prototype removal configuration", val);
+                        if (propVal.startsWith("#")) {
+                            continue;
                         }
+                        prototype.getConfigurationRemovals().add(propVal);
                     }
-                    if (removalObj.containsKey(JSONConstants.FEATURE_CONFIGURATIONS)) {
-                        for (final JsonValue val : checkTypeArray(
-                                "Prototype removal configuration",
-                                removalObj.get(JSONConstants.FEATURE_CONFIGURATIONS))) {
-                            final String propVal = checkTypeString("Prototype removal configuration", val);
-                            if (propVal.startsWith("#")) {
-                                continue;
-                            }
-                            prototype.getConfigurationRemovals().add(propVal);
+                }
+                if (removalObj.containsKey(JSONConstants.FEATURE_FRAMEWORK_PROPERTIES)) {
+                    for (final JsonValue val : checkTypeArray(
+                            "Prototype removal framework properties",
+                            removalObj.get(JSONConstants.FEATURE_FRAMEWORK_PROPERTIES))) {
+                        final String propVal = checkTypeString("Prototype removal framework properties", val);
+                        if (propVal.startsWith("#")) {
+                            continue;
                         }
+                        prototype.getFrameworkPropertiesRemovals().add(propVal);
                     }
-                    if (removalObj.containsKey(JSONConstants.FEATURE_FRAMEWORK_PROPERTIES)) {
-                        for (final JsonValue val : checkTypeArray(
-                                "Prototype removal framework properties",
-                                removalObj.get(JSONConstants.FEATURE_FRAMEWORK_PROPERTIES))) {
-                            final String propVal = checkTypeString("Prototype removal framework properties", val);
+                }
+                if (removalObj.containsKey(JSONConstants.PROTOTYPE_EXTENSION_REMOVALS)) {
+                    for (final JsonValue val : checkTypeArray(
+                            "Prototype removal extensions",
+                            removalObj.get(JSONConstants.PROTOTYPE_EXTENSION_REMOVALS))) {
+                        checkTypeObjectOrString("Prototype removal extension", val);
+                        if (val.getValueType() == ValueType.STRING) {
+                            final String propVal = org.apache.felix.cm.json.io.Configurations.convertToObject(val)
+                                    .toString();
                             if (propVal.startsWith("#")) {
                                 continue;
                             }
-                            prototype.getFrameworkPropertiesRemovals().add(propVal);
-                        }
-                    }
-                    if (removalObj.containsKey(JSONConstants.PROTOTYPE_EXTENSION_REMOVALS)) {
-                        for (final JsonValue val : checkTypeArray(
-                                "Prototype removal extensions",
-                                removalObj.get(JSONConstants.PROTOTYPE_EXTENSION_REMOVALS))) {
-                            checkTypeObjectOrString("Prototype removal extension", val);
-                            if (val.getValueType() == ValueType.STRING) {
-                                final String propVal = org.apache.felix.cm.json.io.Configurations.convertToObject(val)
-                                        .toString();
-                                if (propVal.startsWith("#")) {
-                                    continue;
-                                }
-                                prototype.getExtensionRemovals().add(propVal);
-                            } else {
-                                final JsonObject removalMap = (JsonObject) val;
-                                final JsonValue nameObj = removalMap.get("name");
-                                final String name = checkTypeString("Prototype removal extension", nameObj);
-                                if (removalMap.containsKey("artifacts")) {
-                                    final List<ArtifactId> ids = new ArrayList<>();
-                                    for (final JsonValue aid : checkTypeArray(
-                                            "Prototype removal extension artifacts", removalMap.get("artifacts"))) {
-                                        if (checkTypeString("Prototype removal extension artifact", aid)
-                                                .startsWith("#")) {
-                                            continue;
-                                        }
-                                        ids.add(checkTypeArtifactId("Prototype removal extension artifact", aid));
+                            prototype.getExtensionRemovals().add(propVal);
+                        } else {
+                            final JsonObject removalMap = (JsonObject) val;
+                            final JsonValue nameObj = removalMap.get("name");
+                            final String name = checkTypeString("Prototype removal extension", nameObj);
+                            if (removalMap.containsKey("artifacts")) {
+                                final List<ArtifactId> ids = new ArrayList<>();
+                                for (final JsonValue aid : checkTypeArray(
+                                        "Prototype removal extension artifacts", removalMap.get("artifacts"))) {
+                                    if (checkTypeString("Prototype removal extension artifact", aid)
+                                            .startsWith("#")) {
+                                        continue;
                                     }
-                                    prototype.getArtifactExtensionRemovals().put(name, ids);
-                                } else {
-                                    prototype.getExtensionRemovals().add(name);
+                                    ids.add(checkTypeArtifactId("Prototype removal extension artifact", aid));
                                 }
+                                prototype.getArtifactExtensionRemovals().put(name, ids);
+                            } else {
+                                prototype.getExtensionRemovals().add(name);
                             }
                         }
                     }
-                    readRequirements(removalObj, prototype.getRequirementRemovals());
-                    readCapabilities(removalObj, prototype.getCapabilityRemovals());
                 }
+                readRequirements(removalObj, prototype.getRequirementRemovals());
+                readCapabilities(removalObj, prototype.getCapabilityRemovals());
             }
-            return prototype;
         }
-        return null;
+        return prototype;
     }
 
     private void readRequirements(final JsonObject json, final List<MatchingRequirement> container) throws IOException {
         if (json.containsKey(JSONConstants.FEATURE_REQUIREMENTS)) {
             for (final JsonValue req :
                     checkTypeArray(JSONConstants.FEATURE_REQUIREMENTS, json.get(JSONConstants.FEATURE_REQUIREMENTS))) {
-                final JsonObject obj = checkTypeObject("Requirement", req);
+                container.add(readRequirement(req));
+            }
+        }
+    }
 
-                if (!obj.containsKey(JSONConstants.REQCAP_NAMESPACE)) {
-                    throw new IOException(this.exceptionPrefix.concat("Namespace is missing for requirement"));
-                }
-                final String namespace =
-                        checkTypeString("Requirement namespace", obj.get(JSONConstants.REQCAP_NAMESPACE));
-
-                Map<String, Object> attrMap = new HashMap<>();
-                if (obj.containsKey(JSONConstants.REQCAP_ATTRIBUTES)) {
-                    final JsonObject attrs =
-                            checkTypeObject("Requirement attributes", obj.get(JSONConstants.REQCAP_ATTRIBUTES));
-                    attrs.forEach(rethrowBiConsumer(
-                            (key, value) -> ManifestUtils.unmarshalAttribute(key, value, attrMap::put)));
-                }
+    private MatchingRequirement readRequirement(final JsonValue req) throws IOException {
+        final JsonObject obj = checkTypeObject("Requirement", req);
 
-                Map<String, String> dirMap = new HashMap<>();
-                if (obj.containsKey(JSONConstants.REQCAP_DIRECTIVES)) {
-                    final JsonObject dirs =
-                            checkTypeObject("Requirement directives", obj.get(JSONConstants.REQCAP_DIRECTIVES));
-                    dirs.forEach(rethrowBiConsumer(
-                            (key, value) -> ManifestUtils.unmarshalDirective(key, value, dirMap::put)));
-                }
+        if (!obj.containsKey(JSONConstants.REQCAP_NAMESPACE)) {
+            throw new IOException(this.exceptionPrefix.concat("Namespace is missing for requirement"));
+        }
+        final String namespace = checkTypeString("Requirement namespace", obj.get(JSONConstants.REQCAP_NAMESPACE));
+
+        Map<String, Object> attrMap = new HashMap<>();
+        if (obj.containsKey(JSONConstants.REQCAP_ATTRIBUTES)) {
+            final JsonObject attrs =
+                    checkTypeObject("Requirement attributes", obj.get(JSONConstants.REQCAP_ATTRIBUTES));
+            attrs.forEach(
+                    rethrowBiConsumer((key, value) -> ManifestUtils.unmarshalAttribute(key, value, attrMap::put)));
+        }
 
-                final MatchingRequirement r = new MatchingRequirementImpl(null, namespace, dirMap, attrMap);
-                container.add(r);
-            }
+        Map<String, String> dirMap = new HashMap<>();
+        if (obj.containsKey(JSONConstants.REQCAP_DIRECTIVES)) {
+            final JsonObject dirs = checkTypeObject("Requirement directives", obj.get(JSONConstants.REQCAP_DIRECTIVES));
+            dirs.forEach(rethrowBiConsumer((key, value) -> ManifestUtils.unmarshalDirective(key, value, dirMap::put)));
         }
+
+        return new MatchingRequirementImpl(null, namespace, dirMap, attrMap);
     }
 
     private void readCapabilities(final JsonObject json, final List<Capability> container) throws IOException {
         if (json.containsKey(JSONConstants.FEATURE_CAPABILITIES)) {
             for (final JsonValue cap :
                     checkTypeArray(JSONConstants.FEATURE_REQUIREMENTS, json.get(JSONConstants.FEATURE_CAPABILITIES))) {
-                final JsonObject obj = checkTypeObject("Capability", cap);
+                container.add(readCapability(cap));
+            }
+        }
+    }
 
-                if (!obj.containsKey(JSONConstants.REQCAP_NAMESPACE)) {
-                    throw new IOException(this.exceptionPrefix.concat("Namespace is missing for capability"));
-                }
-                final String namespace =
-                        checkTypeString("Capability namespace", obj.get(JSONConstants.REQCAP_NAMESPACE));
-
-                Map<String, Object> attrMap = new HashMap<>();
-                if (obj.containsKey(JSONConstants.REQCAP_ATTRIBUTES)) {
-                    final JsonObject attrs =
-                            checkTypeObject("Capability attributes", obj.get(JSONConstants.REQCAP_ATTRIBUTES));
-                    attrs.forEach(rethrowBiConsumer(
-                            (key, value) -> ManifestUtils.unmarshalAttribute(key, value, attrMap::put)));
-                }
+    private Capability readCapability(final JsonValue cap) throws IOException {
+        final JsonObject obj = checkTypeObject("Capability", cap);
 
-                Map<String, String> dirMap = new HashMap<>();
-                if (obj.containsKey(JSONConstants.REQCAP_DIRECTIVES)) {
-                    final JsonObject dirs =
-                            checkTypeObject("Capability directives", obj.get(JSONConstants.REQCAP_DIRECTIVES));
-                    dirs.forEach(rethrowBiConsumer(
-                            (key, value) -> ManifestUtils.unmarshalDirective(key, value, dirMap::put)));
-                }
+        if (!obj.containsKey(JSONConstants.REQCAP_NAMESPACE)) {
+            throw new IOException(this.exceptionPrefix.concat("Namespace is missing for capability"));
+        }
+        final String namespace = checkTypeString("Capability namespace", obj.get(JSONConstants.REQCAP_NAMESPACE));
 
-                final Capability c = new CapabilityImpl(null, namespace, dirMap, attrMap);
-                container.add(c);
-            }
+        Map<String, Object> attrMap = new HashMap<>();
+        if (obj.containsKey(JSONConstants.REQCAP_ATTRIBUTES)) {
+            final JsonObject attrs = checkTypeObject("Capability attributes", obj.get(JSONConstants.REQCAP_ATTRIBUTES));
+            attrs.forEach(
+                    rethrowBiConsumer((key, value) -> ManifestUtils.unmarshalAttribute(key, value, attrMap::put)));
         }
+
+        Map<String, String> dirMap = new HashMap<>();
+        if (obj.containsKey(JSONConstants.REQCAP_DIRECTIVES)) {
+            final JsonObject dirs = checkTypeObject("Capability directives", obj.get(JSONConstants.REQCAP_DIRECTIVES));
+            dirs.forEach(rethrowBiConsumer((key, value) -> ManifestUtils.unmarshalDirective(key, value, dirMap::put)));
+        }
+
+        return new CapabilityImpl(null, namespace, dirMap, attrMap);
     }
 
     @FunctionalInterface
@@ -827,7 +985,15 @@ public class FeatureJSONReader {
                 this.feature.getExtensions(),
                 this.feature.getConfigurations());
 
-        // check for internal metadata extension
+        this.readInternalData();
+        return this.feature;
+    }
+
+    /**
+     * Check for the internal metadata extension and apply it to the feature
+     * @throws IOException If the extension is invalid
+     */
+    private void readInternalData() throws IOException {
         final Extension internalData = this.feature.getExtensions().getByName(Extension.EXTENSION_NAME_INTERNAL_DATA);
         if (internalData != null) {
             this.feature.getExtensions().remove(internalData);
@@ -836,11 +1002,282 @@ public class FeatureJSONReader {
             }
             this.setInternalData(internalData);
         }
+    }
+
+    /**
+     * Read a full feature using a streaming parser
+     * @param parser The parser
+     * @return The feature object
+     * @throws IOException If an IO error occurs or the JSON is not valid.
+     */
+    private Feature readFeature(final JsonParser parser) throws IOException {
+        if (!parser.hasNext() || parser.next() != Event.START_OBJECT) {
+            throw new IOException(this.exceptionPrefix.concat("Feature is not a JSON object"));
+        }
+        // the feature is created once the whole document is read as the id
+        // might not be the first property, until then the parts are
+        // collected in separate containers
+        ArtifactId featureId = null;
+        Boolean finalFlag = null;
+        Boolean completeFlag = null;
+        Prototype prototype = null;
+        final Map<String, String> properties = new HashMap<>();
+        final List<String> categories = new ArrayList<>();
+        final Map<String, String> variables = new LinkedHashMap<>();
+        final Map<String, String> frameworkProperties = new LinkedHashMap<>();
+        final Bundles bundles = new Bundles();
+        final List<MatchingRequirement> requirements = new ArrayList<>();
+        final List<Capability> capabilities = new ArrayList<>();
+        final Extensions extensions = new Extensions();
+        // configurations are collected per section and merged in the
+        // same order as the tree based reader processes them
+        final Configurations bundleConfigurations = new Configurations();
+        final Configurations featureConfigurations = new Configurations();
+        final Configurations extensionConfigurations = new Configurations();
+
+        Event event;
+        while ((event = parser.next()) != Event.END_OBJECT) {
+            final String key = parser.getString();
+            event = parser.next();
+            switch (key) {
+                case JSONConstants.FEATURE_ID:
+                    featureId = checkTypeArtifactId(JSONConstants.FEATURE_ID, parser.getValue());
+                    break;
+                case JSONConstants.FEATURE_MODEL_VERSION:
+                    checkModelVersion(checkTypeString(key, parser.getValue()));
+                    break;
+                case JSONConstants.FEATURE_FINAL:
+                    finalFlag = checkTypeBoolean(key, parser.getValue());
+                    break;
+                case JSONConstants.FEATURE_COMPLETE:
+                    completeFlag = checkTypeBoolean(key, parser.getValue());
+                    break;
+                case JSONConstants.FEATURE_TITLE:
+                case JSONConstants.FEATURE_DESCRIPTION:
+                case JSONConstants.FEATURE_VENDOR:
+                case JSONConstants.FEATURE_LICENSE:
+                case JSONConstants.FEATURE_DOC_URL:
+                case JSONConstants.FEATURE_SCM_INFO:
+                    properties.put(key, checkTypeString(key, parser.getValue()));
+                    break;
+                case JSONConstants.FEATURE_CATEGORIES:
+                    readElements(parser, event, key, val -> categories.add(checkTypeString("Categories", val)));
+                    break;
+                case JSONConstants.FEATURE_VARIABLES:
+                    readEntries(parser, event, key, (name, val) -> {
+                        // skip comments
+                        if (!name.startsWith("#")) {
+                            if (variables.get(name) != null) {
+                                throw new IOException(this.exceptionPrefix
+                                        .concat("Duplicate variable ")
+                                        .concat(name));
+                            }
+                            variables.put(name, checkScalarType("variable value", val, true));
+                        }
+                    });
+                    break;
+                case JSONConstants.FEATURE_BUNDLES:
+                    readElements(parser, event, key, val -> {
+                        final Artifact a = readArtifact("bundle", val, bundleConfigurations);
+                        if (a != null) {
+                            addBundle(a, bundles);
+                        }
+                    });
+                    break;
+                case JSONConstants.FEATURE_FRAMEWORK_PROPERTIES:
+                    readEntries(parser, event, key, (name, val) -> {
+                        // skip comments
+                        if (!name.startsWith("#")) {
+                            if (frameworkProperties.get(name) != null) {
+                                throw new IOException(this.exceptionPrefix
+                                        .concat("Duplicate framework property ")
+                                        .concat(name));
+                            }
+                            frameworkProperties.put(name, checkScalarType("framework property value", val, false));
+                        }
+                    });
+                    break;
+                case JSONConstants.FEATURE_CONFIGURATIONS:
+                    // each configuration is passed on its own to the configuration reader
+                    final List<String> errors = new ArrayList<>();
+                    readEntries(
+                            parser,
+                            event,
+                            key,
+                            (pid, val) -> addConfigurations(
+                                    Json.createObjectBuilder().add(pid, val).build(),
+                                    null,
+                                    featureConfigurations,
+                                    errors));
+                    checkConfigurationErrors(errors);
+                    break;
+                case JSONConstants.FEATURE_REQUIREMENTS:
+                    readElements(parser, event, key, val -> requirements.add(readRequirement(val)));
+                    break;
+                case JSONConstants.FEATURE_CAPABILITIES:
+                    // same key as in the tree based reader
+                    readElements(
+                            parser,
+                            event,
+                            JSONConstants.FEATURE_REQUIREMENTS,
+                            val -> capabilities.add(readCapability(val)));
+                    break;
+                case JSONConstants.FEATURE_PROTOTYPE:
+                    prototype = readPrototype(parser.getValue());
+                    break;
+                default:
+                    if (key.startsWith("#")) {
+                        // skip comments
+                        skipValue(parser, event);
+                    } else {
+                        final Extension ext = createExtension(key, extensions);
+                        if (ext.getType() == ExtensionType.ARTIFACTS) {
+                            readElements(parser, event, "Extension ".concat(ext.getName()), val -> {
+                                final Artifact a = readArtifact("artifact", val, extensionConfigurations);
+                                if (a != null) {
+                                    addExtensionArtifact(ext, a);
+                                }
+                            });
+                        } else {
+                            readExtension(ext, parser.getValue(), extensionConfigurations);
+                        }
+                        extensions.add(ext);
+                    }
+            }
+        }
+
+        if (featureId == null) {
+            throw new IOException(this.exceptionPrefix.concat("Feature id is missing"));
+        }
+        this.feature = new Feature(featureId);
+        this.feature.setLocation(this.location);
+        if (finalFlag != null) {
+            this.feature.setFinal(finalFlag);
+        }
+        if (completeFlag != null) {
+            this.feature.setComplete(completeFlag);
+        }
+        this.feature.setTitle(properties.get(JSONConstants.FEATURE_TITLE));
+        this.feature.setDescription(properties.get(JSONConstants.FEATURE_DESCRIPTION));
+        this.feature.setVendor(properties.get(JSONConstants.FEATURE_VENDOR));
+        this.feature.setLicense(properties.get(JSONConstants.FEATURE_LICENSE));
+        this.feature.setDocURL(properties.get(JSONConstants.FEATURE_DOC_URL));
+        this.feature.setSCMInfo(properties.get(JSONConstants.FEATURE_SCM_INFO));
+        this.feature.getCategories().addAll(categories);
+        this.feature.getVariables().putAll(variables);
+        for (final Artifact a : bundles) {
+            this.feature.getBundles().add(a);
+        }
+        this.feature.getFrameworkProperties().putAll(frameworkProperties);
+        mergeConfigurations(bundleConfigurations, this.feature.getConfigurations());
+        mergeConfigurations(featureConfigurations, this.feature.getConfigurations());
+        mergeConfigurations(extensionConfigurations, this.feature.getConfigurations());
+        this.feature.getCapabilities().addAll(capabilities);
+        this.feature.getRequirements().addAll(requirements);
+        this.feature.setPrototype(prototype);
+        for (final Extension ext : extensions) {
+            this.feature.getExtensions().add(ext);
+        }
+
+        this.readInternalData();
         return this.feature;
     }
 
+    /**
+     * Merge configurations read from one section into the configurations of the feature.
+     * This applies the same rules as reading all sections into a single container.
+     * @param source The configurations of the section
+     * @param container The configurations container
+     * @throws IOException If a configuration of an artifact is redefined
+     */
+    private void mergeConfigurations(final Configurations source, final Configurations container) throws IOException {
+        for (final Configuration cfg : source) {
+            final Configuration config = container.getConfiguration(cfg.getPid());
+            if (config == null) {
+                container.add(cfg);
+            } else {
+                if (config.getProperties().get(Configuration.PROP_ARTIFACT_ID) != null) {
+                    throw new IOException(exceptionPrefix
+                            .concat("Configuration must not define property ")
+                            .concat(Configuration.PROP_ARTIFACT_ID));
+                }
+                for (final String name : Collections.list(cfg.getProperties().keys())) {
+                    config.getProperties().put(name, cfg.getProperties().get(name));
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the elements of an array with a streaming parser. Each element
+     * is passed as a json value to the consumer.
+     * @param parser The parser, positioned at the start of the value
+     * @param event The current event of the parser
+     * @param key A key for the error message
+     * @param consumer The consumer for the elements
+     * @throws IOException If the value is not an array or the consumer fails
+     */
+    private void readElements(
+            final JsonParser parser, final Event event, final String key, final ValueConsumer consumer)
+            throws IOException {
+        if (event != Event.START_ARRAY) {
+            checkTypeArray(key, parser.getValue());
+        }
+        while (parser.next() != Event.END_ARRAY) {
+            consumer.accept(parser.getValue());
+        }
+    }
+
+    /**
+     * Read the entries of an object with a streaming parser. Each entry
+     * is passed with its key and json value to the consumer.
+     * @param parser The parser, positioned at the start of the value
+     * @param event The current event of the parser
+     * @param key A key for the error message
+     * @param consumer The consumer for the entries
+     * @throws IOException If the value is not an object or the consumer fails
+     */
+    private void readEntries(final JsonParser parser, final Event event, final String key, final EntryConsumer consumer)
+            throws IOException {
+        if (event != Event.START_OBJECT) {
+            checkTypeObject(key, parser.getValue());
+        }
+        while (parser.next() != Event.END_OBJECT) {
+            final String name = parser.getString();
+            parser.next();
+            consumer.accept(name, parser.getValue());
+        }
+    }
+
+    /**
+     * Skip the current value of a streaming parser
+     * @param parser The parser, positioned at the start of the value
+     * @param event The current event of the parser
+     */
+    private static void skipValue(final JsonParser parser, final Event event) {
+        if (event == Event.START_OBJECT) {
+            parser.skipObject();
+        } else if (event == Event.START_ARRAY) {
+            parser.skipArray();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ValueConsumer {
+        void accept(JsonValue value) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface EntryConsumer {
+        void accept(String key, JsonValue value) throws IOException;
+    }
+
     private void checkModelVersion(final JsonObject json) throws IOException {
-        String modelVersion = getProperty(json, JSONConstants.FEATURE_MODEL_VERSION);
+        checkModelVersion(getProperty(json, JSONConstants.FEATURE_MODEL_VERSION));
+    }
+
+    private void checkModelVersion(final String version) throws IOException {
+        String modelVersion = version;
         if (modelVersion == null) {
             modelVersion = "1";
         }
@@ -20,13 +20,17 @@ package org.apache.sling.feature.io.json;
 
 import java.io.FilterWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import jakarta.json.Json;
 import jakarta.json.stream.JsonGenerator;
@@ -48,7 +52,7 @@ import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
 
 /**
- * This class offers a static method to write a feature using a writer.
+ * This class offers static methods to write a feature using a writer or an output stream.
  */
 public class FeatureJSONWriter {
 
@@ -64,6 +68,26 @@ public class FeatureJSONWriter {
         w.writeFeature(writer, feature);
     }
 
+    /**
+     * Writes the feature in compact form to the output stream, using UTF-8.
+     * The output is not pretty printed and directly written to the stream.
+     * The stream is flushed but not closed.
+     * @param stream The output stream
+     * @param feature Feature
+     * @throws IOException If writing fails
+     * @since 2.1.0
+     */
+    public static void writeCompact(final OutputStream stream, final Feature feature) throws IOException {
+        final FeatureJSONWriter w = new FeatureJSONWriter();
+        final JsonGenerator generator = COMPACT_GENERATOR_FACTORY.createGenerator(stream, StandardCharsets.UTF_8);
+        w.writeFeature(generator, feature);
+        // closing the generator would close the stream
+        generator.flush();
+    }
+
+    private static final JsonGeneratorFactory COMPACT_GENERATOR_FACTORY =
+            Json.createGeneratorFactory(Collections.emptyMap());
+
     private final JsonGeneratorFactory generatorFactory =
             Json.createGeneratorFactory(Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, true));
 
@@ -78,29 +102,44 @@ public class FeatureJSONWriter {
         });
     }
 
-    private void writeBundles(final JsonGenerator generator, final Bundles bundles, final Configurations allConfigs) {
+    /**
+     * Group the configurations by the artifact they belong to
+     * @param allConfigs All configurations
+     * @return A map with the mvn id of the artifact as key. Configurations not
+     *         belonging to an artifact are stored with the {@code null} key.
+     */
+    private Map<String, Configurations> groupConfigurations(final Configurations allConfigs) {
+        final Map<String, Configurations> result = new HashMap<>();
+        for (final Configuration cfg : allConfigs) {
+            final String artifactProp = (String) cfg.getProperties().get(Configuration.PROP_ARTIFACT_ID);
+            result.computeIfAbsent(artifactProp, key -> new Configurations()).add(cfg);
+        }
+        return result;
+    }
+
+    private void writeBundles(
+            final JsonGenerator generator, final Bundles bundles, final Map<String, Configurations> configsByArtifact) {
         // bundles
         if (!bundles.isEmpty()) {
             generator.writeStartArray(JSONConstants.FEATURE_BUNDLES);
 
             for (final Artifact artifact : bundles) {
-                final Configurations cfgs = new Configurations();
-                for (final Configuration cfg : allConfigs) {
-                    final String artifactProp = (String) cfg.getProperties().get(Configuration.PROP_ARTIFACT_ID);
-                    if (artifact.getId().toMvnId().equals(artifactProp)) {
-                        cfgs.add(cfg);
-                    }
-                }
+                final String mvnId = artifact.getId().toMvnId();
+                final Configurations cfgs = configsByArtifact.get(mvnId);
                 Map<String, String> md = artifact.getMetadata();
-                if (md.isEmpty() && cfgs.isEmpty()) {
-                    generator.write(artifact.getId().toMvnId());
+                if (md.isEmpty() && cfgs == null) {
+                    generator.write(mvnId);
                 } else {
                     generator.writeStartObject();
-                    generator.write(JSONConstants.ARTIFACT_ID, artifact.getId().toMvnId());
-
-                    Object runmodes = md.remove("runmodes");
-                    if (runmodes instanceof String) {
-                        md.put("run-modes", (String) runmodes);
+                    generator.write(JSONConstants.ARTIFACT_ID, mvnId);
+
+                    if (md.containsKey("runmodes")) {
+                        // rename on a copy, the feature might be frozen and must not be modified
+                        md = new TreeMap<>(md);
+                        final String runmodes = md.remove("runmodes");
+                        if (runmodes != null) {
+                            md.put("run-modes", runmodes);
+                        }
                     }
 
                     for (final Map.Entry<String, String> me : md.entrySet()) {
@@ -176,14 +215,17 @@ public class FeatureJSONWriter {
     }
 
     private void writeExtensions(
-            final JsonGenerator generator, final List<Extension> extensions, final Configurations allConfigs)
+            final JsonGenerator generator,
+            final List<Extension> extensions,
+            final Map<String, Configurations> configsByArtifact)
             throws IOException {
         for (final Extension ext : extensions) {
-            writeExtension(generator, ext, allConfigs);
+            writeExtension(generator, ext, configsByArtifact);
         }
     }
 
-    private void writeExtension(final JsonGenerator generator, final Extension ext, final Configurations allConfigs)
+    private void writeExtension(
+            final JsonGenerator generator, final Extension ext, final Map<String, Configurations> configsByArtifact)
             throws IOException {
 
         final String state;
@@ -213,25 +255,22 @@ public class FeatureJSONWriter {
         } else {
             generator.writeStartArray(key);
             for (final Artifact artifact : ext.getArtifacts()) {
-                final Configurations artifactCfgs = new Configurations();
-                for (final Configuration cfg : allConfigs) {
-                    final String artifactProp = (String) cfg.getProperties().get(Configuration.PROP_ARTIFACT_ID);
-                    if (artifact.getId().toMvnId().equals(artifactProp)) {
-                        artifactCfgs.add(cfg);
-                    }
-                }
-                if (artifact.getMetadata().isEmpty() && artifactCfgs.isEmpty()) {
-                    generator.write(artifact.getId().toMvnId());
+                final String mvnId = artifact.getId().toMvnId();
+                final Configurations artifactCfgs = configsByArtifact.get(mvnId);
+                if (artifact.getMetadata().isEmpty() && artifactCfgs == null) {
+                    generator.write(mvnId);
                 } else {
                     generator.writeStartObject();
-                    generator.write(JSONConstants.ARTIFACT_ID, artifact.getId().toMvnId());
+                    generator.write(JSONConstants.ARTIFACT_ID, mvnId);
 
                     for (final Map.Entry<String, String> me :
                             artifact.getMetadata().entrySet()) {
                         generator.write(me.getKey(), me.getValue());
                     }
 
-                    writeConfigurations(generator, artifactCfgs);
+                    if (artifactCfgs != null) {
+                        writeConfigurations(generator, artifactCfgs);
+                    }
 
                     generator.writeEnd();
                 }
@@ -368,7 +407,19 @@ public class FeatureJSONWriter {
      * @throws IOException If writing fails
      */
     private void writeFeature(final Writer writer, final Feature feature) throws IOException {
-        JsonGenerator generator = newGenerator(writer);
+        final JsonGenerator generator = newGenerator(writer);
+        writeFeature(generator, feature);
+        generator.close();
+    }
+
+    /**
+     * Writes the feature to the generator.
+     * The generator is not closed.
+     * @param generator The json generator
+     * @param feature Feature
+     * @throws IOException If writing fails
+     */
+    private void writeFeature(final JsonGenerator generator, final Feature feature) throws IOException {
         generator.writeStartObject();
 
         writeFeatureId(generator, feature);
@@ -404,18 +455,17 @@ public class FeatureJSONWriter {
         // capabilities
         writeCapabilities(generator, feature.getCapabilities());
 
+        // configurations are grouped by artifact once
+        final Map<String, Configurations> configsByArtifact = groupConfigurations(feature.getConfigurations());
+
         // bundles
-        writeBundles(generator, feature.getBundles(), feature.getConfigurations());
+        writeBundles(generator, feature.getBundles(), configsByArtifact);
 
         // configurations
-        final Configurations cfgs = new Configurations();
-        for (final Configuration cfg : feature.getConfigurations()) {
-            final String artifactProp = (String) cfg.getProperties().get(Configuration.PROP_ARTIFACT_ID);
-            if (artifactProp == null) {
-                cfgs.add(cfg);
-            }
+        final Configurations cfgs = configsByArtifact.get(null);
+        if (cfgs != null) {
+            writeConfigurations(generator, cfgs);
         }
-        writeConfigurations(generator, cfgs);
 
         // framework properties
         writeFrameworkProperties(generator, feature.getFrameworkProperties());
@@ -427,9 +477,9 @@ public class FeatureJSONWriter {
         writeInternalData(generator, feature);
 
         // extensions
-        writeExtensions(generator, feature.getExtensions(), feature.getConfigurations());
+        writeExtensions(generator, feature.getExtensions(), configsByArtifact);
 
-        generator.writeEnd().close();
+        generator.writeEnd();
     }
 
     private void writeFeatureId(final JsonGenerator generator, final Feature feature) {
@@ -471,7 +521,7 @@ public class FeatureJSONWriter {
                     new Extension(ExtensionType.JSON, Extension.EXTENSION_NAME_INTERNAL_DATA, ExtensionState.OPTIONAL);
             ext.setJSONStructure(org.apache.felix.cm.json.io.Configurations.convertToJsonValue(output)
                     .asJsonObject());
-            this.writeExtension(generator, ext, null);
+            this.writeExtension(generator, ext, Collections.emptyMap());
         }
     }
 }
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ArtifactIdInternerTest {
+
+    @Test
+    public void testIntern() {
+        final ArtifactIdInterner interner = new ArtifactIdInterner();
+        final ArtifactId id = interner.intern(new ArtifactId("g", "a", "1.0", null, null));
+        assertSame(id, interner.intern(new ArtifactId("g", "a", "1.0", null, "jar")));
+        assertSame(id, interner.intern(ArtifactId.parse("g:a:1.0")));
+        assertNotSame(id, interner.intern(new ArtifactId("g", "a", "1.1", null, null)));
+        assertNull(interner.intern(null));
+
+        // interners are independent
+        assertNotSame(id, new ArtifactIdInterner().intern(ArtifactId.parse("g:a:1.0")));
+    }
+
+    @Test
+    public void testConcurrentIntern() throws Exception {
+        final ArtifactIdInterner interner = new ArtifactIdInterner();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<ArtifactId[]>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    final ArtifactId[] ids = new ArtifactId[100];
+                    for (int n = 0; n < ids.length; n++) {
+                        ids[n] = interner.intern(ArtifactId.parse("g:a" + n + ":1.0"));
+                    }
+                    return ids;
+                }));
+            }
+            final ArtifactId[] first = results.get(0).get(30, TimeUnit.SECONDS);
+            for (final Future<ArtifactId[]> f : results) {
+                final ArtifactId[] ids = f.get(30, TimeUnit.SECONDS);
+                for (int n = 0; n < ids.length; n++) {
+                    assertSame(first[n], ids[n]);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -18,14 +18,21 @@
  */
 package org.apache.sling.feature;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import org.junit.Test;
 import org.osgi.framework.Version;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -293,4 +300,51 @@ public class ArtifactIdTest {
         assertTrue(a2.compareTo(a1) > 0);
         assertTrue(a1.compareTo(a1) == 0);
     }
+
+    @Test
+    public void testHashCode() {
+        final ArtifactId id = new ArtifactId(G, A, "1.0", "c", "zip");
+        assertEquals(Objects.hash(G, A, "1.0", "c", "zip"), id.hashCode());
+        assertEquals(id.hashCode(), id.hashCode());
+        assertEquals(Objects.hash(G, A, "1.0", null, "jar"), new ArtifactId(G, A, "1.0", null, null).hashCode());
+
+        final ArtifactId other = new ArtifactId(G, A, "1.1", "c", "zip");
+        other.hashCode();
+        assertFalse(id.equals(other));
+        assertTrue(id.equals(other.changeVersion("1.0")));
+    }
+
+    @Test
+    public void testOSGiVersionIsCached() {
+        final ArtifactId id = new ArtifactId(G, A, "1.5.2-SNAPSHOT", null, null);
+        assertSame(id.getOSGiVersion(), id.getOSGiVersion());
+
+        final ArtifactId invalid = new ArtifactId(G, A, "a.b.c", null, null);
+        for (int i = 0; i < 2; i++) {
+            try {
+                invalid.getOSGiVersion();
+                fail();
+            } catch (final IllegalArgumentException expected) {
+                assertEquals("Invalid version a.b.c", expected.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        final ArtifactId id = new ArtifactId(G, A, "1.5.2", "c", "zip");
+        final Version version = id.getOSGiVersion();
+        final int hash = id.hashCode();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(id);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            final ArtifactId copy = (ArtifactId) ois.readObject();
+            assertEquals(id, copy);
+            assertEquals(hash, copy.hashCode());
+            assertEquals(version, copy.getOSGiVersion());
+        }
+    }
 }
@@ -18,11 +18,21 @@
  */
 package org.apache.sling.feature;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ArtifactTest {
 
@@ -62,4 +72,74 @@ public class ArtifactTest {
                 id.toMvnId().concat(",").concat(id2.toMvnId()),
                 art.getMetadata().get(Artifact.KEY_FEATURE_ORIGINS));
     }
+
+    @Test
+    public void testFeatureOriginsFollowMetadata() {
+        final ArtifactId id1 = ArtifactId.parse("g:a:1");
+        final ArtifactId id2 = ArtifactId.parse("g:b:1");
+
+        final Artifact art = new Artifact(ArtifactId.parse("art:art:1"));
+        art.setFeatureOrigins(id1, null, id1, id2);
+        assertEquals("g:a:1,g:b:1", art.getMetadata().get(Artifact.KEY_FEATURE_ORIGINS));
+        assertArrayEquals(new ArtifactId[] {id1, id2}, art.getFeatureOrigins());
+
+        // the returned array is a copy
+        art.getFeatureOrigins()[0] = id2;
+        assertArrayEquals(new ArtifactId[] {id1, id2}, art.getFeatureOrigins());
+
+        // changing the metadata directly
+        art.getMetadata().put(Artifact.KEY_FEATURE_ORIGINS, "g:b:1");
+        assertArrayEquals(new ArtifactId[] {id2}, art.getFeatureOrigins());
+        art.getMetadata().remove(Artifact.KEY_FEATURE_ORIGINS);
+        assertEquals(0, art.getFeatureOrigins().length);
+
+        art.setFeatureOrigins(id2);
+        final Artifact copy = art.copy(ArtifactId.parse("art:art:2"));
+        assertArrayEquals(new ArtifactId[] {id2}, copy.getFeatureOrigins());
+        copy.setFeatureOrigins(id1);
+        assertArrayEquals(new ArtifactId[] {id2}, art.getFeatureOrigins());
+        assertArrayEquals(new ArtifactId[] {id1}, copy.getFeatureOrigins());
+    }
+
+    @Test
+    public void testAliases() {
+        final ArtifactId id = ArtifactId.parse("g:a:1");
+        final Artifact art = new Artifact(id);
+        assertTrue(art.getAliases(false).isEmpty());
+        assertEquals(Collections.singleton(id), art.getAliases(true));
+
+        art.getMetadata().put(Artifact.KEY_ALIAS, "g:b:2, g:c");
+        final Set<ArtifactId> aliases = art.getUnmodifiableAliases(false);
+        assertEquals(new HashSet<>(Arrays.asList(ArtifactId.parse("g:b:2"), ArtifactId.parse("g:c:0.0.0"))), aliases);
+        assertSame(aliases, art.getUnmodifiableAliases(false));
+        assertEquals(3, art.getAliases(true).size());
+        assertTrue(art.getAliases(true).contains(id));
+        try {
+            aliases.add(id);
+            fail();
+        } catch (final UnsupportedOperationException expected) {
+            // expected
+        }
+
+        // the public getter returns a copy which can be modified
+        final Set<ArtifactId> copy = art.getAliases(false);
+        assertEquals(aliases, copy);
+        copy.add(id);
+        assertEquals(2, art.getAliases(false).size());
+        assertFalse(art.getAliases(false).contains(id));
+
+        // changing the metadata invalidates the cache
+        art.getMetadata().put(Artifact.KEY_ALIAS, "g:d:1");
+        assertEquals(Collections.singleton(ArtifactId.parse("g:d:1")), art.getAliases(false));
+        art.getMetadata().remove(Artifact.KEY_ALIAS);
+        assertTrue(art.getAliases(false).isEmpty());
+
+        // copies with a different id do not include the old id
+        art.getMetadata().put(Artifact.KEY_ALIAS, "g:d:1");
+        art.getAliases(true);
+        final ArtifactId newId = ArtifactId.parse("g:a:2");
+        assertEquals(
+                new HashSet<>(Arrays.asList(newId, ArtifactId.parse("g:d:1"))),
+                art.copy(newId).getAliases(true));
+    }
 }
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ArtifactsTest {
+
+    private static final ArtifactId A1 = ArtifactId.parse("g/a/1");
+    private static final ArtifactId A2 = ArtifactId.parse("g/a/2");
+    private static final ArtifactId B1 = ArtifactId.parse("g/b/1");
+    private static final ArtifactId C1 = ArtifactId.parse("g:c:zip:cl:1");
+
+    @Test
+    public void testLookups() {
+        final Artifacts artifacts = new Artifacts();
+        assertTrue(artifacts.add(new Artifact(A1)));
+        assertFalse(artifacts.add(new Artifact(A1)));
+        assertTrue(artifacts.add(new Artifact(A2)));
+        assertTrue(artifacts.add(new Artifact(C1)));
+
+        assertEquals(3, artifacts.size());
+        assertEquals(A1, artifacts.getSame(A2).getId());
+        assertEquals(A2, artifacts.getExact(A2).getId());
+        assertTrue(artifacts.containsSame(ArtifactId.parse("g/a/3")));
+        assertFalse(artifacts.containsExact(ArtifactId.parse("g/a/3")));
+        assertFalse(artifacts.containsSame(ArtifactId.parse("g:c:zip:1")));
+        assertTrue(artifacts.containsExact(C1));
+        assertNull(artifacts.getSame(B1));
+
+        assertTrue(artifacts.removeSame(A2));
+        assertEquals(A2, artifacts.getSame(A1).getId());
+        assertTrue(artifacts.removeExact(A2));
+        assertFalse(artifacts.containsSame(A1));
+        assertFalse(artifacts.removeExact(A2));
+        assertEquals(1, artifacts.size());
+    }
+
+    @Test
+    public void testListModifications() {
+        final Artifacts artifacts = new Artifacts();
+        artifacts.add(new Artifact(A2));
+        artifacts.add(0, new Artifact(A1));
+        assertEquals(A1, artifacts.getSame(A2).getId());
+
+        artifacts.set(0, new Artifact(B1));
+        assertFalse(artifacts.containsExact(A1));
+        assertTrue(artifacts.containsExact(B1));
+
+        final ListIterator<Artifact> iter = artifacts.listIterator();
+        iter.next();
+        iter.remove();
+        iter.add(new Artifact(C1));
+        assertFalse(artifacts.containsExact(B1));
+        assertEquals(C1, artifacts.get(0).getId());
+        assertSame(artifacts.get(0), artifacts.getExact(C1));
+
+        artifacts.subList(0, 1).set(0, new Artifact(A1));
+        assertFalse(artifacts.containsExact(C1));
+        assertEquals(A1, artifacts.getSame(A2).getId());
+
+        artifacts.subList(0, 1).clear();
+        assertEquals(A2, artifacts.getSame(A1).getId());
+
+        artifacts.removeIf(a -> a.getId().equals(A2));
+        assertTrue(artifacts.isEmpty());
+        assertFalse(artifacts.containsSame(A1));
+    }
+
+    @Test
+    public void testSerializationAndClone() throws Exception {
+        final Artifacts artifacts = new Artifacts();
+        artifacts.add(new Artifact(A1));
+        artifacts.add(new Artifact(B1));
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (final ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(artifacts);
+        }
+        try (final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            final Artifacts read = (Artifacts) ois.readObject();
+            assertEquals(artifacts, read);
+            assertTrue(read.containsExact(B1));
+        }
+
+        final Artifacts clone = (Artifacts) artifacts.clone();
+        clone.add(new Artifact(C1));
+        clone.removeExact(A1);
+        assertTrue(artifacts.containsExact(A1));
+        assertFalse(artifacts.containsExact(C1));
+        assertTrue(clone.containsExact(C1));
+        assertFalse(clone.containsExact(A1));
+    }
+
+    @Test
+    public void testRandomModifications() {
+        final List<ArtifactId> ids = Arrays.asList(A1, A2, B1, C1, ArtifactId.parse("g/b/2"));
+        final Random random = new Random(42);
+        for (int run = 0; run < 50; run++) {
+            final Artifacts artifacts = new Artifacts();
+            for (int step = 0; step < 100; step++) {
+                final Artifact a = new Artifact(ids.get(random.nextInt(ids.size())));
+                final int op = random.nextInt(artifacts.isEmpty() ? 2 : 11);
+                switch (op) {
+                    case 0:
+                        artifacts.add(a);
+                        break;
+                    case 1:
+                        artifacts.addAll(Arrays.asList(a, a));
+                        break;
+                    case 2:
+                        artifacts.add(random.nextInt(artifacts.size() + 1), a);
+                        break;
+                    case 3:
+                        artifacts.remove(random.nextInt(artifacts.size()));
+                        break;
+                    case 4:
+                        artifacts.removeSame(a.getId());
+                        break;
+                    case 5:
+                        artifacts.removeExact(a.getId());
+                        break;
+                    case 6:
+                        artifacts.set(random.nextInt(artifacts.size()), a);
+                        break;
+                    case 7:
+                        final Iterator<Artifact> iter = artifacts.iterator();
+                        iter.next();
+                        iter.remove();
+                        break;
+                    case 8:
+                        final int from = random.nextInt(artifacts.size());
+                        final List<Artifact> sub = artifacts.subList(from, artifacts.size());
+                        sub.add(a);
+                        sub.remove(0);
+                        if (!sub.isEmpty()) {
+                            sub.set(sub.size() - 1, new Artifact(ids.get(random.nextInt(ids.size()))));
+                        }
+                        break;
+                    case 9:
+                        artifacts.sort(Comparator.comparing(Artifact::getId).reversed());
+                        break;
+                    default:
+                        artifacts.remove(artifacts.get(random.nextInt(artifacts.size())));
+                }
+                for (final ArtifactId id : ids) {
+                    assertSame(findFirst(artifacts, id, false), artifacts.getExact(id));
+                    assertSame(findFirst(artifacts, id, true), artifacts.getSame(id));
+                }
+            }
+        }
+    }
+
+    private static Artifact findFirst(final List<Artifact> artifacts, final ArtifactId id, final boolean same) {
+        for (final Artifact a : artifacts) {
+            if (same ? a.getId().isSame(id) : a.getId().equals(id)) {
+                return a;
+            }
+        }
+        return null;
+    }
+}
@@ -184,4 +184,33 @@ public class ConfigurationTest {
         assertNull(cfg.getProperties()
                 .get(Configuration.PROP_FEATURE_ORIGINS.concat("-").concat("a")));
     }
+
+    @Test
+    public void testFeatureOriginsFollowProperties() {
+        final ArtifactId id1 = ArtifactId.parse("g:a:1");
+        final ArtifactId id2 = ArtifactId.parse("g:b:1");
+
+        final Configuration cfg = new Configuration("pid");
+        cfg.setFeatureOrigins(Arrays.asList(id1, id2));
+        assertArrayEquals(new String[] {"g:a:1", "g:b:1"}, (String[])
+                cfg.getProperties().get(Configuration.PROP_FEATURE_ORIGINS));
+        assertEquals(Arrays.asList(id1, id2), cfg.getFeatureOrigins());
+
+        // modify the stored array in place
+        ((String[]) cfg.getProperties().get(Configuration.PROP_FEATURE_ORIGINS))[0] = "g:b:1";
+        assertEquals(Arrays.asList(id2, id2), cfg.getFeatureOrigins());
+
+        // replace the value
+        cfg.getProperties().put(Configuration.PROP_FEATURE_ORIGINS, "g:a:1");
+        assertEquals(Collections.singletonList(id1), cfg.getFeatureOrigins());
+        cfg.getProperties().remove(Configuration.PROP_FEATURE_ORIGINS);
+        assertTrue(cfg.getFeatureOrigins().isEmpty());
+
+        cfg.setFeatureOrigins("prop", Collections.singletonList(id2));
+        final Configuration copy = cfg.copy("copy");
+        assertEquals(Collections.singletonList(id2), copy.getFeatureOrigins("prop"));
+        copy.setFeatureOrigins("prop", Collections.singletonList(id1));
+        assertEquals(Collections.singletonList(id2), cfg.getFeatureOrigins("prop"));
+        assertEquals(Collections.singletonList(id1), copy.getFeatureOrigins("prop"));
+    }
 }
@@ -18,6 +18,7 @@
  */
 package org.apache.sling.feature;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
@@ -25,6 +26,8 @@ import java.util.Set;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class ConfigurationsTest {
@@ -46,4 +49,33 @@ public class ConfigurationsTest {
         assertTrue(names.contains("a"));
         assertTrue(names.contains("b"));
     }
+
+    @Test
+    public void testGetConfigurationAfterModifications() {
+        final Configurations cfgs = new Configurations();
+        final Configuration a = new Configuration("a");
+        final Configuration b = new Configuration("factory~b");
+        cfgs.addAll(Arrays.asList(a, b));
+        assertSame(a, cfgs.getConfiguration("a"));
+        assertSame(b, cfgs.getConfiguration("factory~b"));
+
+        final Configuration a2 = new Configuration("a");
+        cfgs.set(0, a2);
+        assertSame(a2, cfgs.getConfiguration("a"));
+
+        final Configuration c = new Configuration("factory~c");
+        cfgs.add(0, c);
+        assertEquals(Arrays.asList(c, b), cfgs.getFactoryConfigurations("factory"));
+
+        cfgs.remove(b);
+        assertNull(cfgs.getConfiguration("factory~b"));
+        assertEquals(Arrays.asList(c), cfgs.getFactoryConfigurations("factory"));
+
+        cfgs.subList(0, 1).clear();
+        assertTrue(cfgs.getFactoryConfigurations("factory").isEmpty());
+        assertSame(a2, cfgs.getConfiguration("a"));
+
+        cfgs.clear();
+        assertNull(cfgs.getConfiguration("a"));
+    }
 }
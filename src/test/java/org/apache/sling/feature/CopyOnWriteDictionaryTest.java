@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CopyOnWriteDictionaryTest {
+
+    @Test
+    public void testModificationsAreNotShared() {
+        final CopyOnWriteDictionary dict = new CopyOnWriteDictionary();
+        dict.put("b", 1);
+        dict.put("a", 2);
+
+        final CopyOnWriteDictionary copy = dict.copy();
+        assertEquals(Arrays.asList("b", "a"), Collections.list(copy.keys()));
+        // keys are case insensitive
+        assertEquals(2, copy.get("A"));
+
+        copy.put("c", 3);
+        dict.remove("b");
+        assertEquals(Arrays.asList("b", "a", "c"), Collections.list(copy.keys()));
+        assertEquals(Arrays.asList("a"), Collections.list(dict.keys()));
+
+        final CopyOnWriteDictionary copy2 = copy.copy();
+        copy2.entrySet().clear();
+        assertEquals(0, copy2.size());
+        assertEquals(3, copy.size());
+        assertNull(copy2.get("c"));
+    }
+
+    @Test
+    public void testMapMethodsUseBackingDictionary() {
+        final CopyOnWriteDictionary dict = new CopyOnWriteDictionary();
+        dict.put("a", 1);
+        final CopyOnWriteDictionary copy = dict.copy();
+
+        final Map<String, Object> seen = new LinkedHashMap<>();
+        copy.forEach(seen::put);
+        assertEquals(Collections.singletonMap("a", 1), seen);
+        assertEquals(1, copy.getOrDefault("A", 5));
+        assertEquals(5, copy.getOrDefault("b", 5));
+
+        assertNull(copy.putIfAbsent("b", 2));
+        assertEquals(2, copy.putIfAbsent("b", 3));
+        assertEquals(3, copy.computeIfAbsent("c", key -> 3));
+        assertEquals(4, copy.computeIfPresent("c", (key, value) -> 4));
+        assertEquals(5, copy.compute("d", (key, value) -> 5));
+        assertNull(copy.compute("d", (key, value) -> null));
+        assertEquals(3, copy.merge("a", 2, (v1, v2) -> (Integer) v1 + (Integer) v2));
+        assertEquals(3, copy.replace("a", 6));
+        assertTrue(copy.replace("a", 6, 7));
+        assertFalse(copy.remove("b", 3));
+        assertTrue(copy.remove("b", 2));
+        copy.replaceAll((key, value) -> (Integer) value * 10);
+
+        assertEquals(2, copy.size());
+        assertEquals(70, copy.get("a"));
+        assertEquals(40, copy.get("c"));
+        // the original is not modified
+        assertEquals(Arrays.asList("a"), Collections.list(dict.keys()));
+        assertEquals(1, dict.get("a"));
+    }
+
+    @Test
+    public void testViewsDoNotModifyCopies() {
+        final CopyOnWriteDictionary dict = new CopyOnWriteDictionary();
+        dict.put("a", 1);
+        dict.put("b", 2);
+        dict.put("c", 3);
+
+        final Set<Map.Entry<String, Object>> entries = dict.entrySet();
+        final Set<String> keys = dict.keySet();
+        final CopyOnWriteDictionary copy = dict.copy();
+
+        final Iterator<Map.Entry<String, Object>> iter = entries.iterator();
+        final Map.Entry<String, Object> entry = iter.next();
+        assertEquals("a", entry.getKey());
+        assertEquals(1, entry.setValue(10));
+        iter.next();
+        iter.remove();
+        assertTrue(keys.remove("c"));
+
+        assertEquals(Collections.singletonMap("a", 10), new LinkedHashMap<>(dict));
+        assertEquals(Arrays.asList("a", "b", "c"), Collections.list(copy.keys()));
+        assertEquals(1, copy.get("a"));
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(copy.values()));
+    }
+
+    @Test
+    public void testCloneIsCopy() {
+        final CopyOnWriteDictionary dict = new CopyOnWriteDictionary();
+        dict.put("a", 1);
+        @SuppressWarnings("unchecked")
+        final Hashtable<String, Object> clone = (Hashtable<String, Object>) dict.clone();
+        clone.put("a", 2);
+        clone.put("b", 3);
+
+        assertEquals(1, dict.get("a"));
+        assertEquals(1, dict.size());
+        assertEquals(2, clone.get("a"));
+    }
+
+    @Test
+    public void testFrozen() {
+        final CopyOnWriteDictionary dict = new CopyOnWriteDictionary();
+        dict.put("a", 1);
+        dict.freeze();
+
+        assertFrozen(() -> dict.put("b", 2));
+        assertFrozen(() -> dict.remove("b"));
+        assertFrozen(() -> dict.putIfAbsent("a", 2));
+        assertFrozen(() -> dict.computeIfAbsent("a", key -> 2));
+        assertFrozen(() -> dict.computeIfPresent("b", (key, value) -> 2));
+        assertFrozen(() -> dict.compute("a", (key, value) -> value));
+        assertFrozen(() -> dict.merge("a", 2, (v1, v2) -> v1));
+        assertFrozen(() -> dict.replace("b", 2));
+        assertFrozen(() -> dict.replace("a", 1, 2));
+        assertFrozen(() -> dict.replaceAll((key, value) -> value));
+        assertFrozen(() -> dict.remove("a", 2));
+        assertFrozen(() -> dict.keySet().clear());
+        assertFrozen(() -> dict.entrySet().iterator().next().setValue(2));
+        assertFrozen(() -> {
+            final Iterator<Object> iter = dict.values().iterator();
+            iter.next();
+            iter.remove();
+        });
+        assertEquals(1, dict.get("a"));
+
+        // copies are not frozen
+        final CopyOnWriteDictionary copy = (CopyOnWriteDictionary) dict.clone();
+        copy.put("b", 2);
+        assertEquals(2, copy.size());
+        assertEquals(1, dict.size());
+    }
+
+    private static void assertFrozen(final Runnable modification) {
+        try {
+            modification.run();
+            fail("Frozen properties have been modified");
+        } catch (final UnsupportedOperationException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class CopyOnWriteMapTest {
+
+    private static CopyOnWriteMap<String, String> create() {
+        final CopyOnWriteMap<String, String> map = new CopyOnWriteMap<>(new TreeMap<>());
+        map.put("c", "3");
+        map.put("a", "1");
+        map.put("b", "2");
+        return map;
+    }
+
+    @Test
+    public void testModificationsAreNotShared() {
+        final CopyOnWriteMap<String, String> map = create();
+        final CopyOnWriteMap<String, String> copy = map.copy();
+        final CopyOnWriteMap<String, String> copy2 = copy.copy();
+        assertEquals(map, copy);
+
+        copy.put("d", "4");
+        map.remove("a");
+        copy2.clear();
+
+        assertEquals(Arrays.asList("b", "c"), Arrays.asList(map.keySet().toArray()));
+        assertEquals(
+                Arrays.asList("a", "b", "c", "d"), Arrays.asList(copy.keySet().toArray()));
+        assertEquals(0, copy2.size());
+
+        // the last user modifies the map in place
+        map.put("e", "5");
+        assertEquals(3, map.size());
+        assertNull(copy.get("e"));
+    }
+
+    @Test
+    public void testModificationsThroughViews() {
+        final CopyOnWriteMap<String, String> map = create();
+        final CopyOnWriteMap<String, String> copy = map.copy();
+
+        copy.keySet().remove("a");
+        copy.values().remove("2");
+        final Iterator<Map.Entry<String, String>> iter = copy.entrySet().iterator();
+        final Map.Entry<String, String> entry = iter.next();
+        assertEquals("c", entry.getKey());
+        assertEquals("3", entry.setValue("x"));
+        assertEquals("x", entry.getValue());
+        assertFalse(iter.hasNext());
+
+        assertEquals("x", copy.get("c"));
+        assertEquals(1, copy.size());
+        assertEquals(create(), map);
+
+        // removal through the iterator while the map is shared
+        final CopyOnWriteMap<String, String> copy2 = map.copy();
+        final Iterator<Map.Entry<String, String>> iter2 = copy2.entrySet().iterator();
+        while (iter2.hasNext()) {
+            if (!"b".equals(iter2.next().getKey())) {
+                iter2.remove();
+            }
+        }
+        assertEquals(1, copy2.size());
+        assertEquals("2", copy2.get("b"));
+        assertEquals(3, map.size());
+    }
+}
@@ -18,9 +18,17 @@
  */
 package org.apache.sling.feature;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class ExtensionTest {
     @Test
@@ -58,4 +66,32 @@ public class ExtensionTest {
         assertEquals(1, art2.getMetadata().size());
         assertEquals("blah", art2.getMetadata().get("test"));
     }
+
+    @Test
+    public void testJSONStructureIsPrimary() throws Exception {
+        final JsonObject obj = Json.createObjectBuilder().add("a", 1).build();
+        final Extension ex = new Extension(ExtensionType.JSON, "t1", ExtensionState.OPTIONAL);
+        ex.setJSONStructure(obj);
+        assertSame(obj, ex.getJSONStructure());
+
+        final Extension ex2 = ex.copy();
+        assertSame(obj, ex2.getJSONStructure());
+
+        assertEquals("{\"a\":1}", ex.getJSON());
+        assertSame(ex.getJSON(), ex.getJSON());
+
+        ex.setJSONStructure(Json.createArrayBuilder().add(2).build());
+        assertEquals("[2]", ex.getJSON());
+        assertEquals("{\"a\":1}", ex2.getJSON());
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (final ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(ex2);
+        }
+        try (final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            final Extension ex3 = (Extension) ois.readObject();
+            assertEquals(obj, ex3.getJSONStructure());
+            assertEquals("{\"a\":1}", ex3.getJSON());
+        }
+    }
 }
@@ -18,17 +18,22 @@
  */
 package org.apache.sling.feature;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 
 import org.junit.Test;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class FeatureTest {
 
@@ -145,4 +150,117 @@ public class FeatureTest {
 
         assertSame(metadata, f.getFrameworkPropertyMetadata("a"));
     }
+
+    @Test
+    public void testCopyIsIndependent() {
+        final Feature f = new Feature(ArtifactId.parse("g:f:1"));
+        final Artifact bundle = new Artifact(ArtifactId.parse("g:b:1"));
+        bundle.getMetadata().put("a", "1");
+        f.getBundles().add(bundle);
+        final Configuration cfg = new Configuration("pid");
+        cfg.getProperties().put("a", "1");
+        f.getConfigurations().add(cfg);
+        final Extension ext = new Extension(ExtensionType.ARTIFACTS, "ext", ExtensionState.OPTIONAL);
+        ext.getArtifacts().add(new Artifact(ArtifactId.parse("g:e:1")));
+        f.getExtensions().add(ext);
+
+        final Feature copy = f.copy();
+        copy.getBundles().get(0).getMetadata().put("b", "2");
+        copy.getConfigurations().get(0).getProperties().put("b", "2");
+        copy.getExtensions().get(0).getArtifacts().get(0).getMetadata().put("b", "2");
+        bundle.getMetadata().remove("a");
+        cfg.getProperties().put("c", "3");
+
+        assertEquals("1", copy.getBundles().get(0).getMetadata().get("a"));
+        assertEquals("2", copy.getBundles().get(0).getMetadata().get("b"));
+        assertEquals(Collections.emptyMap(), bundle.getMetadata());
+        assertEquals(2, copy.getConfigurations().get(0).getProperties().size());
+        assertNull(copy.getConfigurations().get(0).getProperties().get("c"));
+        assertEquals(2, cfg.getProperties().size());
+        assertNull(cfg.getProperties().get("b"));
+        assertEquals(0, ext.getArtifacts().get(0).getMetadata().size());
+    }
+
+    @Test
+    public void testFreeze() {
+        final Feature f = new Feature(ArtifactId.parse("g:f:1"));
+        f.getBundles().add(BundlesTest.createBundle("g/b/1", 2));
+        f.getBundles().add(BundlesTest.createBundle("g/c/1", 1));
+        final Configuration cfg = new Configuration("pid");
+        cfg.getProperties().put("a", "1");
+        f.getConfigurations().add(cfg);
+        f.getFrameworkProperties().put("fw", "1");
+        f.getVariables().put("var", "1");
+        f.getCategories().add("cat");
+        final Extension json = new Extension(ExtensionType.JSON, "json", ExtensionState.OPTIONAL);
+        json.setJSON("{\"a\":1}");
+        f.getExtensions().add(json);
+        final Extension artifacts = new Extension(ExtensionType.ARTIFACTS, "ext", ExtensionState.OPTIONAL);
+        artifacts.getArtifacts().add(new Artifact(ArtifactId.parse("g:e:1")));
+        f.getExtensions().add(artifacts);
+        f.setPrototype(new Prototype(ArtifactId.parse("g:p:1")));
+
+        assertFalse(f.isFrozen());
+        assertSame(f, f.freeze());
+        assertTrue(f.isFrozen());
+
+        assertFrozen(() -> f.setTitle("title"));
+        assertFrozen(() -> f.getBundles().add(new Artifact(ArtifactId.parse("g:d:1"))));
+        assertFrozen(() -> f.getBundles().remove(0));
+        assertFrozen(() -> {
+            final Iterator<Artifact> iter = f.getBundles().iterator();
+            iter.next();
+            iter.remove();
+        });
+        assertFrozen(() -> f.getBundles().subList(0, 1).clear());
+        assertFrozen(() -> f.getBundles().get(0).getMetadata().put("x", "y"));
+        assertFrozen(() -> f.getBundles().get(0).setStartOrder(5));
+        assertFrozen(() -> cfg.getProperties().put("b", "2"));
+        assertFrozen(() -> cfg.getProperties().remove("a"));
+        assertFrozen(() -> f.getFrameworkProperties().put("fw", "2"));
+        assertFrozen(() -> f.getFrameworkPropertyMetadata("fw").put("x", "y"));
+        assertFrozen(() -> f.getVariables().remove("var"));
+        assertFrozen(() -> f.getCategories().clear());
+        assertFrozen(() -> f.getRequirements().clear());
+        assertFrozen(() -> f.getCapabilities().clear());
+        assertFrozen(() -> f.getPrototype().getBundleRemovals().add(ArtifactId.parse("g:b:1")));
+        assertFrozen(() -> f.getExtensions().clear());
+        assertFrozen(() -> json.setJSON("{}"));
+        assertFrozen(() -> artifacts.getArtifacts().clear());
+
+        // lookups and derived data are still available
+        assertEquals(2, f.getBundles().getExact(ArtifactId.parse("g/b/1")).getStartOrder());
+        assertSame(cfg, f.getConfigurations().getConfiguration("pid"));
+        assertSame(f.getBundles().getBundlesByStartOrder(), f.getBundles().getBundlesByStartOrder());
+        assertEquals(
+                Arrays.asList(1, 2),
+                new ArrayList<>(f.getBundles().getBundlesByStartOrder().keySet()));
+        assertNotNull(f.getVariableMetadata("var"));
+        assertNull(f.getVariableMetadata("unknown"));
+        assertEquals("{\"a\":1}", json.getJSON());
+
+        // copies are not frozen
+        final Feature copy = f.copy();
+        assertFalse(copy.isFrozen());
+        copy.setTitle("title");
+        copy.getBundles().get(0).getMetadata().put("x", "y");
+        copy.getConfigurations().get(0).getProperties().put("b", "2");
+        copy.getFrameworkPropertyMetadata("fw").put("x", "y");
+        copy.getCategories().add("other");
+        copy.getExtensions().getByName("json").setJSON("{}");
+        copy.getExtensions().getByName("ext").getArtifacts().clear();
+        assertNull(f.getBundles().get(0).getMetadata().get("x"));
+        assertNull(cfg.getProperties().get("b"));
+        assertEquals("{\"a\":1}", json.getJSON());
+        assertEquals(1, artifacts.getArtifacts().size());
+    }
+
+    private static void assertFrozen(final Runnable modification) {
+        try {
+            modification.run();
+            fail("Frozen feature has been modified");
+        } catch (final UnsupportedOperationException expected) {
+            // expected
+        }
+    }
 }
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.sling.feature.Artifact;
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Artifacts;
+import org.apache.sling.feature.Bundles;
+import org.apache.sling.feature.Feature;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ArtifactMergeIndexTest {
+
+    private static final String[] GROUPS = {"g1", "g2"};
+
+    private static final String[] NAMES = {"a", "b", "c", "d"};
+
+    private static final String[] VERSIONS = {"1.0", "1.1", "2.0", "2.0.1"};
+
+    private static final String[] RULES = {
+        BuilderContext.VERSION_OVERRIDE_ALL,
+        BuilderContext.VERSION_OVERRIDE_HIGHEST,
+        BuilderContext.VERSION_OVERRIDE_LATEST,
+        BuilderContext.VERSION_OVERRIDE_FIRST,
+        "1.1",
+        "3.0"
+    };
+
+    @Test
+    public void testLookups() {
+        final Artifact a = new Artifact(ArtifactId.parse("g:a:1"));
+        a.getMetadata().put(Artifact.KEY_ALIAS, "g:x");
+        final Artifact b = new Artifact(ArtifactId.parse("g:b:1"));
+        final Artifact a2 = new Artifact(ArtifactId.parse("g:a:2"));
+
+        final ArtifactMergeIndex index = new ArtifactMergeIndex(Arrays.asList(a, b, a2));
+        assertEquals(3, index.size());
+        assertEquals(Arrays.asList(a, a2), index.getSame(ArtifactId.parse("g:a:5")));
+        assertEquals(Arrays.asList(a), index.getAliased(ArtifactId.parse("g:x:5")));
+        assertTrue(index.getAliased(ArtifactId.parse("g:a:1")).isEmpty());
+        assertTrue(index.containsExact(ArtifactId.parse("g:a:2")));
+        assertFalse(index.containsExact(ArtifactId.parse("g:a:3")));
+    }
+
+    @Test
+    public void testRemoveAndInsertAtFirstRemovedPosition() {
+        final Artifact a = new Artifact(ArtifactId.parse("g:a:1"));
+        final Artifact b = new Artifact(ArtifactId.parse("g:b:1"));
+        final Artifact a2 = new Artifact(ArtifactId.parse("g:a:2"));
+        final Artifact c = new Artifact(ArtifactId.parse("g:c:1"));
+
+        final ArtifactMergeIndex index = new ArtifactMergeIndex(Arrays.asList(a, b, a2, c));
+        index.resetInsertPosition();
+        index.removeSame(ArtifactId.parse("g:a:3"));
+        final Artifact a3 = new Artifact(ArtifactId.parse("g:a:3"));
+        final Artifact d = new Artifact(ArtifactId.parse("g:d:1"));
+        index.add(a3);
+        index.add(d);
+        assertEquals(Arrays.asList(a3, d, b, c), index.toList());
+        assertTrue(index.getSame(ArtifactId.parse("g:a:1")).equals(Arrays.asList(a3)));
+
+        // at the end, exact duplicates are not added
+        index.resetInsertPosition();
+        index.add(new Artifact(ArtifactId.parse("g:c:1")));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void testManyInsertsAtSamePosition() {
+        final List<Artifact> list = new ArrayList<>();
+        list.add(new Artifact(ArtifactId.parse("g:first:1")));
+        list.add(new Artifact(ArtifactId.parse("g:last:1")));
+        final ArtifactMergeIndex index = new ArtifactMergeIndex(list);
+        index.resetInsertPosition();
+        index.removeSame(ArtifactId.parse("g:first:1"));
+        final List<Artifact> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final Artifact a = new Artifact(ArtifactId.parse("g:n" + i + ":1"));
+            expected.add(a);
+            index.add(a);
+        }
+        expected.add(list.get(1));
+        assertEquals(expected, index.toList());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(
+                    expected.get(i),
+                    index.getSame(ArtifactId.parse("g:n" + i + ":2")).get(0));
+        }
+    }
+
+    @Test
+    public void testMergeMatchesListBasedMerge() {
+        for (int seed = 0; seed < 500; seed++) {
+            final Random random = new Random(seed);
+            final List<ArtifactId> overrides = createOverrides(random);
+            final String originKey = random.nextBoolean() ? "origin-key" : null;
+
+            final Bundles expected = new Bundles();
+            final Bundles actual = new Bundles();
+            for (int merge = 0; merge < 4; merge++) {
+                final Feature feature = createFeature(random, merge, originKey);
+
+                RuntimeException expectedException = null;
+                try {
+                    mergeArtifactsListBased(expected, copy(feature.getBundles()), feature, overrides, originKey);
+                } catch (final RuntimeException e) {
+                    expectedException = e;
+                }
+                RuntimeException actualException = null;
+                try {
+                    BuilderUtil.mergeArtifacts(actual, copy(feature.getBundles()), feature, overrides, originKey);
+                } catch (final RuntimeException e) {
+                    actualException = e;
+                }
+                if (expectedException != null || actualException != null) {
+                    assertEquals("Seed " + seed, String.valueOf(expectedException), String.valueOf(actualException));
+                    break;
+                }
+                assertSameArtifacts("Seed " + seed + ", merge " + merge, expected, actual);
+            }
+        }
+    }
+
+    private static void assertSameArtifacts(final String msg, final Artifacts expected, final Artifacts actual) {
+        assertEquals(msg, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(msg, expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(msg, expected.get(i).getMetadata(), actual.get(i).getMetadata());
+        }
+    }
+
+    private static Artifacts copy(final Artifacts artifacts) {
+        final List<Artifact> list = new ArrayList<>();
+        for (final Artifact a : artifacts) {
+            list.add(a.copy(a.getId()));
+        }
+        final Artifacts result = new Bundles();
+        result.addAll(list);
+        return result;
+    }
+
+    private static List<ArtifactId> createOverrides(final Random random) {
+        final List<ArtifactId> overrides = new ArrayList<>();
+        final int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            final String rule = RULES[random.nextInt(RULES.length)];
+            if (random.nextInt(3) == 0) {
+                overrides.add(ArtifactId.parse(BuilderUtil.CATCHALL_OVERRIDE + rule));
+            } else {
+                overrides.add(new ArtifactId(
+                        GROUPS[random.nextInt(GROUPS.length)], NAMES[random.nextInt(NAMES.length)], rule, null, null));
+            }
+        }
+        return overrides;
+    }
+
+    private static Feature createFeature(final Random random, final int index, final String originKey) {
+        final Feature feature = new Feature(ArtifactId.parse("f:feature" + index + ":1"));
+        final int count = random.nextInt(8);
+        for (int i = 0; i < count; i++) {
+            final Artifact a = new Artifact(new ArtifactId(
+                    GROUPS[random.nextInt(GROUPS.length)],
+                    NAMES[random.nextInt(NAMES.length)],
+                    VERSIONS[random.nextInt(VERSIONS.length)],
+                    random.nextInt(5) == 0 ? "sources" : null,
+                    null));
+            if (random.nextBoolean()) {
+                a.setStartOrder(random.nextInt(4));
+            }
+            if (random.nextInt(4) == 0) {
+                String alias = GROUPS[random.nextInt(GROUPS.length)] + ":" + NAMES[random.nextInt(NAMES.length)];
+                if (random.nextBoolean()) {
+                    alias = alias.concat(":").concat(VERSIONS[random.nextInt(VERSIONS.length)]);
+                }
+                a.getMetadata().put(Artifact.KEY_ALIAS, alias);
+            }
+            if (random.nextInt(4) == 0) {
+                a.setFeatureOrigins(ArtifactId.parse("f:origin" + random.nextInt(3) + ":1"));
+            }
+            if (originKey != null && random.nextInt(4) == 0) {
+                a.getMetadata().put(originKey, "f:feature" + random.nextInt(index + 1) + ":1");
+            }
+            feature.getBundles().add(a);
+        }
+        return feature;
+    }
+
+    /**
+     * The list based merge algorithm, used as a reference.
+     */
+    private static void mergeArtifactsListBased(
+            final Artifacts target,
+            final Artifacts source,
+            final Feature sourceFeature,
+            final List<ArtifactId> artifactOverrides,
+            final String originKey) {
+
+        for (final Artifact artifactFromSource : source) {
+
+            final Set<Artifact> allExistingInTarget = new LinkedHashSet<>();
+            for (final ArtifactId id : artifactFromSource.getAliases(true)) {
+                for (Artifact targetArtifact : target) {
+                    if (id.isSame(targetArtifact.getId())) {
+                        allExistingInTarget.add(targetArtifact);
+                    }
+                }
+                for (final Artifact a : target) {
+                    for (final ArtifactId aid : a.getAliases(false)) {
+                        if (aid.isSame(id)) {
+                            allExistingInTarget.add(a);
+                        }
+                    }
+                }
+            }
+
+            final List<Artifact> selectedArtifacts = new ArrayList<>();
+            if (allExistingInTarget.isEmpty()) {
+                selectedArtifacts.add(artifactFromSource);
+            }
+
+            int insertPos = target.size();
+            int count = 0;
+            for (final Artifact existing : allExistingInTarget) {
+                if (originKey != null
+                        && sourceFeature
+                                .getId()
+                                .toMvnId()
+                                .equals(existing.getMetadata().get(originKey))) {
+                    selectedArtifacts.add(count++, existing);
+                    selectedArtifacts.add(artifactFromSource);
+                } else {
+                    List<Artifact> artifacts = BuilderUtil.selectArtifactOverride(
+                            sourceFeature, existing, artifactFromSource, artifactOverrides, sourceFeature.getId());
+                    if (artifacts.size() > 1) {
+                        selectedArtifacts.add(count++, artifacts.remove(0));
+                    }
+                    selectedArtifacts.addAll(artifacts);
+                    Artifact same = null;
+                    while ((same = target.getSame(existing.getId())) != null) {
+                        final int p = target.indexOf(same);
+                        if (p < insertPos) {
+                            insertPos = p;
+                        }
+                        target.remove(p);
+                    }
+                }
+            }
+
+            for (final Artifact sa : new LinkedHashSet<>(selectedArtifacts)) {
+                final Artifact cp = addFeatureOrigin(sa.copy(sa.getId()), sourceFeature, sa);
+                cp.getMetadata().put(BuilderUtil.class.getName() + "added", "true");
+                if (originKey != null) {
+                    if (sourceFeature != null
+                            && source.contains(sa)
+                            && sa.getMetadata().get(originKey) == null) {
+                        cp.getMetadata().put(originKey, sourceFeature.getId().toMvnId());
+                    }
+                }
+                if (insertPos == target.size()) {
+                    target.add(cp);
+                    insertPos = target.size();
+                } else {
+                    target.add(insertPos, cp);
+                    insertPos++;
+                }
+            }
+        }
+
+        for (Artifact artifact : target) {
+            artifact.getMetadata().remove(BuilderUtil.class.getName() + "added");
+        }
+    }
+
+    private static Artifact addFeatureOrigin(Artifact result, Feature sourceFeature, Artifact sourceArtifact) {
+        LinkedHashSet<ArtifactId> originFeatures = new LinkedHashSet<>();
+
+        List<ArtifactId> sourceOrigins = Arrays.asList(sourceArtifact.getFeatureOrigins());
+        if (sourceFeature != null && sourceOrigins.isEmpty()) {
+            originFeatures.add(sourceFeature.getId());
+        } else if (!sourceOrigins.isEmpty()) {
+            originFeatures.addAll(sourceOrigins);
+        }
+
+        ArtifactId[] origins = originFeatures.toArray(new ArtifactId[0]);
+        if (Arrays.equals(origins, result.getFeatureOrigins())) {
+            return result;
+        } else {
+            result = result.copy(result.getId());
+            result.setFeatureOrigins(origins);
+            return result;
+        }
+    }
+}
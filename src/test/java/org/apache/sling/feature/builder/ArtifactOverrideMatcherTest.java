@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import org.apache.sling.feature.ArtifactId;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ArtifactOverrideMatcherTest {
+
+    private static final String[] VALUES = {"a", "b", BuilderContext.COORDINATE_MATCH_ALL};
+
+    @Test
+    public void testFirstMatch() {
+        final ArtifactId exact = ArtifactId.parse("g:a:LATEST");
+        final ArtifactId group = ArtifactId.parse("g:*:ALL");
+        final ArtifactId all = ArtifactId.parse("*:*:*:*:FIRST");
+        final ArtifactOverrideMatcher matcher = new ArtifactOverrideMatcher(Arrays.asList(group, exact, all));
+
+        assertFalse(matcher.isEmpty());
+        assertSame(group, matcher.getFirstMatch(ArtifactId.parse("g:a:1")));
+        assertSame(group, matcher.getFirstMatch(ArtifactId.parse("g:b:1")));
+        // the type of the group rule is jar
+        assertSame(all, matcher.getFirstMatch(ArtifactId.parse("g:b:zip:1")));
+        assertSame(all, matcher.getFirstMatch(ArtifactId.parse("x:a:1")));
+
+        assertTrue(new ArtifactOverrideMatcher(Collections.emptyList()).isEmpty());
+        assertNull(ArtifactOverrideMatcher.EMPTY.getFirstMatch(ArtifactId.parse("g:a:1")));
+    }
+
+    @Test
+    public void testSameAsLinearMatch() {
+        final Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            final List<ArtifactId> overrides = new ArrayList<>();
+            final int count = random.nextInt(8);
+            for (int i = 0; i < count; i++) {
+                overrides.add(new ArtifactId(
+                        pick(random),
+                        pick(random),
+                        "1." + i,
+                        random.nextBoolean() ? null : pick(random),
+                        pick(random)));
+            }
+            final ArtifactOverrideMatcher matcher = new ArtifactOverrideMatcher(overrides);
+            for (final String g : VALUES) {
+                for (final String a : VALUES) {
+                    for (final String c : new String[] {null, "a", "b"}) {
+                        final ArtifactId id = new ArtifactId(g, a, "1.0.0", c, "a");
+                        assertEquals(linearMatch(id, overrides), matcher.getFirstMatch(id));
+                    }
+                }
+            }
+        }
+    }
+
+    private static String pick(final Random random) {
+        return VALUES[random.nextInt(VALUES.length)];
+    }
+
+    private static ArtifactId linearMatch(final ArtifactId id, final List<ArtifactId> overrides) {
+        for (final ArtifactId override : overrides) {
+            if (matches(id.getGroupId(), override.getGroupId())
+                    && matches(id.getArtifactId(), override.getArtifactId())
+                    && matches(id.getType(), override.getType())
+                    && matches(id.getClassifier(), override.getClassifier())) {
+                return override;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(final String value, final String rule) {
+        return BuilderContext.COORDINATE_MATCH_ALL.equals(rule) || Objects.equals(value, rule);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.builder;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.sling.feature.Configuration;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ConfigurationOverrideMatcherTest {
+
+    private static final String[] PIDS = {"a", "ab", "abc", "b", "a~x", "a~xy", "ab~x", "ab~y", "b~x", "b~", "a~b~c"};
+
+    private static final String[] RULES = {
+        "*", "a", "a*", "ab", "ab*", "b", "a~x", "a~*", "a*~x", "a*~x*", "ab~*", "*~y", "b~", "a~b*"
+    };
+
+    @Test
+    public void testFirstMatch() {
+        final Map<String, String> overrides = new LinkedHashMap<>();
+        overrides.put("a~*", BuilderContext.CONFIG_USE_FIRST);
+        overrides.put("a*", BuilderContext.CONFIG_MERGE_LATEST);
+        overrides.put("*", BuilderContext.CONFIG_USE_LATEST);
+        final ConfigurationOverrideMatcher matcher = new ConfigurationOverrideMatcher(overrides);
+
+        assertEquals("a*", matcher.getFirstMatch("a").getKey());
+        assertEquals("a*", matcher.getFirstMatch("abc").getKey());
+        assertEquals("a~*", matcher.getFirstMatch("a~name").getKey());
+        assertEquals(
+                BuilderContext.CONFIG_USE_FIRST, matcher.getFirstMatch("a~name").getValue());
+        // factory configurations are only matched by factory rules
+        assertEquals("*", matcher.getFirstMatch("ab~name").getKey());
+        assertEquals("*", matcher.getFirstMatch("b").getKey());
+
+        assertNull(new ConfigurationOverrideMatcher(Collections.singletonMap("a*", "x")).getFirstMatch("b"));
+        assertNull(ConfigurationOverrideMatcher.EMPTY.getFirstMatch("a"));
+    }
+
+    @Test
+    public void testSameAsLinearMatch() {
+        final Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            final Map<String, String> overrides = new LinkedHashMap<>();
+            final int count = random.nextInt(8);
+            for (int i = 0; i < count; i++) {
+                overrides.put(RULES[random.nextInt(RULES.length)], "rule" + i);
+            }
+            final ConfigurationOverrideMatcher matcher = new ConfigurationOverrideMatcher(overrides);
+            for (final String pid : PIDS) {
+                assertEquals(pid + " " + overrides, linearMatch(pid, overrides), matcher.getFirstMatch(pid));
+            }
+        }
+    }
+
+    private static Map.Entry<String, String> linearMatch(final String pid, final Map<String, String> overrides) {
+        for (final Map.Entry<String, String> entry : overrides.entrySet()) {
+            final String rule = entry.getKey();
+            final boolean result;
+            if (rule.equals("*")) {
+                result = true;
+            } else if (Configuration.isFactoryConfiguration(pid)) {
+                result = Configuration.isFactoryConfiguration(rule)
+                        && matches(Configuration.getFactoryPid(pid), Configuration.getFactoryPid(rule))
+                        && matches(Configuration.getName(pid), Configuration.getName(rule));
+            } else {
+                result = matches(pid, rule);
+            }
+            if (result) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(final String value, final String rule) {
+        if (rule.endsWith("*")) {
+            return value.startsWith(rule.substring(0, rule.length() - 1));
+        }
+        return value.equals(rule);
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.sling.feature.builder;
 
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -27,11 +28,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.felix.utils.resource.CapabilityImpl;
 import org.apache.felix.utils.resource.RequirementImpl;
 import org.apache.sling.feature.Artifact;
 import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.ArtifactIdInterner;
 import org.apache.sling.feature.Configuration;
 import org.apache.sling.feature.Extension;
 import org.apache.sling.feature.ExtensionState;
@@ -49,6 +53,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -1423,6 +1428,31 @@ public class FeatureBuilderTest {
         assertEquals("world", result[1]);
     }
 
+    @Test
+    public void testInternFeatureOrigins() {
+        final Feature f1 = new Feature(ArtifactId.parse("g:a:1"));
+        f1.getBundles().add(BuilderUtilTest.createBundle("g/x/1", 1));
+        f1.getConfigurations().add(new Configuration("c1"));
+        final Feature f2 = new Feature(ArtifactId.parse("g:b:1"));
+        f2.getBundles().add(BuilderUtilTest.createBundle("g/y/1", 1));
+        f2.getConfigurations().add(new Configuration("c1"));
+
+        final ArtifactIdInterner interner = new ArtifactIdInterner();
+        final BuilderContext bc = new BuilderContext(provider).setArtifactIdInterner(interner);
+        bc.addConfigsOverrides(Collections.singletonMap("*", BuilderContext.CONFIG_MERGE_LATEST));
+        final Feature f = FeatureBuilder.assemble(ArtifactId.parse("g:f:1"), bc, f1, f2);
+
+        final ArtifactId a = interner.intern(ArtifactId.parse("g:a:1"));
+        final ArtifactId b = interner.intern(ArtifactId.parse("g:b:1"));
+        assertSame(a, f.getBundles().get(0).getFeatureOrigins()[0]);
+        assertSame(b, f.getBundles().get(1).getFeatureOrigins()[0]);
+        final List<ArtifactId> origins =
+                f.getConfigurations().getConfiguration("c1").getFeatureOrigins();
+        assertEquals(2, origins.size());
+        assertSame(a, origins.get(0));
+        assertSame(b, origins.get(1));
+    }
+
     @Test
     public void testMergeConfigurationFeatureOrigins() {
         final Feature f1 = new Feature(ArtifactId.parse("g:a:1"));
@@ -1589,6 +1619,121 @@ public class FeatureBuilderTest {
         assertTrue(fc3.getFeatureOrigins().isEmpty());
     }
 
+    @Test
+    public void testAssemblyCache() {
+        final Feature base = new Feature(ArtifactId.parse("g:base:1"));
+        base.getBundles().add(BuilderUtilTest.createBundle("g/b1/1", 1));
+        base.getBundles().add(BuilderUtilTest.createBundle("g/b2/1", 1));
+        final Feature mid = new Feature(ArtifactId.parse("g:mid:1"));
+        mid.setPrototype(new Prototype(base.getId()));
+        mid.getBundles().add(BuilderUtilTest.createBundle("g/b3/1", 2));
+
+        final Feature s1 = new Feature(ArtifactId.parse("g:s1:1"));
+        final Prototype p1 = new Prototype(mid.getId());
+        p1.getBundleRemovals().add(ArtifactId.parse("g/b1/1"));
+        s1.setPrototype(p1);
+        final Feature s2 = new Feature(ArtifactId.parse("g:s2:1"));
+        s2.setPrototype(new Prototype(mid.getId()));
+        s2.getBundles().add(BuilderUtilTest.createBundle("g/b4/1", 3));
+
+        final List<ArtifactId> provided = new ArrayList<>();
+        final FeatureProvider prov = id -> {
+            provided.add(id);
+            return id.equals(base.getId()) ? base : (id.equals(mid.getId()) ? mid : null);
+        };
+
+        final Feature expected1 = FeatureBuilder.assemble(s1, new BuilderContext(prov));
+        final Feature expected2 = FeatureBuilder.assemble(s2, new BuilderContext(prov));
+        assertEquals(4, provided.size());
+        provided.clear();
+
+        final AssemblyCache cache = new AssemblyCache();
+        final BuilderContext context = new BuilderContext(prov).setAssemblyCache(cache);
+        final Feature assembled1 = FeatureBuilder.assemble(s1, context);
+        final Feature assembled2 = FeatureBuilder.assemble(s2, context);
+        assertEquals(Arrays.asList(mid.getId(), base.getId()), provided);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+
+        assertEquals(expected1.getBundles(), assembled1.getBundles());
+        assertEquals(expected2.getBundles(), assembled2.getBundles());
+        for (int i = 0; i < expected2.getBundles().size(); i++) {
+            assertEquals(
+                    expected2.getBundles().get(i).getMetadata(),
+                    assembled2.getBundles().get(i).getMetadata());
+        }
+
+        // a different override uses a different cache entry
+        final BuilderContext context2 = new BuilderContext(prov)
+                .setAssemblyCache(cache)
+                .addVariablesOverrides(Collections.singletonMap("v", "x"));
+        FeatureBuilder.assemble(s2, context2);
+        assertEquals(1, cache.getHits());
+        assertEquals(4, cache.getMisses());
+
+        // prototypes taken from the cache are still detected by deduplicate
+        final Feature[] result = FeatureBuilder.deduplicate(context, s1, s2, mid);
+        assertEquals(2, result.length);
+        assertEquals(s1.getId(), result[0].getId());
+        assertEquals(s2.getId(), result[1].getId());
+    }
+
+    @Test
+    public void testParallelAssembly() throws Exception {
+        final Feature[] features = new Feature[20];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = new Feature(ArtifactId.parse("g:f" + i + ":1"));
+            features[i].setPrototype(new Prototype(ArtifactId.parse("g/a/" + (1 + i % 3))));
+            features[i].getBundles().add(BuilderUtilTest.createBundle("g/b" + i + "/1", 1));
+            features[i].getBundles().add(BuilderUtilTest.createBundle("group/testmulti/" + (1 + i % 2), 8));
+        }
+        final ArtifactId id = ArtifactId.parse("g:all:1");
+        final Feature expected = FeatureBuilder.assemble(
+                id,
+                new BuilderContext(provider)
+                        .addArtifactsOverride(ArtifactId.parse("*:*:LATEST"))
+                        .addConfigsOverrides(Collections.singletonMap("*", BuilderContext.CONFIG_MERGE_LATEST)),
+                features);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final BuilderContext context = new BuilderContext(provider)
+                    .addArtifactsOverride(ArtifactId.parse("*:*:LATEST"))
+                    .addConfigsOverrides(Collections.singletonMap("*", BuilderContext.CONFIG_MERGE_LATEST))
+                    .setExecutor(executor);
+            final Feature assembled = FeatureBuilder.assemble(id, context, features);
+            assertEquals(expected.getBundles(), assembled.getBundles());
+            for (int i = 0; i < expected.getBundles().size(); i++) {
+                assertEquals(
+                        expected.getBundles().get(i).getMetadata(),
+                        assembled.getBundles().get(i).getMetadata());
+            }
+            assertEquals(
+                    expected.getConfigurations().size(),
+                    assembled.getConfigurations().size());
+            for (int i = 0; i < expected.getConfigurations().size(); i++) {
+                final Configuration e = expected.getConfigurations().get(i);
+                final Configuration a = assembled.getConfigurations().get(i);
+                assertEquals(e.getPid(), a.getPid());
+                assertEquals(e.getFeatureOrigins(), a.getFeatureOrigins());
+                assertEquals(e.getConfigurationProperties(), a.getConfigurationProperties());
+            }
+            assertEquals(expected.getFrameworkProperties(), assembled.getFrameworkProperties());
+
+            final Feature missing = new Feature(ArtifactId.parse("g:missing:1"));
+            missing.setPrototype(new Prototype(ArtifactId.parse("g:unknown:1")));
+            try {
+                FeatureBuilder.assemble(id, context, features[0], missing);
+                fail();
+            } catch (final IllegalStateException expect) {
+                // expected
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private static class MatchingRequirementImpl extends RequirementImpl implements MatchingRequirement {
 
         public MatchingRequirementImpl(Resource res, String ns, Map<String, String> dirs, Map<String, Object> attrs) {
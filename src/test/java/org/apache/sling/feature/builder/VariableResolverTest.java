@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.builder;
+
+import java.util.Collections;
+
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Feature;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class VariableResolverTest {
+
+    @Test
+    public void testResolve() {
+        final Feature feature = new Feature(ArtifactId.parse("g:a:1"));
+        feature.getVariables().put("a", "A");
+        feature.getVariables().put("b", "${a}-${a}");
+        feature.getVariables().put("c", "${b}/${undefined}");
+        feature.getVariables().put("d", "D");
+        final VariableResolver resolver = new VariableResolver(feature, Collections.singletonMap("d", "E"));
+
+        final String plain = "no variables";
+        assertSame(plain, resolver.resolve(plain));
+        final String unknown = "${x} ${} ${a ${a";
+        assertSame(unknown, resolver.resolve(unknown));
+        assertEquals("A-A/${undefined}", resolver.resolve("${c}"));
+        assertEquals("$A{A}A-A", resolver.resolve("$${a}{${a}}${b}"));
+        assertEquals("${A}", resolver.resolve("${${a}}"));
+        assertEquals("E", resolver.resolve("${d}"));
+    }
+
+    @Test
+    public void testUndefinedValue() {
+        final Feature feature = new Feature(ArtifactId.parse("g:a:1"));
+        feature.getVariables().put("a", null);
+        feature.getVariables().put("b", "${a}");
+        final VariableResolver resolver = new VariableResolver(feature, null);
+
+        assertEquals("a", resolver.resolve("a"));
+        try {
+            resolver.resolve("${b}");
+            fail();
+        } catch (final IllegalStateException expected) {
+            assertEquals("Undefined variable: a", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testCycle() {
+        final Feature feature = new Feature(ArtifactId.parse("g:a:1"));
+        feature.getVariables().put("a", "${b}");
+        feature.getVariables().put("b", "x${c}");
+        feature.getVariables().put("c", "${b}");
+        feature.getVariables().put("self", "${self}");
+
+        try {
+            new VariableResolver(feature, null).resolve("${a}");
+            fail();
+        } catch (final IllegalStateException expected) {
+            assertEquals("Variable b references itself: b -> c -> b", expected.getMessage());
+        }
+        try {
+            new VariableResolver(feature, null).resolve("${self}");
+            fail();
+        } catch (final IllegalStateException expected) {
+            assertEquals("Variable self references itself: self -> self", expected.getMessage());
+        }
+    }
+}
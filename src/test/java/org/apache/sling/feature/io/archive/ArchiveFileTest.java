@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.io.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.apache.sling.feature.Artifact;
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Feature;
+import org.apache.sling.feature.io.json.FeatureJSONWriter;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ArchiveFileTest {
+
+    private static final ArtifactId FEATURE_ID = ArtifactId.parse("g:f:1");
+
+    private static final ArtifactId BUNDLE_A = ArtifactId.parse("g:a:2");
+
+    private static final ArtifactId BUNDLE_B = ArtifactId.parse("g:b:2");
+
+    private Path writeArchive() throws IOException {
+        final Feature f = new Feature(FEATURE_ID);
+        f.getBundles().add(new Artifact(BUNDLE_A));
+        f.getBundles().add(new Artifact(BUNDLE_B));
+
+        final Path path = Files.createTempFile("ArchiveFileTest", ".far");
+        path.toFile().deleteOnExit();
+        try (final OutputStream out = Files.newOutputStream(path);
+                final JarOutputStream jos = ArchiveWriter.write(
+                        out, null, id -> ArchiveFileTest.class.getResource(ArchiveWriterTest.ARTIFACT), f)) {
+            // an additional file which is not an artifact
+            jos.putNextEntry(new JarEntry("readme.txt"));
+            jos.write("readme".getBytes(StandardCharsets.UTF_8));
+            jos.closeEntry();
+        }
+        return path;
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        final Path path = this.writeArchive();
+        try (final ArchiveFile archive = new ArchiveFile(path)) {
+            assertEquals(Arrays.asList(FEATURE_ID), archive.getFeatureIds());
+            assertEquals(
+                    new HashSet<>(Arrays.asList(FEATURE_ID, BUNDLE_A, BUNDLE_B)),
+                    new HashSet<>(archive.getArtifactIds()));
+            assertTrue(archive.contains(BUNDLE_A));
+            assertFalse(archive.contains(ArtifactId.parse("g:c:1")));
+            assertNull(archive.open(ArtifactId.parse("g:c:1")));
+
+            final byte[] expected;
+            try (final InputStream is = ArchiveFileTest.class.getResourceAsStream(ArchiveWriterTest.ARTIFACT)) {
+                expected = readFully(is);
+            }
+            assertEquals(expected.length, archive.getSize(BUNDLE_B));
+            try (final InputStream is = archive.open(BUNDLE_B)) {
+                assertArrayEquals(expected, readFully(is));
+            }
+
+            final List<Feature> features = archive.readFeatures();
+            assertEquals(1, features.size());
+            assertEquals(FEATURE_ID, features.get(0).getId());
+            assertEquals(2, features.get(0).getBundles().size());
+
+            archive.verify();
+        }
+    }
+
+    @Test
+    public void testVerifyIncompleteArchive() throws IOException {
+        final Feature f = new Feature(FEATURE_ID);
+        f.getBundles().add(new Artifact(BUNDLE_A));
+        f.getBundles().add(new Artifact(BUNDLE_B));
+
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
+        manifest.getMainAttributes().putValue(ArchiveWriter.VERSION_HEADER, "1");
+        manifest.getMainAttributes().putValue(ArchiveWriter.CONTENTS_HEADER, FEATURE_ID.toMvnId());
+
+        final Path path = Files.createTempFile("ArchiveFileTest", ".far");
+        path.toFile().deleteOnExit();
+        try (final JarOutputStream jos = new JarOutputStream(Files.newOutputStream(path), manifest)) {
+            jos.putNextEntry(new JarEntry(FEATURE_ID.toMvnPath()));
+            final Writer writer = new OutputStreamWriter(jos, StandardCharsets.UTF_8);
+            FeatureJSONWriter.write(writer, f);
+            writer.flush();
+            jos.closeEntry();
+            jos.putNextEntry(new JarEntry(BUNDLE_A.toMvnPath()));
+            jos.closeEntry();
+        }
+
+        try (final ArchiveFile archive = new ArchiveFile(path)) {
+            assertTrue(archive.contains(BUNDLE_A));
+            assertFalse(archive.contains(BUNDLE_B));
+            try {
+                archive.verify();
+                fail();
+            } catch (final IOException expected) {
+                assertEquals("Artifact " + BUNDLE_B.toMvnId() + " is missing in archive", expected.getMessage());
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNoFeatureArchive() throws IOException {
+        final Path path = Files.createTempFile("ArchiveFileTest", ".jar");
+        path.toFile().deleteOnExit();
+        try (final JarOutputStream jos = new JarOutputStream(Files.newOutputStream(path))) {
+            jos.putNextEntry(new JarEntry("a.txt"));
+            jos.closeEntry();
+        }
+        new ArchiveFile(path).close();
+    }
+
+    private static byte[] readFully(final InputStream is) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int l;
+        while ((l = is.read(buffer)) > 0) {
+            baos.write(buffer, 0, l);
+        }
+        return baos.toByteArray();
+    }
+}
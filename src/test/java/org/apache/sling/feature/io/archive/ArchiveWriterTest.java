@@ -26,8 +26,12 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.sling.feature.Artifact;
@@ -109,6 +113,49 @@ public class ArchiveWriterTest {
         assertEquals(f.getId(), g.getId());
     }
 
+    @Test
+    public void testArchiveWriteListener() throws IOException {
+        final Feature f = new Feature(ArtifactId.parse("g:f:1"));
+        f.getBundles().add(new Artifact(ArtifactId.parse("g:a:2")));
+        f.getBundles().add(new Artifact(ArtifactId.parse("g:b:2")));
+
+        final byte[] artifactBytes;
+        try (final InputStream is = ArchiveWriterTest.class.getResourceAsStream(ARTIFACT)) {
+            artifactBytes = readFromStream(is);
+        }
+
+        final Map<ArtifactId, Long> written = new LinkedHashMap<>();
+        final byte[] archive;
+        try (final ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            ArchiveWriter.write(
+                            out,
+                            null,
+                            id -> ArchiveWriterTest.class.getResource(ARTIFACT),
+                            (id, bytes, nanos) -> {
+                                assertTrue(nanos >= 0);
+                                written.put(id, bytes);
+                            },
+                            f)
+                    .finish();
+            archive = out.toByteArray();
+        }
+        assertEquals(
+                Arrays.asList(f.getId(), ArtifactId.parse("g:a:2"), ArtifactId.parse("g:b:2")),
+                new ArrayList<>(written.keySet()));
+        assertEquals(
+                artifactBytes.length, written.get(ArtifactId.parse("g:a:2")).longValue());
+        assertEquals(
+                artifactBytes.length, written.get(ArtifactId.parse("g:b:2")).longValue());
+
+        final Map<ArtifactId, Integer> read = new HashMap<>();
+        try (final InputStream in = new ByteArrayInputStream(archive)) {
+            ArchiveReader.read(in, (id, is) -> read.put(id, readFromStream(is).length));
+        }
+        for (final Map.Entry<ArtifactId, Long> entry : written.entrySet()) {
+            assertEquals(entry.getValue().longValue(), read.get(entry.getKey()).longValue());
+        }
+    }
+
     private byte[] readFromStream(final InputStream is) throws IOException {
         byte[] read;
         try (final ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
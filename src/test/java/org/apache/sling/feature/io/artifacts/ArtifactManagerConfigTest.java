@@ -23,14 +23,24 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.sling.feature.Artifact;
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Extension;
+import org.apache.sling.feature.ExtensionState;
+import org.apache.sling.feature.ExtensionType;
+import org.apache.sling.feature.Feature;
+import org.apache.sling.feature.Prototype;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.apache.sling.feature.io.artifacts.ArtifactManagerConfig.toFileUrl;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 public class ArtifactManagerConfigTest {
 
@@ -84,4 +94,25 @@ public class ArtifactManagerConfigTest {
                 },
                 underTest.getRepositoryUrls());
     }
+
+    @Test
+    public void testPinFeature() {
+        final Feature feature = new Feature(ArtifactId.parse("g:feature:slingosgifeature:1"));
+        feature.setPrototype(new Prototype(ArtifactId.parse("g:prototype:slingosgifeature:1")));
+        feature.getBundles().add(new Artifact(ArtifactId.parse("g:bundle:1")));
+        final Extension content = new Extension(ExtensionType.ARTIFACTS, "content-packages", ExtensionState.OPTIONAL);
+        content.getArtifacts().add(new Artifact(ArtifactId.parse("g:content:zip:1")));
+        feature.getExtensions().add(content);
+        feature.getExtensions().add(new Extension(ExtensionType.TEXT, "text", ExtensionState.OPTIONAL));
+
+        final ArtifactManagerConfig underTest = new ArtifactManagerConfig();
+        underTest.pinFeature(feature);
+        assertEquals(
+                new HashSet<>(Arrays.asList(
+                        feature.getId(),
+                        feature.getPrototype().getId(),
+                        ArtifactId.parse("g:bundle:1"),
+                        ArtifactId.parse("g:content:zip:1"))),
+                underTest.getPinnedArtifacts());
+    }
 }
@@ -20,23 +20,51 @@ package org.apache.sling.feature.io.artifacts;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
 import java.net.URLStreamHandlerFactory;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import com.sun.net.httpserver.HttpServer;
+import org.apache.sling.feature.ArtifactId;
 import org.apache.sling.feature.io.artifacts.spi.ArtifactProvider;
+import org.apache.sling.feature.io.artifacts.spi.ArtifactProviderContext;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ArtifactManagerTest {
@@ -115,6 +143,428 @@ public class ArtifactManagerTest {
         assertEquals(artifactFile, handler.getLocalURL());
     }
 
+    @Test
+    public void testSnapshotMetadataIsReused() throws IOException {
+        final String REPO = "http://reuse.apache.org";
+        final ArtifactManagerConfig config = mock(ArtifactManagerConfig.class);
+        when(config.getRepositoryUrls()).thenReturn(new String[] {REPO});
+        when(config.getSnapshotMetadataTtl()).thenReturn(60000L);
+
+        final URL metadataFile = new URL("file:/maven-metadata.xml");
+        final URL artifactFile = new URL("file:/artifact");
+
+        final ArtifactProvider provider = mock(ArtifactProvider.class);
+        when(provider.getArtifact(
+                        REPO + "/group/artifact/1.0.0-SNAPSHOT/maven-metadata.xml",
+                        "reuse.apache.org/group/artifact/1.0.0-SNAPSHOT/maven-metadata.xml"))
+                .thenReturn(metadataFile);
+        when(provider.getArtifact(
+                        REPO + "/group/artifact/1.0.0-SNAPSHOT/artifact-1.0.0-20160321.103951-1.txt",
+                        "group/artifact/1.0.0-SNAPSHOT/artifact-1.0.0-SNAPSHOT.txt"))
+                .thenReturn(artifactFile);
+
+        final AtomicInteger reads = new AtomicInteger();
+        SnapshotMetadataCache.SHARED.clear();
+        for (int i = 0; i < 2; i++) {
+            final ArtifactManager mgr = new ArtifactManager(config, Collections.singletonMap("*", provider)) {
+
+                @Override
+                protected String getFileContents(final ArtifactHandler handler) throws IOException {
+                    reads.incrementAndGet();
+                    return METADATA;
+                }
+            };
+            assertEquals(
+                    artifactFile,
+                    mgr.getArtifactHandler("mvn:group/artifact/1.0.0-SNAPSHOT/txt")
+                            .getLocalURL());
+            assertEquals(
+                    artifactFile,
+                    mgr.getArtifactHandler("mvn:group/artifact/1.0.0-SNAPSHOT/txt")
+                            .getLocalURL());
+        }
+        assertEquals(1, reads.get());
+        verify(provider, times(1))
+                .getArtifact(
+                        REPO + "/group/artifact/1.0.0-SNAPSHOT/maven-metadata.xml",
+                        "reuse.apache.org/group/artifact/1.0.0-SNAPSHOT/maven-metadata.xml");
+    }
+
+    @Test
+    public void testMissingArtifactsAreDownloadedWithMvnAtOnce() throws IOException {
+        final Path mvnHome = Files.createTempDirectory("testMissingArtifactsAreDownloadedWithMvnAtOnce");
+        final ArtifactManagerConfig config = mock(ArtifactManagerConfig.class);
+        when(config.getRepositoryUrls()).thenReturn(new String[] {"http://org.apache.sling"});
+        when(config.isUseMvn()).thenReturn(true);
+        when(config.getPrefetchThreads()).thenReturn(4);
+        when(config.getMvnHome()).thenReturn(mvnHome.toString());
+
+        // available in the local mvn repository
+        final ArtifactId local = ArtifactId.parse("g:local:1");
+        Files.createDirectories(mvnHome.resolve("g/local/1"));
+        Files.write(mvnHome.resolve(local.toMvnPath()), new byte[1]);
+
+        final List<Collection<ArtifactId>> invocations = new ArrayList<>();
+        final ArtifactManager mgr =
+                new ArtifactManager(config, Collections.singletonMap("*", new CountingProvider() {
+                    @Override
+                    public URL getArtifact(final String url, final String relativeCachePath) {
+                        super.getArtifact(url, relativeCachePath);
+                        return null;
+                    }
+                })) {
+                    @Override
+                    void downloadArtifacts(final Collection<ArtifactId> ids) throws IOException {
+                        invocations.add(new ArrayList<>(ids));
+                        for (final ArtifactId id : ids) {
+                            if (!id.getArtifactId().startsWith("missing")) {
+                                final Path file = mvnHome.resolve(id.toMvnPath());
+                                Files.createDirectories(file.getParent());
+                                Files.write(file, new byte[1]);
+                            }
+                        }
+                    }
+                };
+
+        final List<ArtifactId> ids = new ArrayList<>();
+        ids.add(local);
+        for (int i = 0; i < 50; i++) {
+            ids.add(ArtifactId.parse("g:a" + i + ":1"));
+        }
+        ids.add(ArtifactId.parse("g:missing:1"));
+        final PrefetchReport report = mgr.prefetch(ids);
+
+        assertEquals(51, report.getHandlers().size());
+        assertEquals(
+                Collections.singleton(ArtifactId.parse("g:missing:1")),
+                report.getFailures().keySet());
+        assertEquals(1, invocations.size());
+        assertEquals(51, invocations.get(0).size());
+        assertFalse(invocations.get(0).contains(local));
+    }
+
+    /**
+     * Provider returning a file url for all paths except the ones containing "missing",
+     * counting the requests per path and blocking requests for paths containing "slow"
+     * until released.
+     */
+    private static class CountingProvider implements ArtifactProvider {
+
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+        final CountDownLatch entered = new CountDownLatch(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String getProtocol() {
+            return "*";
+        }
+
+        @Override
+        public void init(final ArtifactProviderContext context) {
+            // nothing to do
+        }
+
+        @Override
+        public void shutdown() {
+            // nothing to do
+        }
+
+        @Override
+        public URL getArtifact(final String url, final String relativeCachePath) {
+            this.calls
+                    .computeIfAbsent(relativeCachePath, k -> new AtomicInteger())
+                    .incrementAndGet();
+            if (relativeCachePath.contains("slow")) {
+                this.entered.countDown();
+                try {
+                    this.release.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (relativeCachePath.contains("missing")) {
+                return null;
+            }
+            try {
+                return new URL("file:/" + relativeCachePath);
+            } catch (final MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Test
+    public void testPrefetch() throws IOException {
+        final ArtifactManagerConfig config = mock(ArtifactManagerConfig.class);
+        when(config.getRepositoryUrls()).thenReturn(new String[] {"http://org.apache.sling"});
+        when(config.getPrefetchThreads()).thenReturn(2);
+
+        final CountingProvider provider = new CountingProvider();
+        provider.release.countDown();
+        final ArtifactManager mgr = new ArtifactManager(config, Collections.singletonMap("*", provider));
+
+        final ArtifactId a = ArtifactId.parse("g:a:1");
+        final ArtifactId b = ArtifactId.parse("g:b:1");
+        final ArtifactId missing = ArtifactId.parse("g:missing:1");
+        final PrefetchReport report = mgr.prefetch(Arrays.asList(a, b, a, missing));
+
+        assertFalse(report.isComplete());
+        assertEquals(Arrays.asList(a, b), new ArrayList<>(report.getHandlers().keySet()));
+        assertEquals(
+                new URL("file:/" + a.toMvnPath()), report.getHandlers().get(a).getLocalURL());
+        assertEquals(Collections.singleton(missing), report.getFailures().keySet());
+        assertEquals(1, provider.calls.get(a.toMvnPath()).get());
+        assertEquals(1, provider.calls.get(b.toMvnPath()).get());
+    }
+
+    @Test
+    public void testConcurrentRequestsForSamePath() throws Exception {
+        final ArtifactManagerConfig config = mock(ArtifactManagerConfig.class);
+        when(config.getRepositoryUrls()).thenReturn(new String[] {"http://org.apache.sling"});
+
+        final CountingProvider provider = new CountingProvider();
+        final ArtifactManager mgr = new ArtifactManager(config, Collections.singletonMap("*", provider));
+
+        final String url = "mvn:g/slow/1";
+        final URL[] results = new URL[2];
+        final Thread first = new Thread(() -> {
+            try {
+                results[0] = mgr.getArtifactHandler(url).getLocalURL();
+            } catch (final IOException ignore) {
+                // checked below
+            }
+        });
+        final Thread second = new Thread(() -> {
+            try {
+                results[1] = mgr.getArtifactHandler(url).getLocalURL();
+            } catch (final IOException ignore) {
+                // checked below
+            }
+        });
+        first.start();
+        assertTrue(provider.entered.await(10, TimeUnit.SECONDS));
+        second.start();
+        // wait until the second request waits for the first one
+        final long end = System.currentTimeMillis() + 10000;
+        while (second.getState() != Thread.State.WAITING && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        provider.release.countDown();
+        first.join(10000);
+        second.join(10000);
+
+        assertNotNull(results[0]);
+        assertEquals(results[0], results[1]);
+        assertEquals(1, provider.calls.get("g/slow/1/slow-1.jar").get());
+    }
+
+    @Test
+    public void testSkipRecentMisses() throws IOException {
+        final ArtifactManagerConfig config = mock(ArtifactManagerConfig.class);
+        when(config.getRepositoryUrls()).thenReturn(new String[] {"http://missing.apache.org", "http://apache.org"});
+        when(config.getNegativeCacheTtl()).thenReturn(60000L);
+
+        final CountingProvider provider = new CountingProvider() {
+            @Override
+            public URL getArtifact(final String url, final String relativeCachePath) {
+                final URL result = super.getArtifact(url, relativeCachePath);
+                return url.startsWith("http://missing.") ? null : result;
+            }
+        };
+        provider.release.countDown();
+        final ArtifactManager mgr = new ArtifactManager(config, Collections.singletonMap("*", provider));
+
+        assertNotNull(mgr.getArtifactHandler("mvn:g/a/1"));
+        assertNotNull(mgr.getArtifactHandler("mvn:g/a/1"));
+        // the first repository is only queried once
+        assertEquals(3, provider.calls.get("g/a/1/a-1.jar").get());
+    }
+
+    @Test
+    public void testTransientErrorsAreNotRemembered() throws Exception {
+        final byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+        final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            final String path = exchange.getRequestURI().getPath();
+            final int count =
+                    requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            if (path.equals("/flaky/g/a/1/a-1.jar") && count > 1) {
+                exchange.sendResponseHeaders(200, content.length);
+                exchange.getResponseBody().write(content);
+            } else if (path.startsWith("/flaky/")) {
+                exchange.sendResponseHeaders(503, -1);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+            exchange.close();
+        });
+        server.start();
+
+        final String base = "http://localhost:" + server.getAddress().getPort();
+        final ArtifactManagerConfig cfg = new ArtifactManagerConfig();
+        cfg.setRepositoryUrls(new String[] {base + "/missing", base + "/flaky"});
+        cfg.setCacheDirectory(
+                Files.createTempDirectory("testTransientErrorsAreNotRemembered").toFile());
+        cfg.setNegativeCacheTtl(60000L);
+        final ArtifactManager mgr = ArtifactManager.getArtifactManager(cfg);
+        try {
+            try {
+                mgr.getArtifactHandler("mvn:g/a/1");
+                fail();
+            } catch (final IOException expected) {
+                // expected
+            }
+            final Path file =
+                    Paths.get(mgr.getArtifactHandler("mvn:g/a/1").getLocalURL().toURI());
+            assertTrue(Arrays.equals(content, Files.readAllBytes(file)));
+            // the 404 is remembered, the 503 is not
+            assertEquals(1, requests.get("/missing/g/a/1/a-1.jar").get());
+            assertEquals(2, requests.get("/flaky/g/a/1/a-1.jar").get());
+        } finally {
+            mgr.shutdown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testConcurrentDownloadsIntoSharedCache() throws Exception {
+        final byte[] content = new byte[256 * 1024];
+        new Random(42).nextBytes(content);
+        final AtomicInteger downloads = new AtomicInteger();
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/repo/g/a/1/a-1.jar", exchange -> {
+            if (!exchange.getRequestURI().getPath().endsWith(".jar")) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            downloads.incrementAndGet();
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                // write slowly, so that readers would see a partial file
+                for (int i = 0; i < content.length; i += 16 * 1024) {
+                    out.write(content, i, 16 * 1024);
+                    out.flush();
+                    Thread.sleep(5);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        final Path cacheDir = Files.createTempDirectory("testConcurrentDownloadsIntoSharedCache");
+        final ArtifactManagerConfig cfg = new ArtifactManagerConfig();
+        cfg.setRepositoryUrls(
+                new String[] {"http://localhost:" + server.getAddress().getPort() + "/repo"});
+        cfg.setCacheDirectory(cacheDir.toFile());
+
+        final List<ArtifactManager> managers = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<URL>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final ArtifactManager mgr = ArtifactManager.getArtifactManager(cfg);
+                managers.add(mgr);
+                results.add(executor.submit(
+                        () -> mgr.getArtifactHandler("mvn:g/a/1").getLocalURL()));
+            }
+            for (final Future<URL> f : results) {
+                final Path file = Paths.get(f.get(30, TimeUnit.SECONDS).toURI());
+                assertTrue(Arrays.equals(content, Files.readAllBytes(file)));
+            }
+        } finally {
+            executor.shutdownNow();
+            for (final ArtifactManager mgr : managers) {
+                mgr.shutdown();
+            }
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdownNow();
+        }
+        assertEquals(1, downloads.get());
+        try (Stream<Path> files = Files.list(cacheDir.resolve("g/a/1"))) {
+            assertEquals(
+                    Collections.singletonList("a-1.jar"),
+                    files.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testContentAddressedCache() throws Exception {
+        final byte[] content = new byte[4096];
+        new Random(7).nextBytes(content);
+        final byte[] other = Arrays.copyOf(content, content.length);
+        other[0]++;
+        final String sha256 = toHex(MessageDigest.getInstance("SHA-256").digest(content));
+        final String sha1 = toHex(MessageDigest.getInstance("SHA-1").digest(content));
+
+        final Map<String, byte[]> files = new HashMap<>();
+        files.put("/repo/g/a/1/a-1.jar", content);
+        files.put("/repo/g/a/1/a-1.jar.sha256", (sha256 + "  a-1.jar").getBytes(StandardCharsets.US_ASCII));
+        // same content under different coordinates
+        files.put("/repo/g/b/1/b-1.jar", content);
+        files.put("/repo/g/b/1/b-1.jar.sha1", sha1.getBytes(StandardCharsets.US_ASCII));
+        // content not matching the checksum
+        files.put("/repo/g/c/1/c-1.jar", other);
+        files.put("/repo/g/c/1/c-1.jar.sha1", sha1.getBytes(StandardCharsets.US_ASCII));
+
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/repo", exchange -> {
+            final byte[] data = files.get(exchange.getRequestURI().getPath());
+            if (data == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                exchange.sendResponseHeaders(200, data.length);
+                exchange.getResponseBody().write(data);
+            }
+            exchange.close();
+        });
+        server.start();
+
+        final Path cacheDir = Files.createTempDirectory("testContentAddressedCache");
+        final ArtifactManagerConfig cfg = new ArtifactManagerConfig();
+        cfg.setRepositoryUrls(
+                new String[] {"http://localhost:" + server.getAddress().getPort() + "/repo"});
+        cfg.setCacheDirectory(cacheDir.toFile());
+        final ArtifactManager mgr = ArtifactManager.getArtifactManager(cfg);
+        try {
+            final Path a =
+                    Paths.get(mgr.getArtifactHandler("mvn:g/a/1").getLocalURL().toURI());
+            final Path b =
+                    Paths.get(mgr.getArtifactHandler("mvn:g/b/1").getLocalURL().toURI());
+            assertTrue(Arrays.equals(content, Files.readAllBytes(a)));
+            assertTrue(Arrays.equals(content, Files.readAllBytes(b)));
+            assertEquals(1, cfg.getDeduplicatedArtifacts());
+            assertEquals(content.length, cfg.getDeduplicatedBytes());
+            assertEquals(content.length, cfg.getCacheSize());
+
+            try {
+                mgr.getArtifactHandler("mvn:g/c/1");
+                fail();
+            } catch (final IOException expected) {
+                // expected
+            }
+            assertEquals(1, cfg.getInvalidArtifacts());
+            assertFalse(Files.exists(cacheDir.resolve("g/c/1/c-1.jar")));
+            assertEquals(2, cfg.getDownloadedArtifacts());
+        } finally {
+            mgr.shutdown();
+            server.stop(0);
+        }
+    }
+
+    private static String toHex(final byte[] digest) {
+        final StringBuilder sb = new StringBuilder();
+        for (final byte b : digest) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
     @Test
     public void testGetArtifactManager() throws Exception {
         ArtifactManagerConfig cfg = new ArtifactManagerConfig();
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.io.artifacts;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.sling.feature.ArtifactId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CacheEvictorTest {
+
+    private Path cacheDir;
+
+    @Before
+    public void setUp() throws IOException {
+        this.cacheDir = Files.createTempDirectory("CacheEvictorTest");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(this.cacheDir.toFile());
+    }
+
+    private Path createFile(final String relPath, final long lastModified) throws IOException {
+        final Path p = this.cacheDir.resolve(relPath);
+        Files.createDirectories(p.getParent());
+        Files.write(p, new byte[100]);
+        Files.setLastModifiedTime(p, FileTime.fromMillis(lastModified));
+        return p;
+    }
+
+    @Test
+    public void testDisabled() throws IOException {
+        final Path a = createFile("g/a/1/a-1.jar", 1000);
+        final CacheEvictor evictor = new CacheEvictor(this.cacheDir, 0, Collections.emptyList());
+        assertFalse(evictor.isEnabled());
+        evictor.evict();
+        assertTrue(Files.exists(a));
+        assertFalse(Files.exists(this.cacheDir.resolve(CacheEvictor.FILE_NAME)));
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws IOException {
+        final Path a = createFile("g/a/1/a-1.jar", 1000);
+        final Path b = createFile("g/b/1/b-1.jar", 2000);
+        final Path c = createFile("g/c/1/c-1.jar", 3000);
+
+        // the index is built from the last modification times
+        final CacheEvictor evictor = new CacheEvictor(this.cacheDir, 250, Collections.emptyList());
+        evictor.evict();
+        assertFalse(Files.exists(a));
+        // the directory is kept for concurrent downloads
+        assertTrue(Files.isDirectory(this.cacheDir.resolve("g/a/1")));
+        assertTrue(Files.exists(b));
+        assertTrue(Files.exists(c));
+        assertTrue(Files.exists(this.cacheDir.resolve(CacheEvictor.FILE_NAME)));
+
+        // accesses update the index, new files are added
+        final Path d = createFile("g/d/1/d-1.jar", 4000);
+        evictor.accessed(b);
+        evictor.accessed(d);
+        evictor.evict();
+        assertTrue(Files.exists(b));
+        assertFalse(Files.exists(c));
+        assertTrue(Files.exists(d));
+
+        // the index is shared with other instances
+        final CacheEvictor other = new CacheEvictor(this.cacheDir, 150, Collections.emptyList());
+        other.accessed(b);
+        other.evict();
+        assertTrue(Files.exists(b));
+        assertFalse(Files.exists(d));
+    }
+
+    @Test
+    public void testPinnedArtifacts() throws IOException {
+        final Path a = createFile("g/a/1/a-1.jar", 1000);
+        final Path b = createFile("g/b/1.0-SNAPSHOT/b-1.0-20240101.120000-1.jar", 2000);
+        final Path c = createFile("g/c/1/c-1.jar", 3000);
+
+        final CacheEvictor evictor = new CacheEvictor(
+                this.cacheDir, 100, Arrays.asList(ArtifactId.parse("g:a:1"), ArtifactId.parse("g:b:1.0-SNAPSHOT")));
+        assertTrue(evictor.isPinned("g/b/1.0-SNAPSHOT/b-1.0-SNAPSHOT.jar"));
+        assertFalse(evictor.isPinned("g/b/1.1-SNAPSHOT/b-1.1-20240101.120000-1.jar"));
+        assertFalse(evictor.isPinned("g/b/1.0-SNAPSHOT/b-1.0-SNAPSHOT-sources.jar"));
+        assertFalse(evictor.isPinned("g/b/1.0-SNAPSHOT/b-1.0-SNAPSHOTX.jar"));
+        assertFalse(evictor.isPinned("g/b/1.0-SNAPSHOT/b-1.0-20240101.120000-1-sources.jar"));
+        assertFalse(evictor.isPinned("g/b/1.0-SNAPSHOT/b-1.0-20240101.120000-1.jar.sha1"));
+        evictor.evict();
+        assertTrue(Files.exists(a));
+        assertTrue(Files.exists(b));
+        assertFalse(Files.exists(c));
+    }
+
+    @Test
+    public void testPinnedSnapshotWithClassifier() {
+        final CacheEvictor evictor = new CacheEvictor(
+                this.cacheDir, 100, Collections.singletonList(ArtifactId.parse("g:b:jar:sources:1.0-SNAPSHOT")));
+        assertTrue(evictor.isPinned("g/b/1.0-SNAPSHOT/b-1.0-SNAPSHOT-sources.jar"));
+        assertTrue(evictor.isPinned("g/b/1.0-SNAPSHOT/b-1.0-20240101.120000-1-sources.jar"));
+        assertFalse(evictor.isPinned("g/b/1.0-SNAPSHOT/b-1.0-SNAPSHOT.jar"));
+        assertFalse(evictor.isPinned("g/b/1.0-SNAPSHOT/b-1.0-20240101.120000-1.jar"));
+    }
+
+    @Test
+    public void testRescanOutdatedIndex() throws IOException {
+        final Path a = createFile("g/a/1/a-1.jar", 1000);
+        final Path b = createFile("g/b/1/b-1.jar", 2000);
+
+        final CacheEvictor evictor = new CacheEvictor(this.cacheDir, 250, Collections.emptyList());
+        evictor.evict();
+        assertTrue(Files.exists(a));
+        assertTrue(Files.exists(b));
+
+        // a file added without being recorded is not in the index
+        final Path c = createFile("g/c/1/c-1.jar", 3000);
+        evictor.evict();
+        assertTrue(Files.exists(a));
+
+        // until the last scan is outdated
+        final Path index = this.cacheDir.resolve(CacheEvictor.FILE_NAME);
+        final Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(index)) {
+            props.load(in);
+        }
+        props.setProperty(CacheEvictor.SCANNED, "0,0");
+        try (OutputStream out = Files.newOutputStream(index)) {
+            props.store(out, null);
+        }
+        evictor.evict();
+        assertFalse(Files.exists(a));
+        assertTrue(Files.exists(b));
+        assertTrue(Files.exists(c));
+    }
+
+    @Test
+    public void testRemoveUnusedBlobs() throws IOException {
+        final BlobStore store = new BlobStore(this.cacheDir);
+        final String sha256A = String.join("", Collections.nCopies(64, "a"));
+        final String sha256B = String.join("", Collections.nCopies(64, "b"));
+        final Path a = this.cacheDir.resolve("g/a/1/a-1.jar");
+        final Path b = this.cacheDir.resolve("g/b/1/b-1.jar");
+        for (final Path p : Arrays.asList(a, b)) {
+            Files.createDirectories(p.getParent());
+            final Path tmp = Files.createTempFile(p.getParent(), "blob", ".part");
+            Files.write(tmp, new byte[100]);
+            store.store(tmp, p == a ? sha256A : sha256B, p);
+        }
+        // outside of the grace period
+        Files.setLastModifiedTime(a, FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(b, FileTime.fromMillis(2000));
+
+        final CacheEvictor evictor = new CacheEvictor(this.cacheDir, 150, Collections.emptyList());
+        evictor.evict();
+        assertFalse(Files.exists(a));
+        assertTrue(Files.exists(b));
+        assertTrue(Files.exists(store.getBlob(sha256B)));
+        if (Files.getFileStore(this.cacheDir).supportsFileAttributeView("unix")) {
+            assertFalse(Files.exists(store.getBlob(sha256A)));
+        }
+        assertFalse(Files.exists(store.getBlob(sha256A).resolveSibling(sha256A + FileLocks.SUFFIX)));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.io.artifacts;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileLocksTest {
+
+    @Test
+    public void testExclusiveAccess() throws Exception {
+        final Path dir = Files.createTempDirectory("FileLocksTest");
+        final Path file = dir.resolve("a.jar");
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final AtomicInteger executions = new AtomicInteger();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(() -> FileLocks.withLock(file, () -> {
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(2);
+                    } catch (final InterruptedException e) {
+                        throw new IOException(e);
+                    } finally {
+                        active.decrementAndGet();
+                    }
+                    return executions.incrementAndGet();
+                })));
+            }
+            for (final Future<Integer> f : results) {
+                f.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, maxActive.get());
+        assertEquals(32, executions.get());
+        assertFalse(Files.exists(dir.resolve("a.jar" + FileLocks.SUFFIX)));
+
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testIndependentPaths() throws Exception {
+        final Path dir = Files.createTempDirectory("FileLocksTest");
+        final Path file = dir.resolve("a.jar");
+        final Path other = dir.resolve("b.jar");
+
+        // different paths can be locked at the same time
+        assertEquals("b", FileLocks.withLock(file, () -> FileLocks.withLock(other, () -> "b")));
+
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testLockFileIsRemoved() throws Exception {
+        final Path dir = Files.createTempDirectory("FileLocksTest");
+        final Path file = dir.resolve("a.jar");
+        final Path lockFile = dir.resolve("a.jar" + FileLocks.SUFFIX);
+
+        assertTrue(FileLocks.withLock(file, () -> Files.exists(lockFile)));
+        assertFalse(Files.exists(lockFile));
+
+        // an existing lock file is used and removed as well
+        Files.createFile(lockFile);
+        assertEquals("a", FileLocks.withLock(file, () -> "a"));
+        assertFalse(Files.exists(lockFile));
+
+        Files.delete(dir);
+    }
+}
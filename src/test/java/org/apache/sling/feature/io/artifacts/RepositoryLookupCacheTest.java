@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.io.artifacts;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RepositoryLookupCacheTest {
+
+    private static final String REMOTE = "https://repo.maven.apache.org/maven2";
+
+    private static final String LOCAL = "file:///home/user/.m2/repository";
+
+    private static final String PATH = "g/a/1/a-1.jar";
+
+    @Test
+    public void testDisabled() {
+        final RepositoryLookupCache cache = new RepositoryLookupCache(null, 0, false);
+        cache.missed(REMOTE, PATH);
+        assertFalse(cache.isMissing(REMOTE, PATH));
+        cache.found(LOCAL, PATH);
+        assertEquals(Arrays.asList(REMOTE, LOCAL), cache.order(new String[] {REMOTE, LOCAL}));
+    }
+
+    @Test
+    public void testMisses() throws Exception {
+        final RepositoryLookupCache cache = new RepositoryLookupCache(null, 100, false);
+        cache.missed(REMOTE, PATH);
+        cache.missed(LOCAL, PATH);
+        assertTrue(cache.isMissing(REMOTE, PATH));
+        assertFalse(cache.isMissing(REMOTE, "g/b/1/b-1.jar"));
+        // misses in local repositories are not remembered
+        assertFalse(cache.isMissing(LOCAL, PATH));
+
+        cache.found(REMOTE, PATH);
+        assertFalse(cache.isMissing(REMOTE, PATH));
+
+        cache.missed(REMOTE, PATH);
+        Thread.sleep(150);
+        assertFalse(cache.isMissing(REMOTE, PATH));
+    }
+
+    @Test
+    public void testPersistence() throws IOException {
+        final Path dir = Files.createTempDirectory("RepositoryLookupCacheTest");
+        final Path file = dir.resolve(RepositoryLookupCache.FILE_NAME);
+        try {
+            final RepositoryLookupCache cache = new RepositoryLookupCache(file, 60000, false);
+            cache.missed(REMOTE, PATH);
+            cache.save();
+            assertTrue(Files.isRegularFile(file));
+
+            final RepositoryLookupCache other = new RepositoryLookupCache(file, 60000, false);
+            other.missed(REMOTE, "g/b/1/b-1.jar");
+            assertTrue(other.isMissing(REMOTE, PATH));
+
+            // saving keeps entries stored by others
+            final RepositoryLookupCache third = new RepositoryLookupCache(file, 60000, false);
+            other.save();
+            third.save();
+            final RepositoryLookupCache result = new RepositoryLookupCache(file, 60000, false);
+            assertTrue(result.isMissing(REMOTE, PATH));
+            assertTrue(result.isMissing(REMOTE, "g/b/1/b-1.jar"));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testOrder() {
+        final String other = "https://repository.apache.org/content/groups/snapshots";
+        final RepositoryLookupCache cache = new RepositoryLookupCache(null, 0, true);
+        final String[] repos = new String[] {LOCAL, REMOTE, other};
+        assertEquals(Arrays.asList(repos), cache.order(repos));
+
+        cache.found(other, PATH);
+        assertEquals(Arrays.asList(other, LOCAL, REMOTE), cache.order(repos));
+
+        cache.found(REMOTE, PATH);
+        assertEquals(Arrays.asList(REMOTE, other, LOCAL), cache.order(repos));
+    }
+}
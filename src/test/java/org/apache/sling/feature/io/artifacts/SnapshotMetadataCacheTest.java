@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.feature.io.artifacts;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class SnapshotMetadataCacheTest {
+
+    private static final String URL = "https://repository.apache.org/g/a/1.0-SNAPSHOT/maven-metadata.xml";
+
+    @Test
+    public void testDisabled() throws IOException {
+        final SnapshotMetadataCache cache = new SnapshotMetadataCache();
+        final AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("v" + i, cache.getLatestSnapshot(URL, 0, false, u -> "v" + loads.getAndIncrement()));
+        }
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+        final SnapshotMetadataCache cache = new SnapshotMetadataCache();
+        final AtomicInteger loads = new AtomicInteger();
+        assertEquals("v0", cache.getLatestSnapshot(URL, 100, false, u -> "v" + loads.getAndIncrement()));
+        assertEquals("v0", cache.getLatestSnapshot(URL, 100, false, u -> "v" + loads.getAndIncrement()));
+        // metadata without snapshot version is cached as well
+        assertNull(cache.getLatestSnapshot(URL + ".other", 100, false, u -> null));
+        assertNull(cache.getLatestSnapshot(URL + ".other", 100, false, u -> "v"));
+
+        Thread.sleep(150);
+        assertEquals("v1", cache.getLatestSnapshot(URL, 100, false, u -> "v" + loads.getAndIncrement()));
+
+        // offline the entries do not expire
+        Thread.sleep(150);
+        assertEquals("v1", cache.getLatestSnapshot(URL, 100, true, u -> "v" + loads.getAndIncrement()));
+
+        cache.clear();
+        assertEquals("v2", cache.getLatestSnapshot(URL, 100, false, u -> "v" + loads.getAndIncrement()));
+    }
+
+    @Test
+    public void testFailuresAreNotCached() throws IOException {
+        final SnapshotMetadataCache cache = new SnapshotMetadataCache();
+        try {
+            cache.getLatestSnapshot(URL, 1000, false, u -> {
+                throw new IOException("not found");
+            });
+            fail();
+        } catch (final IOException expected) {
+            // expected
+        }
+        assertEquals("v", cache.getLatestSnapshot(URL, 1000, false, u -> "v"));
+    }
+}
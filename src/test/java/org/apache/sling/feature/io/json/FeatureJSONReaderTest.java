@@ -19,10 +19,19 @@
 package org.apache.sling.feature.io.json;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import jakarta.json.Json;
 import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.ArtifactIdInterner;
 import org.apache.sling.feature.Bundles;
 import org.apache.sling.feature.Configuration;
 import org.apache.sling.feature.Extension;
@@ -35,8 +44,11 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class FeatureJSONReaderTest {
 
@@ -165,4 +177,129 @@ public class FeatureJSONReaderTest {
         assertEquals(1, origins.size());
         assertEquals(ArtifactId.parse("org.apache.sling/test-feature/1.1"), origins.get(0));
     }
+
+    @Test
+    public void testReadStreaming() throws Exception {
+        for (final String name : Arrays.asList(
+                "test",
+                "test2",
+                "test3",
+                "repoinit",
+                "repoinit2",
+                "artifacts-extension",
+                "final",
+                "complete",
+                "feature-model",
+                "test-metadata",
+                "internal-prop")) {
+            final Feature feature = U.readFeature(name);
+            final Feature streamed;
+            try (final Reader reader = new InputStreamReader(
+                    FeatureJSONReaderTest.class.getResourceAsStream("/features/" + name + ".json"), "UTF-8")) {
+                streamed = FeatureJSONReader.readStreaming(reader, name);
+            }
+            assertEquals(name, feature.getId(), streamed.getId());
+            assertEquals(name, feature.getBundles(), streamed.getBundles());
+            assertEquals(name, feature.getVariableMetadata("bar"), streamed.getVariableMetadata("bar"));
+            // compare the serialized form, extensions are not ordered
+            assertEquals(name, toJson(feature), toJson(streamed));
+        }
+    }
+
+    @Test
+    public void testReadStreamingValidation() throws Exception {
+        // id is not the first property and the configuration of the bundle is redefined
+        final String json = "{ \"configurations\" : { \"my.pid\" : { \"a\" : 1 } },"
+                + " \"bundles\" : [ { \"id\" : \"g:b:1\", \"configurations\" : { \"my.pid\" : { \"b\" : 2 } } } ],"
+                + " \"id\" : \"g:f:1\" }";
+        assertSameError(json);
+
+        // duplicate bundle
+        assertSameError("{ \"id\" : \"g:f:1\", \"bundles\" : [ \"g:b:1\", \"g:b:1\" ] }");
+        // invalid type
+        assertSameError("{ \"id\" : \"g:f:1\", \"bundles\" : { } }");
+        // reserved extension name
+        assertSameError("{ \"id\" : \"g:f:1\", \"bundles:JSON\" : { } }");
+        // missing id
+        assertSameError("{ \"bundles\" : [ ] }");
+        // errors in configurations
+        assertSameError("{ \"id\" : \"g:f:1\", \"configurations\" : { \"a\" : 1 } }");
+        // same key twice
+        try (final Reader reader = new InputStreamReader(
+                FeatureJSONReaderTest.class.getResourceAsStream("/features/test4.json"), "UTF-8")) {
+            FeatureJSONReader.readStreaming(reader, "test4");
+            fail();
+        } catch (final IOException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testReadStreamingMergesConfigurationsInOrder() throws Exception {
+        final String json = "{ \"configurations\" : { \"my.pid\" : { \"a\" : 1 }, \"other.pid\" : { } },"
+                + " \"ext\" : [ { \"id\" : \"g:b:1\", \"configurations\" : { \"my.pid\" : { \"b\" : 2 } } } ],"
+                + " \"bundles\" : [ { \"id\" : \"g:b:2\", \"configurations\" : { \"bundle.pid\" : { } } } ],"
+                + " \"id\" : \"g:f:1\" }";
+        final Feature feature = FeatureJSONReader.read(new StringReader(json), null);
+        final Feature streamed = FeatureJSONReader.readStreaming(new StringReader(json), null);
+
+        assertEquals(3, streamed.getConfigurations().size());
+        for (int i = 0; i < 3; i++) {
+            final Configuration expected = feature.getConfigurations().get(i);
+            final Configuration actual = streamed.getConfigurations().get(i);
+            assertEquals(expected.getPid(), actual.getPid());
+            assertEquals(toMap(expected), toMap(actual));
+        }
+        assertEquals(
+                "g:b:1", streamed.getConfigurations().get(1).getProperties().get(Configuration.PROP_ARTIFACT_ID));
+    }
+
+    @Test
+    public void testReadWithInterner() throws Exception {
+        final String json1 = "{ \"id\" : \"g:f1:1\", \"bundles\" : [ \"g:b:1\", \"g:c:1\" ] }";
+        final String json2 = "{ \"id\" : \"g:f2:1\", \"bundles\" : [ \"g:b:1\" ] }";
+        final ArtifactIdInterner interner = new ArtifactIdInterner();
+        final Feature f1 = FeatureJSONReader.read(new StringReader(json1), null, interner);
+        final Feature f2 = FeatureJSONReader.readStreaming(new StringReader(json2), null, interner);
+
+        final ArtifactId id = f1.getBundles().get(0).getId();
+        assertSame(id, f2.getBundles().get(0).getId());
+        assertSame(id, interner.intern(ArtifactId.parse("g:b:1")));
+        assertSame(f1.getId(), interner.intern(ArtifactId.parse("g:f1:1")));
+
+        // without an interner each feature has its own instances
+        final Feature f3 = FeatureJSONReader.read(new StringReader(json2), null);
+        assertEquals(id, f3.getBundles().get(0).getId());
+        assertNotSame(id, f3.getBundles().get(0).getId());
+    }
+
+    private static void assertSameError(final String json) {
+        String expected = null;
+        try {
+            FeatureJSONReader.read(new StringReader(json), "loc");
+            fail();
+        } catch (final IOException e) {
+            expected = e.getMessage();
+        }
+        try {
+            FeatureJSONReader.readStreaming(new StringReader(json), "loc");
+            fail();
+        } catch (final IOException e) {
+            assertEquals(expected, e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> toMap(final Configuration cfg) {
+        final Map<String, Object> result = new HashMap<>();
+        for (final String key : Collections.list(cfg.getProperties().keys())) {
+            result.put(key, cfg.getProperties().get(key));
+        }
+        return result;
+    }
+
+    private static Object toJson(final Feature feature) throws IOException {
+        final StringWriter writer = new StringWriter();
+        FeatureJSONWriter.write(writer, feature);
+        return Json.createReader(new StringReader(writer.toString())).readObject();
+    }
 }
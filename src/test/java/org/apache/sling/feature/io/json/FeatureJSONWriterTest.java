@@ -18,22 +18,32 @@
  */
 package org.apache.sling.feature.io.json;
 
+import java.io.ByteArrayOutputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonValue;
 import jakarta.json.JsonValue.ValueType;
+import org.apache.sling.feature.Artifact;
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Configuration;
+import org.apache.sling.feature.Extension;
+import org.apache.sling.feature.ExtensionState;
+import org.apache.sling.feature.ExtensionType;
 import org.apache.sling.feature.Feature;
 import org.junit.Assert;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
@@ -162,4 +172,90 @@ public class FeatureJSONWriterTest {
             }
         }
     }
+
+    @Test
+    public void testWriteCompact() throws Exception {
+        for (final String name : Arrays.asList("test", "test2", "artifacts-extension", "repoinit2", "test-metadata")) {
+            final Feature f = U.readFeature(name);
+            final StringWriter writer = new StringWriter();
+            FeatureJSONWriter.write(writer, f);
+
+            final AtomicBoolean closed = new AtomicBoolean();
+            final ByteArrayOutputStream stream = new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    closed.set(true);
+                }
+            };
+            FeatureJSONWriter.writeCompact(stream, f);
+            assertFalse(closed.get());
+
+            final String compact = new String(stream.toByteArray(), StandardCharsets.UTF_8);
+            assertFalse(compact.contains("\n"));
+            assertEquals(
+                    name,
+                    Json.createReader(new StringReader(writer.toString())).readObject(),
+                    Json.createReader(new StringReader(compact)).readObject());
+        }
+    }
+
+    @Test
+    public void testWriteFrozenFeature() throws Exception {
+        final Feature f = new Feature(ArtifactId.parse("g:f:1"));
+        final Artifact bundle = new Artifact(ArtifactId.parse("g:b:1"));
+        bundle.getMetadata().put("runmodes", "author");
+        bundle.getMetadata().put("start-order", "5");
+        f.getBundles().add(bundle);
+        f.freeze();
+
+        final StringWriter writer = new StringWriter();
+        FeatureJSONWriter.write(writer, f);
+
+        final JsonObject written = Json.createReader(new StringReader(writer.toString()))
+                .readObject()
+                .getJsonArray("bundles")
+                .getJsonObject(0);
+        assertEquals("author", written.getString("run-modes"));
+        assertFalse(written.containsKey("runmodes"));
+        assertEquals("5", written.getString("start-order"));
+        // the feature is not modified
+        assertEquals("author", bundle.getMetadata().get("runmodes"));
+        assertNull(bundle.getMetadata().get("run-modes"));
+    }
+
+    @Test
+    public void testWriteArtifactConfigurations() throws Exception {
+        final Feature f = new Feature(ArtifactId.parse("g:f:1"));
+        final Extension ext = new Extension(ExtensionType.ARTIFACTS, "ext", ExtensionState.OPTIONAL);
+        f.getExtensions().add(ext);
+        for (int i = 0; i < 100; i++) {
+            final Artifact a = new Artifact(ArtifactId.parse("g:a" + i + ":1"));
+            ext.getArtifacts().add(a);
+            final Configuration cfg = new Configuration("pid" + i);
+            cfg.getProperties().put("index", i);
+            cfg.getProperties().put(Configuration.PROP_ARTIFACT_ID, a.getId().toMvnId());
+            f.getConfigurations().add(cfg);
+        }
+        f.getExtensions().add(new Extension(ExtensionType.ARTIFACTS, "empty", ExtensionState.OPTIONAL));
+        f.getExtensions().getByName("empty").getArtifacts().add(new Artifact(ArtifactId.parse("g:b:1")));
+        final Configuration cfg = new Configuration("feature.pid");
+        f.getConfigurations().add(cfg);
+
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        FeatureJSONWriter.writeCompact(stream, f);
+        final Feature rf = FeatureJSONReader.read(
+                new StringReader(new String(stream.toByteArray(), StandardCharsets.UTF_8)), null);
+
+        assertEquals(101, rf.getConfigurations().size());
+        for (int i = 0; i < 100; i++) {
+            final Configuration c = rf.getConfigurations().getConfiguration("pid" + i);
+            assertEquals(i, ((Number) c.getProperties().get("index")).intValue());
+            assertEquals("g:a" + i + ":1", c.getProperties().get(Configuration.PROP_ARTIFACT_ID));
+        }
+        assertNull(rf.getConfigurations()
+                .getConfiguration("feature.pid")
+                .getProperties()
+                .get(Configuration.PROP_ARTIFACT_ID));
+        assertEquals(1, rf.getExtensions().getByName("empty").getArtifacts().size());
+    }
 }